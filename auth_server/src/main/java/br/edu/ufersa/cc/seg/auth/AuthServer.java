@@ -7,6 +7,7 @@ import br.edu.ufersa.cc.seg.auth.dto.InstanceDto;
 import br.edu.ufersa.cc.seg.auth.exceptions.AuthFailureException;
 import br.edu.ufersa.cc.seg.auth.services.AuthService;
 import br.edu.ufersa.cc.seg.auth.services.InstanceService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
 import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
 import br.edu.ufersa.cc.seg.common.factories.EnvOrInputFactory;
 import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
@@ -51,10 +52,19 @@ public class AuthServer {
     public void stop() {
         locationMessenger.close();
         serverMessenger.close();
+        CryptoTrace.logCounters();
     }
 
     @SneakyThrows
     private void connectToLocationServer() {
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationMessenger = MessengerFactory.agreeUdp(envOrInputFactory.getString("LOCATION_HOST"),
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -68,12 +78,12 @@ public class AuthServer {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -85,7 +95,7 @@ public class AuthServer {
         final var insecureHost = envOrInputFactory.getString("LOCATION_HOST");
         final var insecurePort = envOrInputFactory.getInt("LOCATION_PORT");
         final var insecureMessenger = MessengerFactory.udp(insecureHost, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -133,19 +143,15 @@ public class AuthServer {
         if (MessageType.USE_SYMMETRIC.equals(request.getType())) {
             log.info("Nova conexão assimétrica. Preparando-se para usar simétrica...");
 
-            final var encryptionKey = CryptoServiceFactory.generateAESKey();
-            final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
+            final var keys = CryptoServiceFactory.generateSymmetric(request);
+            final var cryptoService = keys.getCryptoService();
             final var symmetricMessenger = ServerMessengerFactory.secureTcp(cryptoService);
             symmetricMessenger.subscribe(this::handleRequest);
             log.info("Aguardando mensagens simétricas...");
 
-            return MessageFactory.ok()
+            return keys.writeTo(MessageFactory.ok()
                     .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
-                    .withValue(Fields.PORT, symmetricMessenger.getPort())
-                    .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                    .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                    .withValue(Fields.PORT, symmetricMessenger.getPort()));
         } else {
             return MessageFactory.error("Tipo de mensagem não suportada");
         }
@@ -0,0 +1,133 @@
+package br.edu.ufersa.cc.seg.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.edu.ufersa.cc.seg.common.concrete_crypto.AESGCMService;
+import br.edu.ufersa.cc.seg.common.concrete_crypto.AESService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
+
+/**
+ * Cifragem seguida de decifragem de uma mensagem, com os {@link Cipher}s e
+ * {@link Mac}s reaproveitados pelo {@link AESService} e pelo
+ * {@link AESGCMService} contra uma instância nova a cada chamada (como era
+ * antes do pool), com os mesmos algoritmos e o mesmo formato.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks-0.0.1-SNAPSHOT-jar-with-dependencies.jar CipherPool -t 4
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CipherPoolBenchmark {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    @Param({ "256", "4096" })
+    private int size;
+
+    private byte[] payload;
+    private SecretKey encryptionKey;
+    private SecretKey hmacKey;
+
+    private CryptoService pooledCbc;
+    private CryptoService pooledGcm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payload = new byte[size];
+        new Random(1).nextBytes(payload);
+
+        encryptionKey = CryptoServiceFactory.generateAESKey();
+        hmacKey = new SecretKeySpec(CryptoServiceFactory.generateAESKey().getEncoded(), "HmacSHA256");
+
+        pooledCbc = new AESService(encryptionKey, hmacKey);
+        pooledGcm = new AESGCMService(encryptionKey);
+    }
+
+    @Benchmark
+    public byte[] cbcPooled() {
+        return pooledCbc.decrypt(pooledCbc.encrypt(payload));
+    }
+
+    @Benchmark
+    public byte[] cbcPerCall() throws GeneralSecurityException {
+        final var iv = new byte[16];
+        SECURE_RANDOM.nextBytes(iv);
+        final var timestamp = System.currentTimeMillis();
+
+        final var encryptor = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        encryptor.init(Cipher.ENCRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+        final var encrypted = encryptor.doFinal(payload);
+        final var hmac = hmac(encrypted, iv, timestamp);
+
+        if (!MessageDigest.isEqual(hmac, hmac(encrypted, iv, timestamp))) {
+            throw new IllegalStateException("HMAC inválido");
+        }
+        final var decryptor = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        decryptor.init(Cipher.DECRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+        return decryptor.doFinal(encrypted);
+    }
+
+    @Benchmark
+    public byte[] gcmPooled() {
+        return pooledGcm.decrypt(pooledGcm.encrypt(payload));
+    }
+
+    @Benchmark
+    public byte[] gcmPerCall() throws GeneralSecurityException {
+        final var iv = new byte[12];
+        SECURE_RANDOM.nextBytes(iv);
+        final var aad = ByteBuffer.allocate(Long.BYTES).putLong(System.currentTimeMillis()).array();
+
+        final var encryptor = Cipher.getInstance("AES/GCM/NoPadding");
+        encryptor.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(128, iv));
+        encryptor.updateAAD(aad);
+        final var encrypted = encryptor.doFinal(payload);
+
+        final var decryptor = Cipher.getInstance("AES/GCM/NoPadding");
+        decryptor.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(128, iv));
+        decryptor.updateAAD(aad);
+        return decryptor.doFinal(encrypted);
+    }
+
+    private byte[] hmac(final byte[] encrypted, final byte[] iv, final long timestamp)
+            throws GeneralSecurityException {
+        final var mac = Mac.getInstance("HmacSHA256");
+        mac.init(hmacKey);
+        mac.update(encrypted);
+        mac.update(iv);
+        mac.update(ByteBuffer.allocate(Long.BYTES).putLong(timestamp).array());
+        return mac.doFinal();
+    }
+
+}
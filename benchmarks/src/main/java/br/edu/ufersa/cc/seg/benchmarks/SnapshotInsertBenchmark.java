@@ -0,0 +1,102 @@
+package br.edu.ufersa.cc.seg.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+import br.edu.ufersa.cc.seg.datacenter.repositories.SnapshotRepository;
+
+/**
+ * Inserções por segundo no H2 em memória do datacenter: uma transação por
+ * captura ({@link SnapshotRepository#create(Snapshot)}) contra uma transação
+ * em lotes JDBC por leitura ({@link SnapshotRepository#createAll}) e por
+ * {@link #READINGS} leituras de uma vez.
+ * <p>
+ * A tabela cresce ao longo da medição, como na gravação real.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks-0.0.1-SNAPSHOT-jar-with-dependencies.jar SnapshotInsert
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotInsertBenchmark {
+
+    /** Capturas por leitura; anotações exigem uma constante */
+    private static final int ELEMENTS = 10;
+    private static final int READINGS = 200;
+
+    private SnapshotRepository repository;
+    private long sequence;
+    private LocalDateTime timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (Element.values().length != ELEMENTS) {
+            throw new IllegalStateException("ELEMENTS deve acompanhar o número de elementos");
+        }
+
+        repository = new SnapshotRepository();
+        sequence = repository.maxSequence();
+        timestamp = LocalDateTime.now();
+    }
+
+    /** Uma leitura completa: uma captura por elemento, no mesmo instante */
+    private List<Snapshot> reading(final List<Snapshot> into) {
+        timestamp = timestamp.plusNanos(1_000_000);
+        for (final var element : Element.values()) {
+            into.add(new Snapshot()
+                    .setDeviceName("device-" + sequence % 8)
+                    .setTimestamp(timestamp)
+                    .setElement(element)
+                    .setCapturedValue(sequence)
+                    .setSequence(++sequence));
+        }
+        return into;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void createPerRow() {
+        for (final var snapshot : reading(new ArrayList<>(ELEMENTS))) {
+            repository.create(snapshot);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void createAllPerReading() {
+        repository.createAll(reading(new ArrayList<>(ELEMENTS)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS * READINGS)
+    public void createAllBatch() {
+        final var snapshots = new ArrayList<Snapshot>(ELEMENTS * READINGS);
+        for (var i = 0; i < READINGS; i++) {
+            reading(snapshots);
+        }
+        repository.createAll(snapshots);
+    }
+
+}
@@ -5,6 +5,7 @@ import java.util.Optional;
 import java.util.Scanner;
 
 import br.edu.ufersa.cc.seg.client.Client;
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
 import br.edu.ufersa.cc.seg.common.factories.EnvOrInputFactory;
 import lombok.extern.slf4j.Slf4j;
 
@@ -13,6 +14,7 @@ public class Main {
 
     public static void main(String[] args) throws IOException {
         log.info("Iniciando cliente...");
+        CryptoServiceFactory.warmUpRsaPool();
 
         final var input = Optional.ofNullable(Main.class.getResourceAsStream("/env.txt"))
                 .orElse(System.in);
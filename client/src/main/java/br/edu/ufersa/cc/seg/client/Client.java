@@ -3,7 +3,6 @@ package br.edu.ufersa.cc.seg.client;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
 import java.util.Timer;
@@ -11,9 +10,11 @@ import java.util.TimerTask;
 
 import org.apache.http.util.EntityUtils;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
 import br.edu.ufersa.cc.seg.common.crypto.HybridCryptoException;
 import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
 import br.edu.ufersa.cc.seg.common.dto.SnapshotDto;
@@ -24,7 +25,7 @@ import br.edu.ufersa.cc.seg.common.factories.MessengerFactory;
 import br.edu.ufersa.cc.seg.common.factories.ServerMessengerFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
-import br.edu.ufersa.cc.seg.common.utils.Constants;
+import br.edu.ufersa.cc.seg.common.utils.EventStream;
 import br.edu.ufersa.cc.seg.common.utils.Fields;
 import br.edu.ufersa.cc.seg.common.utils.MessageType;
 import br.edu.ufersa.cc.seg.common.utils.ServerType;
@@ -39,6 +40,8 @@ public class Client {
     private static final long INTERVAL = 3_000;
     private static final Timer TIMER = new Timer();
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<SnapshotDto>> SNAPSHOTS = new TypeReference<>() {
+    };
 
     private final String name;
     private final EnvOrInputFactory envOrInputFactory;
@@ -50,6 +53,14 @@ public class Client {
     private TimerTask subscription;
     private CryptoService symmetricCryptoService;
 
+    /** Última posição do feed de mudanças já recebida */
+    private long cursor;
+
+    // Enquanto o canal ao vivo estiver aberto, a consulta periódica é dispensada
+    private Thread liveListener;
+    private volatile boolean live;
+    private volatile boolean stopped;
+
     @SneakyThrows
     public void start() {
         connectToLocationServer();
@@ -59,43 +70,135 @@ public class Client {
 
         subscription = new TimerTask() {
             @Override
-            @SuppressWarnings("unchecked")
             public void run() {
-                final var time3SecondsAgo = LocalDateTime.now().minusSeconds(INTERVAL / 1000)
-                        .format(Constants.DATE_TIME_URL_FORMATTER);
-                final var response = myClient.getSnapshotsAfter(token, time3SecondsAgo);
-
-                try {
-                    final var entity = response.getEntity();
-                    final var secureJson = EntityUtils.toString(entity);
-                    final var secureMessage = SecureMessage.fromJson(secureJson);
-
-                    final var messageAsBytes = symmetricCryptoService.decrypt(secureMessage);
-                    final var message = Message.fromBytes(messageAsBytes);
-                    final var data = (List<SnapshotDto>) message.getValues().get("data");
-                    final var json = MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(data);
-
-                    log.info("Leituras feitas: {}", json);
-                } catch (IOException e) {
-                    // Ignorar
+                if (live) {
+                    return;
+                }
+
+                // Buscar tudo o que foi gravado depois do cursor; se a página
+                // vier cheia, já há mais e a busca continua
+                var more = true;
+                while (more) {
+                    more = pollSince(token);
                 }
             }
         };
 
         TIMER.schedule(subscription, Date.from(Instant.now()), INTERVAL);
+        liveListener = Thread.ofVirtual().name("live").start(() -> listen(token));
     }
 
     @SneakyThrows
     public void stop() {
+        stopped = true;
         if (subscription != null) {
             subscription.cancel();
         }
+        if (liveListener != null) {
+            liveListener.interrupt();
+        }
         locationMessenger.close();
         gatewayTcpMessenger.close();
+        CryptoTrace.logCounters();
+    }
+
+    /**
+     * Acompanha o canal ao vivo do Gateway, inscrevendo-se de novo quando ele
+     * cai; enquanto isso, a consulta periódica cobre as leituras
+     */
+    private void listen(final String token) {
+        while (!stopped) {
+            try (final var response = myClient.streamLive(token)) {
+                if (response.getStatusLine().getStatusCode() == 200) {
+                    live = true;
+                    log.info("Acompanhando leituras ao vivo");
+                    EventStream.read(response.getEntity().getContent(), (event, data) -> receive(token, data));
+                }
+            } catch (final IOException | RuntimeException e) {
+                log.warn("Canal ao vivo interrompido: {}", e.getMessage());
+            } finally {
+                live = false;
+            }
+
+            try {
+                Thread.sleep(INTERVAL);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Quadro do canal ao vivo: se ele começa depois da posição seguinte ao
+     * cursor, algo se perdeu (fila cheia, reconexão) e a lacuna é buscada no
+     * feed antes; o que já foi recebido pela consulta é ignorado
+     */
+    private synchronized void receive(final String token, final String data) {
+        final var message = Message.fromBytes(symmetricCryptoService.decrypt(SecureMessage.fromJson(data)));
+        final var from = ((Number) message.getValue("from")).longValue();
+        final var to = ((Number) message.getValue("to")).longValue();
+
+        var more = true;
+        while (from > cursor + 1 && more) {
+            more = pollSince(token);
+        }
+        if (to <= cursor) {
+            return;
+        }
+
+        final var fresh = MAPPER.convertValue(message.getValue("data"), SNAPSHOTS).stream()
+                .filter(snapshot -> snapshot.getSequence() > cursor)
+                .toList();
+        cursor = to;
+        print(fresh);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized boolean pollSince(final String token) {
+        final var response = myClient.getSnapshotsSince(token, cursor);
+
+        try {
+            final var entity = response.getEntity();
+            final var secureJson = EntityUtils.toString(entity);
+            final var secureMessage = SecureMessage.fromJson(secureJson);
+
+            final var messageAsBytes = symmetricCryptoService.decrypt(secureMessage);
+            final var message = Message.fromBytes(messageAsBytes);
+            if (!MessageType.OK.equals(message.getType())) {
+                log.warn("Falha ao buscar leituras: {}", message.getValues());
+                return false;
+            }
+
+            final var data = (List<SnapshotDto>) message.getValues().get("data");
+            cursor = ((Number) message.getValue("next")).longValue();
+
+            print(data);
+            return Boolean.TRUE.equals(message.getValue("more"));
+        } catch (IOException e) {
+            // Ignorar
+            return false;
+        }
+    }
+
+    @SneakyThrows
+    private static void print(final List<SnapshotDto> data) {
+        if (!data.isEmpty()) {
+            final var json = MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(data);
+            log.info("Leituras feitas: {}", json);
+        }
     }
 
     @SneakyThrows
     private void connectToLocationServer() {
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationMessenger = MessengerFactory.agreeUdp(envOrInputFactory.getString("LOCATION_HOST"),
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -109,12 +212,12 @@ public class Client {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -126,7 +229,7 @@ public class Client {
         final var insecureHost = envOrInputFactory.getString("LOCATION_HOST");
         final var insecurePort = envOrInputFactory.getInt("LOCATION_PORT");
         final var insecureMessenger = MessengerFactory.udp(insecureHost, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -159,16 +262,15 @@ public class Client {
                 final var rsaMessenger = MessengerFactory.secureTcp(rsaHost, rsaPort, rsaCryptoService);
 
                 // Solicitar conexão simétrica
-                final var useSymmetricRequest = new Message(MessageType.USE_SYMMETRIC);
+                final var offer = CryptoServiceFactory.symmetricOffer();
+                final var useSymmetricRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
                 rsaMessenger.send(useSymmetricRequest);
                 final var useSymmetricResponse = rsaMessenger.receive();
 
                 // Abrir messenger simétrico
                 final String aesHost = useSymmetricResponse.getValue(Fields.HOST);
                 final int aesPort = useSymmetricResponse.getValue(Fields.PORT);
-                final String aesEncryptionKey = useSymmetricResponse.getValue(Fields.ENCRYPTION_KEY);
-                final String aesHmacKey = useSymmetricResponse.getValue(Fields.HMAC_KEY);
-                final var aesCryptoService = CryptoServiceFactory.aes(aesEncryptionKey, aesHmacKey);
+                final var aesCryptoService = CryptoServiceFactory.symmetric(offer, useSymmetricResponse);
                 final var aesMessenger = MessengerFactory.secureTcp(aesHost, aesPort, aesCryptoService);
 
                 gatewayTcpMessenger = aesMessenger;
@@ -221,7 +323,8 @@ public class Client {
 
         myClient = new MyHttpClient(host, port);
 
-        final var response = myClient.useSymmetric(token);
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        final var response = myClient.useSymmetric(token, offer);
         final var entity = response.getEntity();
         final var json = EntityUtils.toString(entity);
         final var secureMessage = SecureMessage.fromJson(json);
@@ -229,10 +332,7 @@ public class Client {
         final var message = Message.fromBytes(messageAsBytes);
 
         if (MessageType.OK.equals(message.getType())) {
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
-
-            symmetricCryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
+            symmetricCryptoService = CryptoServiceFactory.symmetric(offer, message);
         } else {
             throw new HybridCryptoException((String) message.getValues().get("message"));
         }
@@ -2,14 +2,20 @@ package br.edu.ufersa.cc.seg.client;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricOffer;
+import br.edu.ufersa.cc.seg.common.utils.EventStream;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
 import lombok.SneakyThrows;
 
 public class MyHttpClient {
 
     private final HttpClient httpClient = HttpClients.createDefault();
+    private final CloseableHttpClient liveHttpClient = HttpClients.createDefault();
     private final String uri;
 
     public MyHttpClient(String host, int port) {
@@ -17,17 +23,33 @@ public class MyHttpClient {
     }
 
     @SneakyThrows
-    public HttpResponse useSymmetric(final String token) {
+    public HttpResponse useSymmetric(final String token, final SymmetricOffer offer) {
         final var request = new HttpGet(uri + "/api/use-symmetric");
         request.addHeader("token", token);
+        request.addHeader(Fields.SYMMETRIC_MODE, offer.getMode().name());
+        if (offer.hasAgreement()) {
+            request.addHeader(Fields.AGREEMENT_KEY, offer.getAgreementKey());
+        }
         return httpClient.execute(request);
     }
 
     @SneakyThrows
-    public HttpResponse getSnapshotsAfter(final String token, final String timestamp) {
-        final var request = new HttpGet(uri + "/api/snapshots/" + timestamp);
+    public HttpResponse getSnapshotsSince(final String token, final long sequence) {
+        final var request = new HttpGet(uri + "/api/snapshots/since/" + sequence);
         request.addHeader("token", token);
         return httpClient.execute(request);
     }
 
+    /**
+     * Abre a inscrição no canal ao vivo. A resposta deve ser lida aos poucos e
+     * fechada por quem chamou.
+     */
+    @SneakyThrows
+    public CloseableHttpResponse streamLive(final String token) {
+        final var request = new HttpGet(uri + "/api/snapshots/live");
+        request.addHeader("token", token);
+        request.addHeader("Accept", EventStream.CONTENT_TYPE);
+        return liveHttpClient.execute(request);
+    }
+
 }
@@ -0,0 +1,127 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoException;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace.Counter;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+
+/**
+ * Serviço de criptografia autenticada com AES/GCM: confidencialidade e
+ * integridade em uma única passada, com uma só chave.
+ * <p>
+ * A tag de autenticação vai no fim do conteúdo cifrado e o timestamp entra
+ * como dado associado (AAD), então não é possível alterá-lo sem invalidar a
+ * mensagem. O campo {@code hmac} da {@link SecureMessage} fica nulo.
+ * <p>
+ * Assim como no {@link AESService}, os {@link Cipher}s são reaproveitados
+ * entre mensagens da mesma sessão.
+ */
+@RequiredArgsConstructor
+public class AESGCMService implements CryptoService {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int IV_SIZE = 12;
+    private static final int TAG_SIZE = 128;
+
+    private final SecretKey encryptionKey;
+
+    private final Deque<Cipher> ciphers = new ConcurrentLinkedDeque<>();
+
+    public AESGCMService(final byte[] encryptionKey) {
+        this(new SecretKeySpec(encryptionKey, "AES"));
+    }
+
+    public AESGCMService(final String encryptionKey) {
+        this(Base64.getDecoder().decode(encryptionKey));
+    }
+
+    @Override
+    @SneakyThrows
+    public SecureMessage encrypt(final byte[] message) {
+        CryptoTrace.trace("Criptografando mensagem com GCM...", () -> message);
+
+        // Gerar IV aleatório (nunca repetir com a mesma chave)
+        final var iv = new byte[IV_SIZE];
+        SECURE_RANDOM.nextBytes(iv);
+        final var timestamp = System.currentTimeMillis();
+
+        // Cifrar e autenticar (conteúdo + timestamp)
+        final var cipher = borrowCipher();
+        final byte[] encrypted;
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_SIZE, iv));
+            cipher.updateAAD(longToBytes(timestamp));
+            encrypted = cipher.doFinal(message);
+        } finally {
+            ciphers.offerFirst(cipher);
+        }
+
+        final var secureMessage = SecureMessage.builder()
+                .encryptedContent(encrypted)
+                .iv(iv)
+                .timestamp(timestamp)
+                .build();
+
+        CryptoTrace.trace("Mensagem criptografada com GCM:", () -> secureMessage);
+        CryptoTrace.increment(Counter.ENCRYPTED_MESSAGES);
+        CryptoTrace.count(Counter.BYTES_ENCRYPTED, message.length);
+
+        return secureMessage;
+    }
+
+    @Override
+    @SneakyThrows
+    public byte[] decrypt(final SecureMessage secureMessage) {
+        CryptoTrace.trace("Descriptografando mensagem com GCM...", () -> secureMessage);
+
+        if (secureMessage.getIv() == null || secureMessage.getIv().length != IV_SIZE) {
+            throw new CryptoException("IV inválido para AES/GCM");
+        }
+
+        final var cipher = borrowCipher();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_SIZE, secureMessage.getIv()));
+            cipher.updateAAD(longToBytes(secureMessage.getTimestamp()));
+            final var original = cipher.doFinal(secureMessage.getEncryptedContent());
+
+            CryptoTrace.trace("Mensagem descriptografada com GCM:", () -> original);
+            CryptoTrace.increment(Counter.DECRYPTED_MESSAGES);
+            CryptoTrace.count(Counter.BYTES_DECRYPTED, original.length);
+
+            return original;
+        } catch (final AEADBadTagException e) {
+            CryptoTrace.increment(Counter.INTEGRITY_FAILURES);
+            throw new CryptoException("Tag GCM inválida - mensagem pode ter sido adulterada", e);
+        } finally {
+            ciphers.offerFirst(cipher);
+        }
+    }
+
+    private Cipher borrowCipher() throws GeneralSecurityException {
+        final var cipher = ciphers.pollFirst();
+        return cipher != null ? cipher : Cipher.getInstance(CIPHER_ALGORITHM);
+    }
+
+    private static byte[] longToBytes(final long x) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(x).array();
+    }
+
+}
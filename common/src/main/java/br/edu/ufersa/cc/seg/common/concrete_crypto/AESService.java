@@ -1,8 +1,11 @@
 package br.edu.ufersa.cc.seg.common.concrete_crypto;
 
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import javax.crypto.Cipher;
 import javax.crypto.Mac;
@@ -10,10 +13,10 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import br.edu.ufersa.cc.seg.common.crypto.CryptoException;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace.Counter;
 import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -22,6 +25,12 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * Serviço de criptografia que provê funções para confidencialidade (cifra
  * simétrica) e integridade/autenticidade (HMAC) das mensagens.
+ * <p>
+ * Cada instância (uma por sessão) mantém os seus próprios {@link Cipher}s e
+ * {@link Mac}s já criados para reaproveitá-los entre mensagens: o {@code Mac}
+ * é inicializado com a chave uma única vez, e o {@code Cipher} só é
+ * reinicializado com o IV de cada mensagem. O conjunto cresce até o número de
+ * mensagens processadas ao mesmo tempo na sessão.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -36,6 +45,9 @@ public class AESService implements CryptoService {
     private final SecretKey encryptionKey;
     private final SecretKey hmacKey;
 
+    private final Deque<Cipher> ciphers = new ConcurrentLinkedDeque<>();
+    private final Deque<Mac> macs = new ConcurrentLinkedDeque<>();
+
     public AESService(final byte[] encryptionKey, final byte[] hmacKey) {
         this.encryptionKey = new SecretKeySpec(encryptionKey, "AES");
         this.hmacKey = new SecretKeySpec(hmacKey, HMAC_ALGORITHM);
@@ -48,7 +60,7 @@ public class AESService implements CryptoService {
     @Override
     @SneakyThrows
     public SecureMessage encrypt(final byte[] message) {
-        log.debug("Criptografando mensagem...\n{}", new String(message));
+        CryptoTrace.trace("Criptografando mensagem...", () -> message);
 
         // Gerar IV aleatório
         final var iv = new byte[IV_SIZE];
@@ -56,9 +68,14 @@ public class AESService implements CryptoService {
         final var ivSpec = new IvParameterSpec(iv);
 
         // Cifrar a mensagem
-        final var cipher = Cipher.getInstance(CIPHER_ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, ivSpec);
-        final var encrypted = cipher.doFinal(message);
+        final var cipher = borrowCipher();
+        final byte[] encrypted;
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, ivSpec);
+            encrypted = cipher.doFinal(message);
+        } finally {
+            ciphers.offerFirst(cipher);
+        }
 
         // Gera HMAC (encrypted + iv + timestamp para evitar replay)
         final var timestamp = System.currentTimeMillis();
@@ -72,8 +89,9 @@ public class AESService implements CryptoService {
                 .timestamp(timestamp)
                 .build();
 
-        final var writer = new ObjectMapper().writerWithDefaultPrettyPrinter();
-        log.debug("Mensagem criptografada:\n{}", writer.writeValueAsString(secureMessage));
+        CryptoTrace.trace("Mensagem criptografada:", () -> secureMessage);
+        CryptoTrace.increment(Counter.ENCRYPTED_MESSAGES);
+        CryptoTrace.count(Counter.BYTES_ENCRYPTED, message.length);
 
         return secureMessage;
     }
@@ -81,8 +99,7 @@ public class AESService implements CryptoService {
     @Override
     @SneakyThrows
     public byte[] decrypt(final SecureMessage secureMessage) {
-        final var writer = new ObjectMapper().writerWithDefaultPrettyPrinter();
-        log.debug("Descriptografando mensagem...\n{}", writer.writeValueAsString(secureMessage));
+        CryptoTrace.trace("Descriptografando mensagem...", () -> secureMessage);
 
         // Valida HMAC primeiro
         final var expectedHmac = generateHmac(
@@ -91,14 +108,22 @@ public class AESService implements CryptoService {
                 secureMessage.getTimestamp());
 
         if (!MessageDigest.isEqual(expectedHmac, secureMessage.getHmac())) {
+            CryptoTrace.increment(Counter.INTEGRITY_FAILURES);
             throw new CryptoException("HMAC inválido - mensagem pode ter sido adulterada");
         }
 
         // Se HMAC ok, decifra
-        final var cipher = Cipher.getInstance(CIPHER_ALGORITHM);
-        cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new IvParameterSpec(secureMessage.getIv()));
-        final var original = cipher.doFinal(secureMessage.getEncryptedContent());
-        log.debug("Mensagem descriptografada:\n{}", new String(original));
+        final var cipher = borrowCipher();
+        final byte[] original;
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new IvParameterSpec(secureMessage.getIv()));
+            original = cipher.doFinal(secureMessage.getEncryptedContent());
+        } finally {
+            ciphers.offerFirst(cipher);
+        }
+        CryptoTrace.trace("Mensagem descriptografada:", () -> original);
+        CryptoTrace.increment(Counter.DECRYPTED_MESSAGES);
+        CryptoTrace.count(Counter.BYTES_DECRYPTED, original.length);
 
         return original;
     }
@@ -107,9 +132,9 @@ public class AESService implements CryptoService {
      * Gera HMAC para os componentes da mensagem
      */
     private byte[] generateHmac(final byte[] encrypted, final byte[] iv, final long timestamp) {
+        Mac mac = null;
         try {
-            final var mac = Mac.getInstance(HMAC_ALGORITHM);
-            mac.init(hmacKey);
+            mac = borrowMac();
 
             // HMAC(encrypted + iv + timestamp)
             mac.update(encrypted);
@@ -121,9 +146,30 @@ public class AESService implements CryptoService {
         } catch (final Exception e) {
             log.error("Erro ao gerar HMAC", e);
             throw new CryptoException("Erro ao gerar HMAC", e);
+        } finally {
+            if (mac != null) {
+                mac.reset();
+                macs.offerFirst(mac);
+            }
         }
     }
 
+    private Cipher borrowCipher() throws GeneralSecurityException {
+        final var cipher = ciphers.pollFirst();
+        return cipher != null ? cipher : Cipher.getInstance(CIPHER_ALGORITHM);
+    }
+
+    private Mac borrowMac() throws GeneralSecurityException {
+        final var pooled = macs.pollFirst();
+        if (pooled != null) {
+            return pooled;
+        }
+
+        final var mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(hmacKey);
+        return mac;
+    }
+
     /**
      * Converte long para array de bytes
      */
@@ -0,0 +1,55 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import java.nio.ByteBuffer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+
+/**
+ * HKDF com HmacSHA256 (RFC 5869): extrai uma chave pseudoaleatória do segredo
+ * de entrada e a expande no número de bytes pedido
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class Hkdf {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int HASH_SIZE = 32;
+
+    public static byte[] derive(final byte[] salt, final byte[] secret, final byte[] info, final int length) {
+        return expand(extract(salt, secret), info, length);
+    }
+
+    @SneakyThrows
+    private static byte[] extract(final byte[] salt, final byte[] secret) {
+        final var mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec(salt == null || salt.length == 0 ? new byte[HASH_SIZE] : salt, ALGORITHM));
+        return mac.doFinal(secret);
+    }
+
+    @SneakyThrows
+    private static byte[] expand(final byte[] prk, final byte[] info, final int length) {
+        if (length <= 0 || length > 255 * HASH_SIZE) {
+            throw new IllegalArgumentException("Tamanho inválido para o HKDF: " + length);
+        }
+
+        final var mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec(prk, ALGORITHM));
+
+        final var output = ByteBuffer.allocate(length);
+        var block = new byte[0];
+        for (var counter = 1; output.hasRemaining(); counter++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            output.put(block, 0, Math.min(block.length, output.remaining()));
+        }
+
+        return output.array();
+    }
+
+}
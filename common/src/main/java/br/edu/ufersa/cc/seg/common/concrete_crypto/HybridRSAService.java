@@ -0,0 +1,173 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoException;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace.Counter;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import lombok.SneakyThrows;
+
+/**
+ * Criptografia assimétrica híbrida (envelope): cada mensagem é cifrada com
+ * AES/GCM sob uma chave de uso único, e só essa chave é cifrada com RSA.
+ * Assim não há limite de tamanho para a mensagem e o custo RSA é o mesmo
+ * para qualquer carga.
+ *
+ * <pre>
+ * conteúdo cifrado = [int tamanho][chave AES cifrada com RSA][conteúdo AES/GCM + tag]
+ * </pre>
+ *
+ * O IV e o timestamp (usado como AAD) vão nos campos da {@link SecureMessage}.
+ * Mensagens sem IV são de pares que ainda usam RSA puro e são decifradas pelo
+ * {@link RSAService}.
+ */
+public class HybridRSAService implements CryptoService {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private static final String WRAP_ALGORITHM = "RSA";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int AES_KEY_SIZE = 16;
+    private static final int IV_SIZE = 12;
+    private static final int TAG_SIZE = 128;
+
+    private final Key rsaKey;
+    private final RSAService legacyService;
+
+    private final Deque<Cipher> rsaCiphers = new ConcurrentLinkedDeque<>();
+    private final Deque<Cipher> aesCiphers = new ConcurrentLinkedDeque<>();
+
+    public HybridRSAService(final AsymmetricMode mode, final byte[] rsaKey) {
+        this.rsaKey = AsymmetricMode.PRIVATE.equals(mode)
+                ? RSAService.toPrivateKey(rsaKey, WRAP_ALGORITHM)
+                : RSAService.toPublicKey(rsaKey, WRAP_ALGORITHM);
+        this.legacyService = new RSAService(this.rsaKey);
+    }
+
+    public HybridRSAService(final AsymmetricMode mode, final String rsaKey) {
+        this(mode, Base64.getDecoder().decode(rsaKey));
+    }
+
+    @Override
+    @SneakyThrows
+    public SecureMessage encrypt(final byte[] message) {
+        CryptoTrace.trace("Criptografando mensagem (RSA híbrido)...", () -> message);
+
+        // Chave AES de uso único, cifrada com RSA
+        final var aesKey = new byte[AES_KEY_SIZE];
+        SECURE_RANDOM.nextBytes(aesKey);
+        final var wrappedKey = rsa(Cipher.ENCRYPT_MODE, aesKey);
+
+        // Conteúdo cifrado com AES/GCM, com o timestamp autenticado
+        final var iv = new byte[IV_SIZE];
+        SECURE_RANDOM.nextBytes(iv);
+        final var timestamp = System.currentTimeMillis();
+
+        final var cipher = borrow(aesCiphers, CIPHER_ALGORITHM);
+        final byte[] encrypted;
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(aesKey, "AES"), new GCMParameterSpec(TAG_SIZE, iv));
+            cipher.updateAAD(longToBytes(timestamp));
+            encrypted = cipher.doFinal(message);
+        } finally {
+            aesCiphers.offerFirst(cipher);
+        }
+
+        final var content = ByteBuffer.allocate(Integer.BYTES + wrappedKey.length + encrypted.length)
+                .putInt(wrappedKey.length)
+                .put(wrappedKey)
+                .put(encrypted)
+                .array();
+
+        final var secureMessage = SecureMessage.builder()
+                .encryptedContent(content)
+                .iv(iv)
+                .timestamp(timestamp)
+                .build();
+
+        CryptoTrace.trace("Mensagem criptografada (RSA híbrido):", () -> secureMessage);
+        CryptoTrace.increment(Counter.ENCRYPTED_MESSAGES);
+        CryptoTrace.count(Counter.BYTES_ENCRYPTED, message.length);
+
+        return secureMessage;
+    }
+
+    @Override
+    @SneakyThrows
+    public byte[] decrypt(final SecureMessage secureMessage) {
+        if (secureMessage.getIv() == null) {
+            return legacyService.decrypt(secureMessage);
+        }
+
+        CryptoTrace.trace("Descriptografando mensagem (RSA híbrido)...", () -> secureMessage);
+
+        final var content = ByteBuffer.wrap(secureMessage.getEncryptedContent());
+        final var wrappedLength = content.getInt();
+        if (wrappedLength <= 0 || wrappedLength > content.remaining()) {
+            throw new CryptoException("Chave cifrada com tamanho inválido: " + wrappedLength);
+        }
+
+        final var wrappedKey = new byte[wrappedLength];
+        content.get(wrappedKey);
+        final byte[] aesKey;
+        try {
+            aesKey = rsa(Cipher.DECRYPT_MODE, wrappedKey);
+        } catch (final GeneralSecurityException e) {
+            CryptoTrace.increment(Counter.INTEGRITY_FAILURES);
+            throw new CryptoException("Chave AES não pôde ser decifrada - mensagem para outra chave RSA?", e);
+        }
+
+        final var cipher = borrow(aesCiphers, CIPHER_ALGORITHM);
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(aesKey, "AES"),
+                    new GCMParameterSpec(TAG_SIZE, secureMessage.getIv()));
+            cipher.updateAAD(longToBytes(secureMessage.getTimestamp()));
+            final var original = cipher.doFinal(content.array(), content.position(), content.remaining());
+
+            CryptoTrace.trace("Mensagem descriptografada (RSA híbrido):", () -> original);
+            CryptoTrace.increment(Counter.DECRYPTED_MESSAGES);
+            CryptoTrace.count(Counter.BYTES_DECRYPTED, original.length);
+
+            return original;
+        } catch (final AEADBadTagException e) {
+            CryptoTrace.increment(Counter.INTEGRITY_FAILURES);
+            throw new CryptoException("Tag GCM inválida - mensagem pode ter sido adulterada", e);
+        } finally {
+            aesCiphers.offerFirst(cipher);
+        }
+    }
+
+    private byte[] rsa(final int mode, final byte[] input) throws GeneralSecurityException {
+        final var cipher = borrow(rsaCiphers, WRAP_ALGORITHM);
+        try {
+            cipher.init(mode, rsaKey);
+            return cipher.doFinal(input);
+        } finally {
+            rsaCiphers.offerFirst(cipher);
+        }
+    }
+
+    private static Cipher borrow(final Deque<Cipher> ciphers, final String algorithm)
+            throws GeneralSecurityException {
+        final var cipher = ciphers.pollFirst();
+        return cipher != null ? cipher : Cipher.getInstance(algorithm);
+    }
+
+    private static byte[] longToBytes(final long x) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(x).array();
+    }
+
+}
@@ -0,0 +1,121 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Estoque de pares de chaves RSA gerados em segundo plano.
+ * <p>
+ * Gerar um par de 2048 bits leva de dezenas a centenas de milissegundos, e os
+ * servidores RSA temporários dos handshakes precisam de um par novo cada. O
+ * estoque é reposto por um número limitado de threads daemon sempre que um
+ * par é retirado; se estiver vazio, o par é gerado na hora (uma falta).
+ * <p>
+ * Acertos, faltas, pares gerados e o tempo total de geração são contados em
+ * {@link CryptoTrace}.
+ */
+@Slf4j
+public class RSAKeyPool {
+
+    private static final long WAIT_STEP_MILLIS = 50;
+
+    private final int capacity;
+    private final BlockingQueue<KeyPair> pairs;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ExecutorService workers;
+    private final Supplier<KeyPair> generator;
+
+    public RSAKeyPool(final int capacity, final int workerCount, final Supplier<KeyPair> generator) {
+        this.capacity = Math.max(0, capacity);
+        this.pairs = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount),
+                Thread.ofPlatform().daemon().name("rsa-pool-", 0).factory());
+        this.generator = generator;
+    }
+
+    /**
+     * Retira um par do estoque. Se estiver vazio mas houver geração em
+     * andamento, espera por ela, que já tem vantagem sobre uma geração nova;
+     * senão, gera o par na hora.
+     */
+    public KeyPair take() {
+        var pair = pairs.poll();
+        refill();
+
+        if (pair != null) {
+            CryptoTrace.increment(Counter.RSA_POOL_HITS);
+            return pair;
+        }
+
+        CryptoTrace.increment(Counter.RSA_POOL_MISSES);
+        while (pair == null && pending.get() > 0) {
+            pair = awaitPending();
+        }
+
+        return pair != null ? pair : generate();
+    }
+
+    /**
+     * Começa a encher o estoque, para que os primeiros handshakes não esperem
+     */
+    public void warmUp() {
+        refill();
+    }
+
+    public int available() {
+        return pairs.size();
+    }
+
+    private KeyPair awaitPending() {
+        try {
+            return pairs.poll(WAIT_STEP_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return generate();
+        }
+    }
+
+    private void refill() {
+        while (true) {
+            final var current = pending.get();
+            if (pairs.size() + current >= capacity) {
+                return;
+            }
+
+            if (pending.compareAndSet(current, current + 1)) {
+                workers.execute(() -> {
+                    try {
+                        pairs.offer(generate());
+                    } catch (final RuntimeException e) {
+                        log.error("Erro ao gerar par RSA para o estoque", e);
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                });
+            }
+        }
+    }
+
+    private KeyPair generate() {
+        final var start = System.nanoTime();
+        final var pair = generator.get();
+        final var elapsed = System.nanoTime() - start;
+
+        CryptoTrace.increment(Counter.RSA_KEYS_GENERATED);
+        CryptoTrace.count(Counter.RSA_GENERATION_NANOS, elapsed);
+        log.debug("Par RSA gerado em {} ms", elapsed / 1_000_000);
+
+        return pair;
+    }
+
+}
@@ -10,16 +10,14 @@ import java.util.Base64;
 
 import javax.crypto.Cipher;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import br.edu.ufersa.cc.seg.common.crypto.CryptoException;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace.Counter;
 import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
-import lombok.extern.slf4j.Slf4j;
 
-@Slf4j
 @RequiredArgsConstructor
 public class RSAService implements CryptoService {
 
@@ -42,7 +40,7 @@ public class RSAService implements CryptoService {
     @Override
     @SneakyThrows
     public SecureMessage encrypt(final byte[] message) {
-        log.debug("Criptografando mensagem...\n{}", new String(message));
+        CryptoTrace.trace("Criptografando mensagem...", () -> message);
 
         // Cifrar a mensagem
         final var cipher = Cipher.getInstance(CIPHER_ALGORITHM);
@@ -58,8 +56,9 @@ public class RSAService implements CryptoService {
                 .timestamp(timestamp)
                 .build();
 
-        final var writer = new ObjectMapper().writerWithDefaultPrettyPrinter();
-        log.debug("Mensagem criptografada:\n{}", writer.writeValueAsString(secureMessage));
+        CryptoTrace.trace("Mensagem criptografada:", () -> secureMessage);
+        CryptoTrace.increment(Counter.ENCRYPTED_MESSAGES);
+        CryptoTrace.count(Counter.BYTES_ENCRYPTED, message.length);
 
         return secureMessage;
     }
@@ -67,18 +66,19 @@ public class RSAService implements CryptoService {
     @Override
     @SneakyThrows
     public byte[] decrypt(final SecureMessage secureMessage) {
-        final var writer = new ObjectMapper().writerWithDefaultPrettyPrinter();
-        log.debug("Descriptografando mensagem...\n{}", writer.writeValueAsString(secureMessage));
+        CryptoTrace.trace("Descriptografando mensagem...", () -> secureMessage);
 
         final var cipher = Cipher.getInstance(CIPHER_ALGORITHM);
         cipher.init(Cipher.DECRYPT_MODE, encryptionKey);
         final var original = cipher.doFinal(secureMessage.getEncryptedContent());
-        log.debug("Mensagem descriptografada:\n{}", new String(original));
+        CryptoTrace.trace("Mensagem descriptografada:", () -> original);
+        CryptoTrace.increment(Counter.DECRYPTED_MESSAGES);
+        CryptoTrace.count(Counter.BYTES_DECRYPTED, original.length);
 
         return original;
     }
 
-    private static PublicKey toPublicKey(final byte[] keyBytes, final String algorithm) {
+    static PublicKey toPublicKey(final byte[] keyBytes, final String algorithm) {
         try {
             final var spec = new X509EncodedKeySpec(keyBytes);
             final var kf = KeyFactory.getInstance(algorithm);
@@ -88,7 +88,7 @@ public class RSAService implements CryptoService {
         }
     }
 
-    private static PrivateKey toPrivateKey(final byte[] keyBytes, final String algorithm) {
+    static PrivateKey toPrivateKey(final byte[] keyBytes, final String algorithm) {
         try {
             final var spec = new PKCS8EncodedKeySpec(keyBytes);
             final var kf = KeyFactory.getInstance(algorithm);
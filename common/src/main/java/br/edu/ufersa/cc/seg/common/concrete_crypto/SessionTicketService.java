@@ -0,0 +1,159 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricKeys;
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
+import br.edu.ufersa.cc.seg.common.utils.SymmetricMode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Emite e abre tickets de retomada de sessão.
+ * <p>
+ * O ticket guarda o modo e as chaves simétricas de uma sessão, além do
+ * instante em que expira, cifrados com AES/GCM sob uma chave que só existe na
+ * memória deste servidor. Para o cliente ele é opaco: basta devolvê-lo para
+ * reabrir a sessão sem um novo handshake RSA. Reiniciar o servidor invalida
+ * todos os tickets emitidos.
+ * <p>
+ * Cada ticket reabre uma única sessão: ao ser resgatado por
+ * {@link #redeem(String)}, ele fica registrado até expirar, e repetições do
+ * mesmo datagrama de retomada são recusadas. A resposta da retomada traz um
+ * ticket novo para a próxima vez.
+ *
+ * <pre>
+ * ticket = base64url([iv 12][timestamp 8][conteúdo cifrado + tag])
+ * conteúdo = [modo 1][expira em 8][int tamanho][chave AES][int tamanho][chave HMAC]
+ * </pre>
+ */
+@Slf4j
+public class SessionTicketService {
+
+    public static final String TTL_VARIABLE = "SESSION_TICKET_TTL";
+
+    private static final Duration DEFAULT_TTL = Duration.ofHours(1);
+    private static final int IV_SIZE = 12;
+    private static final int NO_KEY = -1;
+
+    private static final long PURGE_INTERVAL = 1_000;
+
+    private final CryptoService sealer = new AESGCMService(CryptoServiceFactory.generateAESKey());
+    private final Duration ttl;
+
+    // Tickets já resgatados e até quando guardá-los (nenhum vale mais que ttl
+    // a partir do resgate)
+    private final Map<String, Long> redeemed = new ConcurrentHashMap<>();
+    private volatile long lastPurge;
+
+    /**
+     * Validade lida da variável de ambiente {@code SESSION_TICKET_TTL}, em
+     * segundos (padrão: 1 hora)
+     */
+    public SessionTicketService() {
+        this(Optional.ofNullable(System.getenv(TTL_VARIABLE))
+                .map(Long::parseLong)
+                .map(Duration::ofSeconds)
+                .orElse(DEFAULT_TTL));
+    }
+
+    public SessionTicketService(final Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public String issue(final SymmetricKeys keys) {
+        final var encryptionKey = keys.getEncryptionKey().getEncoded();
+        final var hmacKey = keys.getHmacKey() == null ? null : keys.getHmacKey().getEncoded();
+
+        final var content = ByteBuffer.allocate(1 + Long.BYTES
+                + Integer.BYTES + encryptionKey.length
+                + Integer.BYTES + (hmacKey == null ? 0 : hmacKey.length))
+                .put((byte) keys.getMode().ordinal())
+                .putLong(System.currentTimeMillis() + ttl.toMillis())
+                .putInt(encryptionKey.length)
+                .put(encryptionKey);
+        if (hmacKey == null) {
+            content.putInt(NO_KEY);
+        } else {
+            content.putInt(hmacKey.length).put(hmacKey);
+        }
+
+        final var sealed = sealer.encrypt(content.array());
+        final var ticket = ByteBuffer.allocate(IV_SIZE + Long.BYTES + sealed.getEncryptedContent().length)
+                .put(sealed.getIv())
+                .putLong(sealed.getTimestamp())
+                .put(sealed.getEncryptedContent());
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ticket.array());
+    }
+
+    /**
+     * Abre um ticket emitido por este servidor. Tickets adulterados, de outro
+     * servidor ou expirados resultam em vazio.
+     */
+    public Optional<SymmetricKeys> open(final String ticket) {
+        try {
+            final var sealed = ByteBuffer.wrap(Base64.getUrlDecoder().decode(ticket));
+            final var iv = new byte[IV_SIZE];
+            sealed.get(iv);
+            final var timestamp = sealed.getLong();
+            final var encrypted = new byte[sealed.remaining()];
+            sealed.get(encrypted);
+
+            final var content = ByteBuffer.wrap(sealer.decrypt(SecureMessage.builder()
+                    .iv(iv)
+                    .timestamp(timestamp)
+                    .encryptedContent(encrypted)
+                    .build()));
+
+            final var mode = SymmetricMode.values()[content.get()];
+            final var expiresAt = content.getLong();
+            if (System.currentTimeMillis() > expiresAt) {
+                log.info("Ticket de sessão expirado");
+                return Optional.empty();
+            }
+
+            final var encryptionKey = readKey(content);
+            final var hmacKey = readKey(content);
+            return Optional.of(CryptoServiceFactory.symmetricKeys(mode, encryptionKey, hmacKey));
+        } catch (final RuntimeException e) {
+            log.debug("Ticket de sessão inválido", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Marca um ticket como usado. Retorna {@code false} se ele já tinha sido
+     * resgatado antes, caso em que a retomada deve ser recusada.
+     */
+    public boolean redeem(final String ticket) {
+        final var now = System.currentTimeMillis();
+        if (now - lastPurge > PURGE_INTERVAL) {
+            lastPurge = now;
+            redeemed.values().removeIf(keepUntil -> keepUntil < now);
+        }
+
+        return redeemed.putIfAbsent(ticket, now + ttl.toMillis()) == null;
+    }
+
+    private static SecretKey readKey(final ByteBuffer content) {
+        final var length = content.getInt();
+        if (length == NO_KEY) {
+            return null;
+        }
+
+        final var key = new byte[length];
+        content.get(key);
+        return new SecretKeySpec(key, "AES");
+    }
+
+}
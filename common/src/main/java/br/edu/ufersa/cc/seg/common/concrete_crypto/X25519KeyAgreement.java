@@ -0,0 +1,47 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.X509EncodedKeySpec;
+
+import javax.crypto.KeyAgreement;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+
+/**
+ * Acordo de chaves ECDH sobre a curva X25519. Cada lado gera um par efêmero,
+ * troca apenas a chave pública e deriva o mesmo material com o {@link Hkdf},
+ * de modo que as chaves simétricas nunca trafegam na rede.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class X25519KeyAgreement {
+
+    private static final String ALGORITHM = "X25519";
+
+    @SneakyThrows
+    public static KeyPair generateKeyPair() {
+        return KeyPairGenerator.getInstance(ALGORITHM).generateKeyPair();
+    }
+
+    /**
+     * Calcula o segredo compartilhado com a chave pública do outro lado (no
+     * formato X.509) e o expande com o HKDF
+     */
+    @SneakyThrows
+    public static byte[] derive(final PrivateKey ownKey, final byte[] peerPublicKey, final byte[] salt,
+            final byte[] info, final int length) {
+        final var peerKey = KeyFactory.getInstance(ALGORITHM)
+                .generatePublic(new X509EncodedKeySpec(peerPublicKey));
+
+        final var agreement = KeyAgreement.getInstance(ALGORITHM);
+        agreement.init(ownKey);
+        agreement.doPhase(peerKey, true);
+
+        return Hkdf.derive(salt, agreement.generateSecret(), info, length);
+    }
+
+}
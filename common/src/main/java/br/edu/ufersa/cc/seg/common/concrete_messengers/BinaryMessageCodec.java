@@ -0,0 +1,436 @@
+package br.edu.ufersa.cc.seg.common.concrete_messengers;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.messengers.MessageCodec;
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+
+/**
+ * Codificação binária compacta das mensagens:
+ *
+ * <pre>
+ * [byte MAGIC] [varint código do tipo, ou 0 sem tipo] [byte layout | CORRELATED?]
+ * [se CORRELATED: varint correlationId]
+ * [se layout = SNAPSHOT: double × Element.values().length, pela ordem dos elementos]
+ * [se layout = SNAPSHOT_BATCH: varint leituras, ([string timestamp] [double × Element.values().length])*]
+ * [se layout = IDENTIFIED_BATCH: como SNAPSHOT_BATCH, com [string readingId] depois de cada timestamp]
+ * [varint quantidade de campos] ([string chave] [valor])*
+ * </pre>
+ *
+ * Cada valor começa com uma etiqueta de um byte e usa varints (zigzag para
+ * inteiros). As leituras ({@code SEND_SNAPSHOT}/{@code STORE_SNAPSHOT}) que
+ * trazem todos os elementos guardam os valores num vetor fixo de
+ * {@code double}, sem repetir o nome de cada elemento; nos lotes
+ * ({@code SEND_SNAPSHOT_BATCH}/{@code STORE_SNAPSHOT_BATCH}), cada leitura de
+ * {@code readings} vira o seu instante (e o seu identificador, se todas o
+ * tiverem) seguido do mesmo vetor.
+ * <p>
+ * Os tipos entregues na decodificação são os mesmos que o JSON entregaria:
+ * {@code byte[]} chega como texto em base64, enums como o seu nome,
+ * {@code BigDecimal} como {@code Double} e objetos como {@code Map}.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    /** Primeiro byte de toda mensagem binária (nunca é o início de um JSON) */
+    public static final byte MAGIC = (byte) 0xB1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Element[] ELEMENTS = Element.values();
+
+    private static final byte LAYOUT_GENERIC = 0;
+    private static final byte LAYOUT_SNAPSHOT = 1;
+    private static final byte LAYOUT_SNAPSHOT_BATCH = 2;
+    private static final byte LAYOUT_IDENTIFIED_BATCH = 3;
+    private static final byte LAYOUT_MASK = 0x0F;
+    private static final byte CORRELATED = 0x10;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_DOUBLE = 5;
+    private static final byte TAG_STRING = 6;
+    private static final byte TAG_BYTES = 7;
+    private static final byte TAG_LIST = 8;
+    private static final byte TAG_MAP = 9;
+
+    @Override
+    public byte[] encode(final Message message) {
+        final var out = new Output();
+        final var values = message.getValues();
+        final var type = message.getType();
+
+        out.writeByte(MAGIC);
+        out.writeVarInt(type == null ? 0 : type.getCode());
+
+        final var correlationId = message.getCorrelationId();
+        final var correlated = correlationId == null ? 0 : CORRELATED;
+        final var batchLayout = batchLayout(type, values);
+
+        if (isFullSnapshot(type, values)) {
+            out.writeByte((byte) (LAYOUT_SNAPSHOT | correlated));
+            writeCorrelationId(out, correlationId);
+            for (final var element : ELEMENTS) {
+                out.writeDouble(((Number) values.get(element.name())).doubleValue());
+            }
+
+            out.writeVarInt(values.size() - ELEMENTS.length);
+            values.forEach((key, value) -> {
+                if (!isElementKey(key)) {
+                    out.writeString(key);
+                    writeValue(out, value);
+                }
+            });
+        } else if (batchLayout != LAYOUT_GENERIC) {
+            out.writeByte((byte) (batchLayout | correlated));
+            writeCorrelationId(out, correlationId);
+
+            final List<?> readings = (List<?>) values.get(Fields.READINGS);
+            out.writeVarInt(readings.size());
+            for (final var item : readings) {
+                final var reading = (Map<?, ?>) item;
+                out.writeString((String) reading.get(Fields.TIMESTAMP));
+                if (batchLayout == LAYOUT_IDENTIFIED_BATCH) {
+                    out.writeString((String) reading.get(Fields.READING_ID));
+                }
+                for (final var element : ELEMENTS) {
+                    out.writeDouble(((Number) reading.get(element.name())).doubleValue());
+                }
+            }
+
+            out.writeVarInt(values.size() - 1);
+            values.forEach((key, value) -> {
+                if (!Fields.READINGS.equals(key)) {
+                    out.writeString(key);
+                    writeValue(out, value);
+                }
+            });
+        } else {
+            out.writeByte((byte) (LAYOUT_GENERIC | correlated));
+            writeCorrelationId(out, correlationId);
+            out.writeVarInt(values.size());
+            values.forEach((key, value) -> {
+                out.writeString(key);
+                writeValue(out, value);
+            });
+        }
+
+        return out.toByteArray();
+    }
+
+    @Override
+    public Message decode(final byte[] bytes) {
+        final var in = ByteBuffer.wrap(bytes);
+        if (in.get() != MAGIC) {
+            throw new IllegalArgumentException("Mensagem não está no formato binário");
+        }
+
+        final var typeCode = readVarInt(in);
+        final var message = new Message(typeCode == 0 ? null : MessageType.fromCode(typeCode));
+        final var values = message.getValues();
+
+        final var layout = in.get();
+        if ((layout & CORRELATED) != 0) {
+            message.setCorrelationId(readVarLong(in));
+        }
+
+        if ((layout & LAYOUT_MASK) == LAYOUT_SNAPSHOT) {
+            for (final var element : ELEMENTS) {
+                values.put(element.name(), in.getDouble());
+            }
+        } else if ((layout & LAYOUT_MASK) == LAYOUT_SNAPSHOT_BATCH
+                || (layout & LAYOUT_MASK) == LAYOUT_IDENTIFIED_BATCH) {
+            final var identified = (layout & LAYOUT_MASK) == LAYOUT_IDENTIFIED_BATCH;
+            final var size = readVarInt(in);
+            final List<Map<String, Object>> readings = new ArrayList<>(size);
+            for (var i = 0; i < size; i++) {
+                final Map<String, Object> reading = new LinkedHashMap<>();
+                reading.put(Fields.TIMESTAMP, readString(in));
+                if (identified) {
+                    reading.put(Fields.READING_ID, readString(in));
+                }
+                for (final var element : ELEMENTS) {
+                    reading.put(element.name(), in.getDouble());
+                }
+                readings.add(reading);
+            }
+            values.put(Fields.READINGS, readings);
+        }
+
+        final var count = readVarInt(in);
+        for (var i = 0; i < count; i++) {
+            final var key = readString(in);
+            values.put(key, readValue(in));
+        }
+
+        return message;
+    }
+
+    private static void writeCorrelationId(final Output out, final Long correlationId) {
+        if (correlationId != null) {
+            out.writeVarLong(correlationId);
+        }
+    }
+
+    private static boolean isFullSnapshot(final MessageType type, final Map<String, Object> values) {
+        if (!MessageType.SEND_SNAPSHOT.equals(type) && !MessageType.STORE_SNAPSHOT.equals(type)) {
+            return false;
+        }
+
+        for (final var element : ELEMENTS) {
+            if (!(values.get(element.name()) instanceof Number)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Layout de lote que representa a mensagem sem perder nem inventar
+     * campos, ou {@link #LAYOUT_GENERIC} se nenhum servir
+     */
+    private static byte batchLayout(final MessageType type, final Map<String, Object> values) {
+        if (!MessageType.SEND_SNAPSHOT_BATCH.equals(type) && !MessageType.STORE_SNAPSHOT_BATCH.equals(type)
+                || !(values.get(Fields.READINGS) instanceof List<?> readings)) {
+            return LAYOUT_GENERIC;
+        }
+
+        // Só leituras com exatamente o instante e todos os elementos e, ou
+        // todas ou nenhuma, o identificador
+        final var identified = !readings.isEmpty()
+                && readings.getFirst() instanceof Map<?, ?> first && first.containsKey(Fields.READING_ID);
+        final var keys = ELEMENTS.length + (identified ? 2 : 1);
+        for (final var item : readings) {
+            if (!(item instanceof Map<?, ?> reading)
+                    || reading.size() != keys
+                    || !(reading.get(Fields.TIMESTAMP) instanceof String)
+                    || identified && !(reading.get(Fields.READING_ID) instanceof String)) {
+                return LAYOUT_GENERIC;
+            }
+            for (final var element : ELEMENTS) {
+                if (!(reading.get(element.name()) instanceof Number)) {
+                    return LAYOUT_GENERIC;
+                }
+            }
+        }
+
+        return identified ? LAYOUT_IDENTIFIED_BATCH : LAYOUT_SNAPSHOT_BATCH;
+    }
+
+    private static boolean isElementKey(final String key) {
+        for (final var element : ELEMENTS) {
+            if (element.name().equals(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void writeValue(final Output out, final Object value) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_INT);
+            out.writeVarLong(zigzag(((Number) value).longValue()));
+        } else if (value instanceof Long || value instanceof BigInteger) {
+            writeLong(out, ((Number) value).longValue());
+        } else if (value instanceof Number number) {
+            // Double, Float e BigDecimal chegam como Double, assim como no JSON
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(number.doubleValue());
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            out.writeByte(TAG_STRING);
+            out.writeString(value.toString());
+        } else if (value instanceof Enum<?> enumValue) {
+            out.writeByte(TAG_STRING);
+            out.writeString(enumValue.name());
+        } else if (value instanceof byte[] bytes) {
+            out.writeByte(TAG_BYTES);
+            out.writeVarInt(bytes.length);
+            out.writeBytes(bytes);
+        } else if (value instanceof Collection<?> collection) {
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(collection.size());
+            collection.forEach(item -> writeValue(out, item));
+        } else if (value instanceof Object[] array) {
+            writeValue(out, Arrays.asList(array));
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_MAP);
+            out.writeVarInt(map.size());
+            map.forEach((key, item) -> {
+                out.writeString(String.valueOf(key));
+                writeValue(out, item);
+            });
+        } else {
+            // Objetos (DTOs etc.) seguem a mesma representação do Jackson
+            writeValue(out, MAPPER.convertValue(value, Object.class));
+        }
+    }
+
+    private static void writeLong(final Output out, final long value) {
+        // O Jackson devolve Integer sempre que o número cabe num int
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            out.writeByte(TAG_INT);
+        } else {
+            out.writeByte(TAG_LONG);
+        }
+        out.writeVarLong(zigzag(value));
+    }
+
+    private static Object readValue(final ByteBuffer in) {
+        final var tag = in.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return false;
+            case TAG_TRUE:
+                return true;
+            case TAG_INT:
+                return (int) unzigzag(readVarLong(in));
+            case TAG_LONG:
+                return unzigzag(readVarLong(in));
+            case TAG_DOUBLE:
+                return in.getDouble();
+            case TAG_STRING:
+                return readString(in);
+            case TAG_BYTES: {
+                final var bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                return Base64.getEncoder().encodeToString(bytes);
+            }
+            case TAG_LIST: {
+                final var size = readVarInt(in);
+                final List<Object> list = new ArrayList<>(size);
+                for (var i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                final var size = readVarInt(in);
+                final Map<String, Object> map = new LinkedHashMap<>();
+                for (var i = 0; i < size; i++) {
+                    final var key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            default:
+                throw new IllegalArgumentException("Etiqueta de valor desconhecida: " + tag);
+        }
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final var length = readVarInt(in);
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("Texto com tamanho inválido: " + length);
+        }
+
+        final var string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return string;
+    }
+
+    private static int readVarInt(final ByteBuffer in) {
+        final var value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Varint fora do intervalo: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarLong(final ByteBuffer in) {
+        long value = 0;
+        for (var shift = 0; shift < 64; shift += 7) {
+            final var b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint malformado");
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Buffer de escrita que cresce conforme a necessidade
+     */
+    private static class Output {
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        private void ensure(final int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private void writeByte(final byte value) {
+            ensure(1);
+            buffer[size++] = value;
+        }
+
+        private void writeBytes(final byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void writeVarInt(final int value) {
+            writeVarLong(value);
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeDouble(final double value) {
+            ensure(Double.BYTES);
+            ByteBuffer.wrap(buffer, size, Double.BYTES).putDouble(value);
+            size += Double.BYTES;
+        }
+
+        private void writeString(final String value) {
+            final var bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+}
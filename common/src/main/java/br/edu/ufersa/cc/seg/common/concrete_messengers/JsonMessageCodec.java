@@ -0,0 +1,29 @@
+package br.edu.ufersa.cc.seg.common.concrete_messengers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.messengers.MessageCodec;
+import lombok.SneakyThrows;
+
+/**
+ * Codificação em JSON via Jackson. Mais verbosa, porém legível, útil para
+ * depuração.
+ */
+public class JsonMessageCodec implements MessageCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    @SneakyThrows
+    public byte[] encode(final Message message) {
+        return MAPPER.writeValueAsBytes(message);
+    }
+
+    @Override
+    @SneakyThrows
+    public Message decode(final byte[] bytes) {
+        return MAPPER.readValue(bytes, Message.class);
+    }
+
+}
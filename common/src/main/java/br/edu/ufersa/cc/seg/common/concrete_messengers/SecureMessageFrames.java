@@ -0,0 +1,188 @@
+package br.edu.ufersa.cc.seg.common.concrete_messengers;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.utils.BufferPool;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Codificação das mensagens seguras em quadros com prefixo de tamanho, usada
+ * pelos mensageiros TCP que não utilizam a serialização nativa do Java, e em
+ * envelopes sem prefixo, usados como conteúdo dos datagramas UDP.
+ * <p>
+ * No formato {@link WireFormat#BINARY}, o envelope é:
+ *
+ * <pre>
+ * [int tamanho][iv] [int tamanho][hmac] [long timestamp]
+ * [int tamanho][sessionId UTF-8] [int tamanho][conteúdo cifrado]
+ * </pre>
+ *
+ * onde o tamanho {@code -1} representa um campo nulo.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+abstract class SecureMessageFrames {
+
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * Gera o quadro completo (tamanho + conteúdo), pronto para ser escrito no
+     * canal. O buffer vem do {@link BufferPool#SHARED} e deve ser devolvido
+     * depois de escrito.
+     */
+    static ByteBuffer toFrame(final SecureMessage secureMessage, final WireFormat wireFormat) {
+        if (WireFormat.BINARY.equals(wireFormat)) {
+            final var sessionId = sessionIdBytes(secureMessage);
+            final var size = binarySize(secureMessage, sessionId);
+
+            final var frame = BufferPool.SHARED.acquire(Integer.BYTES + size);
+            frame.putInt(size);
+            writeBinary(frame, secureMessage, sessionId);
+            return frame.flip();
+        }
+
+        if (WireFormat.JSON.equals(wireFormat)) {
+            final var payload = secureMessage.toBytes();
+            final var frame = BufferPool.SHARED.acquire(Integer.BYTES + payload.length);
+            return frame.putInt(payload.length).put(payload).flip();
+        }
+
+        throw new IllegalArgumentException("Formato sem suporte a quadros: " + wireFormat);
+    }
+
+    /**
+     * Gera apenas o envelope da mensagem, sem prefixo de tamanho. O buffer vem
+     * do {@link BufferPool#SHARED} e deve ser devolvido depois de enviado.
+     */
+    static ByteBuffer toEnvelope(final SecureMessage secureMessage, final WireFormat wireFormat) {
+        if (WireFormat.BINARY.equals(wireFormat)) {
+            final var sessionId = sessionIdBytes(secureMessage);
+            final var envelope = BufferPool.SHARED.acquire(binarySize(secureMessage, sessionId));
+            writeBinary(envelope, secureMessage, sessionId);
+            return envelope.flip();
+        }
+
+        if (WireFormat.JSON.equals(wireFormat)) {
+            final var payload = secureMessage.toBytes();
+            return BufferPool.SHARED.acquire(payload.length).put(payload).flip();
+        }
+
+        throw new IllegalArgumentException("Formato sem suporte a envelopes: " + wireFormat);
+    }
+
+    /**
+     * Decodifica o conteúdo de um quadro (já sem o prefixo de tamanho) ou um
+     * envelope
+     */
+    static SecureMessage decode(final ByteBuffer payload, final WireFormat wireFormat) {
+        if (WireFormat.BINARY.equals(wireFormat)) {
+            return readBinary(payload);
+        }
+
+        if (WireFormat.JSON.equals(wireFormat)) {
+            final var bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            return SecureMessage.fromBytes(bytes);
+        }
+
+        throw new IllegalArgumentException("Formato sem suporte a quadros: " + wireFormat);
+    }
+
+    static void write(final DataOutputStream out, final SecureMessage secureMessage, final WireFormat wireFormat)
+            throws IOException {
+        final var frame = toFrame(secureMessage, wireFormat);
+        try {
+            out.write(frame.array(), frame.arrayOffset(), frame.limit());
+        } finally {
+            BufferPool.SHARED.release(frame);
+        }
+    }
+
+    static SecureMessage read(final DataInputStream in, final WireFormat wireFormat) throws IOException {
+        final var length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Tamanho de quadro inválido: " + length);
+        }
+
+        final var payload = BufferPool.SHARED.acquire(length);
+        try {
+            in.readFully(payload.array(), payload.arrayOffset(), length);
+            return decode(payload.limit(length), wireFormat);
+        } finally {
+            BufferPool.SHARED.release(payload);
+        }
+    }
+
+    private static byte[] sessionIdBytes(final SecureMessage secureMessage) {
+        final var sessionId = secureMessage.getSessionId();
+        return sessionId == null ? null : sessionId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int binarySize(final SecureMessage secureMessage, final byte[] sessionId) {
+        return fieldSize(secureMessage.getIv())
+                + fieldSize(secureMessage.getHmac())
+                + Long.BYTES
+                + fieldSize(sessionId)
+                + fieldSize(secureMessage.getEncryptedContent());
+    }
+
+    private static int fieldSize(final byte[] field) {
+        return Integer.BYTES + (field == null ? 0 : field.length);
+    }
+
+    private static void writeBinary(final ByteBuffer buffer, final SecureMessage secureMessage,
+            final byte[] sessionId) {
+        writeField(buffer, secureMessage.getIv());
+        writeField(buffer, secureMessage.getHmac());
+        buffer.putLong(secureMessage.getTimestamp());
+        writeField(buffer, sessionId);
+        writeField(buffer, secureMessage.getEncryptedContent());
+    }
+
+    private static void writeField(final ByteBuffer buffer, final byte[] field) {
+        if (field == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(field.length).put(field);
+        }
+    }
+
+    private static SecureMessage readBinary(final ByteBuffer buffer) {
+        final var iv = readField(buffer);
+        final var hmac = readField(buffer);
+        final var timestamp = buffer.getLong();
+        final var sessionId = readField(buffer);
+        final var encryptedContent = readField(buffer);
+
+        return SecureMessage.builder()
+                .iv(iv)
+                .hmac(hmac)
+                .timestamp(timestamp)
+                .sessionId(sessionId == null ? null : new String(sessionId, StandardCharsets.UTF_8))
+                .encryptedContent(encryptedContent)
+                .build();
+    }
+
+    private static byte[] readField(final ByteBuffer buffer) {
+        final var length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Campo com tamanho inválido no envelope: " + length);
+        }
+
+        final var field = new byte[length];
+        buffer.get(field);
+        return field;
+    }
+
+}
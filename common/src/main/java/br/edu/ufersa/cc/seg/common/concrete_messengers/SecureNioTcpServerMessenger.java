@@ -0,0 +1,474 @@
+package br.edu.ufersa.cc.seg.common.concrete_messengers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.factories.ExecutorFactory;
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.utils.BufferPool;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servidor TCP seguro baseado em {@link Selector}: um pequeno conjunto de
+ * reatores atende todas as conexões de forma não bloqueante, em vez de manter
+ * uma thread bloqueada em {@code receive()} por cliente.
+ * <p>
+ * As mensagens trafegam em quadros com prefixo de tamanho, portanto os
+ * clientes devem usar um {@link SecureTcpMessenger} com o mesmo
+ * {@link WireFormat}.
+ * <p>
+ * Quem abre um servidor por cliente, como o gateway, pode usar
+ * {@link #onSharedReactors(CryptoService)}: todos esses servidores dividem os
+ * mesmos reatores do processo, e cada um deixa de custar uma thread.
+ */
+@Slf4j
+public class SecureNioTcpServerMessenger implements ServerMessenger {
+
+    public static final int BACKLOG = 1024;
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    private static Reactor[] sharedReactors;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextReactor = new AtomicInteger();
+
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public class Subscription implements Closeable {
+        private final Function<Message, Message> callback;
+
+        private AtomicBoolean isRunning = new AtomicBoolean(false);
+
+        private void start() {
+            isRunning.set(true);
+
+            for (final var reactor : reactors) {
+                reactor.start();
+            }
+
+            reactors[0].execute(() -> {
+                try {
+                    serverChannel.register(reactors[0].selector, SelectionKey.OP_ACCEPT,
+                            SecureNioTcpServerMessenger.this);
+                    log.info("Aguardando clientes na porta {}...", getPort());
+                } catch (final IOException e) {
+                    log.error("Não foi possível registrar o servidor no seletor", e);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            if (isRunning.compareAndSet(true, false) && ownsReactors) {
+                for (final var reactor : reactors) {
+                    reactor.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Laço de eventos: uma thread, um seletor e uma fila de tarefas que precisam
+     * ser executadas na própria thread do seletor (registro de canais e mudança
+     * de interesses). Pode atender conexões de mais de um servidor.
+     */
+    private static class Reactor implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean started = new AtomicBoolean(false);
+
+        private volatile boolean running = true;
+
+        private Reactor() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        private void start() {
+            if (started.compareAndSet(false, true)) {
+                ExecutorFactory.listeners().execute(this);
+            }
+        }
+
+        private void execute(final Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    runTasks();
+
+                    final var keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        final var key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                } catch (final ClosedSelectorException e) {
+                    running = false;
+                } catch (final IOException e) {
+                    log.error("Erro no laço do seletor", e);
+                }
+            }
+
+            log.info("Parando leitura...");
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        private void handle(final SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+
+            if (key.isAcceptable()) {
+                ((SecureNioTcpServerMessenger) key.attachment()).accept();
+                return;
+            }
+
+            final var connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (final IOException e) {
+                log.info("Conexão encerrada por {}", connection.remoteAddress);
+                connection.close();
+            }
+        }
+
+        private void close() {
+            running = false;
+            try {
+                selector.close();
+            } catch (final IOException ignore) {
+                // Ignorar
+            }
+        }
+    }
+
+    /**
+     * Estado de uma conexão: buffer de leitura para remontar quadros, fila de
+     * escrita drenada pelo reator e a cadeia que garante que as requisições de
+     * um mesmo cliente sejam respondidas na ordem em que chegaram (exceto as
+     * que trazem {@code correlationId}, que são atendidas em paralelo).
+     */
+    private class Connection {
+        private final Reactor reactor;
+        private final SocketChannel channel;
+        private final String remoteAddress;
+        private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        private Connection(final Reactor reactor, final SocketChannel channel) throws IOException {
+            this.reactor = reactor;
+            this.channel = channel;
+            this.remoteAddress = String.valueOf(channel.getRemoteAddress());
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                throw new IOException("Fim do fluxo");
+            }
+
+            readBuffer.flip();
+            while (readBuffer.remaining() >= Integer.BYTES) {
+                final var length = readBuffer.getInt(readBuffer.position());
+                if (length < 0 || length > SecureMessageFrames.MAX_FRAME_SIZE) {
+                    throw new IOException("Tamanho de quadro inválido: " + length);
+                }
+
+                if (readBuffer.remaining() < Integer.BYTES + length) {
+                    if (readBuffer.capacity() < Integer.BYTES + length) {
+                        final var bigger = ByteBuffer.allocate(Integer.BYTES + length);
+                        bigger.put(readBuffer);
+                        readBuffer = bigger;
+                        return;
+                    }
+                    break;
+                }
+
+                readBuffer.getInt();
+                final var payload = readBuffer.slice(readBuffer.position(), length);
+                readBuffer.position(readBuffer.position() + length);
+                dispatch(decode(payload));
+            }
+            readBuffer.compact();
+        }
+
+        private SecureMessage decode(final ByteBuffer payload) throws IOException {
+            try {
+                return SecureMessageFrames.decode(payload, wireFormat);
+            } catch (final RuntimeException e) {
+                throw new IOException("Quadro inválido", e);
+            }
+        }
+
+        private void dispatch(final SecureMessage secureMessage) {
+            tail = tail.thenRunAsync(() -> handleFrame(secureMessage), workers);
+        }
+
+        private void handleFrame(final SecureMessage secureMessage) {
+            try {
+                final var request = Message.fromBytes(cryptoService.decrypt(secureMessage));
+                log.info("Recebida mensagem do tipo {} de {}", request.getType(), remoteAddress);
+
+                // Com correlationId, o cliente aceita respostas fora de ordem
+                if (request.getCorrelationId() != null) {
+                    workers.execute(() -> respond(request));
+                } else {
+                    respond(request);
+                }
+            } catch (final RuntimeException e) {
+                log.error("Erro ao processar mensagem de {}", remoteAddress, e);
+                close();
+            }
+        }
+
+        private void respond(final Message request) {
+            try {
+                final var response = subscription.callback.apply(request);
+                if (response != null) {
+                    send(response.correlateWith(request));
+                }
+            } catch (final RuntimeException e) {
+                log.error("Erro ao processar mensagem de {}", remoteAddress, e);
+                close();
+            }
+        }
+
+        private void send(final Message message) {
+            final var secureMessage = cryptoService.encrypt(message.toBytes());
+            writeQueue.add(SecureMessageFrames.toFrame(secureMessage, wireFormat));
+            if (!channel.isOpen()) {
+                // Fechada enquanto a resposta era preparada: ninguém vai escrevê-la
+                releasePending();
+                return;
+            }
+            reactor.execute(() -> {
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            });
+
+            log.info("Enviando mensagem do tipo {} para {}", message.getType(), remoteAddress);
+        }
+
+        private void flush() throws IOException {
+            ByteBuffer frame;
+            while ((frame = writeQueue.peek()) != null) {
+                channel.write(frame);
+                if (frame.hasRemaining()) {
+                    return;
+                }
+                // Se a conexão foi fechada no meio, o quadro já foi devolvido
+                if (writeQueue.poll() == frame) {
+                    BufferPool.SHARED.release(frame);
+                }
+            }
+
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void close() {
+            connections.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (final IOException ignore) {
+                // Ignorar
+            }
+            // O socket só é liberado quando o seletor processa o cancelamento
+            reactor.selector.wakeup();
+            releasePending();
+        }
+
+        /**
+         * Devolve ao pool os quadros que não chegaram a ser escritos
+         */
+        private void releasePending() {
+            ByteBuffer frame;
+            while ((frame = writeQueue.poll()) != null) {
+                BufferPool.SHARED.release(frame);
+            }
+        }
+    }
+
+    private final ServerSocketChannel serverChannel;
+    private final CryptoService cryptoService;
+    private final WireFormat wireFormat;
+    private final Reactor[] reactors;
+    private final boolean ownsReactors;
+    private final ExecutorService workers = ExecutorFactory.sessions();
+
+    private volatile Subscription subscription;
+
+    public SecureNioTcpServerMessenger(final CryptoService cryptoService) throws IOException {
+        this(0, cryptoService);
+    }
+
+    public SecureNioTcpServerMessenger(final int port, final CryptoService cryptoService) throws IOException {
+        this(ServerSocketChannel.open().bind(new InetSocketAddress(port), BACKLOG), cryptoService,
+                SecureTcpMessenger.DEFAULT_WIRE_FORMAT);
+    }
+
+    public SecureNioTcpServerMessenger(final ServerSocketChannel channel, final CryptoService cryptoService,
+            final WireFormat wireFormat) throws IOException {
+        this(channel, cryptoService, wireFormat, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SecureNioTcpServerMessenger(final ServerSocketChannel channel, final CryptoService cryptoService,
+            final WireFormat wireFormat, final int reactorCount) throws IOException {
+        this(channel, cryptoService, wireFormat, newReactors(reactorCount), true);
+    }
+
+    private SecureNioTcpServerMessenger(final ServerSocketChannel channel, final CryptoService cryptoService,
+            final WireFormat wireFormat, final Reactor[] reactors, final boolean ownsReactors) throws IOException {
+        if (WireFormat.JAVA_SERIALIZATION.equals(wireFormat)) {
+            throw new IllegalArgumentException("O servidor NIO exige um formato com quadros");
+        }
+
+        this.serverChannel = channel;
+        this.cryptoService = cryptoService;
+        this.wireFormat = wireFormat;
+
+        this.reactors = reactors;
+        this.ownsReactors = ownsReactors;
+
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Servidor numa porta livre atendido pelos reatores compartilhados do
+     * processo, que nunca param. Fechar o servidor encerra apenas a porta e as
+     * suas conexões.
+     */
+    public static SecureNioTcpServerMessenger onSharedReactors(final CryptoService cryptoService)
+            throws IOException {
+        final var channel = ServerSocketChannel.open().bind(new InetSocketAddress(0), BACKLOG);
+        return new SecureNioTcpServerMessenger(channel, cryptoService, SecureTcpMessenger.DEFAULT_WIRE_FORMAT,
+                sharedReactors(), false);
+    }
+
+    private static synchronized Reactor[] sharedReactors() throws IOException {
+        if (sharedReactors == null) {
+            sharedReactors = newReactors(Runtime.getRuntime().availableProcessors());
+        }
+        return sharedReactors;
+    }
+
+    private static Reactor[] newReactors(final int count) throws IOException {
+        final var reactors = new Reactor[Math.max(1, count)];
+        for (var i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor();
+        }
+        return reactors;
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                final var target = reactors[Math.floorMod(nextReactor.getAndIncrement(), reactors.length)];
+                final var accepted = channel;
+                target.execute(() -> register(target, accepted));
+            }
+        } catch (final IOException e) {
+            log.error("Erro ao aceitar cliente", e);
+        }
+    }
+
+    private void register(final Reactor reactor, final SocketChannel channel) {
+        try {
+            final var connection = new Connection(reactor, channel);
+            connection.key = channel.register(reactor.selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+
+            log.info("Cliente conectado: {}", connection.remoteAddress);
+        } catch (final IOException e) {
+            log.error("Erro ao registrar cliente", e);
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public synchronized Subscription subscribe(final Function<Message, Message> callback) {
+        if (subscription != null) {
+            throw new IllegalStateException("O servidor NIO aceita apenas uma inscrição");
+        }
+
+        subscription = new Subscription(callback);
+        subscription.start();
+        return subscription;
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+        // Parar reatores (os compartilhados continuam atendendo outros servidores)
+        if (subscription != null) {
+            subscription.close();
+        } else if (ownsReactors) {
+            for (final var reactor : reactors) {
+                reactor.close();
+            }
+        }
+
+        // Fechar clientes
+        connections.forEach(Connection::close);
+        connections.clear();
+
+        // Fechar servidor
+        serverChannel.close();
+        reactors[0].selector.wakeup();
+    }
+
+}
@@ -1,8 +1,14 @@
 package br.edu.ufersa.cc.seg.common.concrete_messengers;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -12,32 +18,58 @@ import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.SecureMessenger;
 import br.edu.ufersa.cc.seg.common.utils.ConnectionType;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class SecureTcpMessenger extends SecureMessenger {
 
+    public static final WireFormat DEFAULT_WIRE_FORMAT = WireFormat.BINARY;
+
     private final Socket socket;
-    private final ObjectOutputStream out;
-    private final ObjectInputStream in;
+    private final WireFormat wireFormat;
+    private final OutputStream out;
+    private final InputStream in;
 
-    public SecureTcpMessenger(final Socket socket, final CryptoService cryptoService) throws IOException {
+    public SecureTcpMessenger(final Socket socket, final CryptoService cryptoService, final WireFormat wireFormat)
+            throws IOException {
         super(cryptoService);
 
         this.socket = socket;
-        this.out = new ObjectOutputStream(socket.getOutputStream());
-        this.in = new ObjectInputStream(socket.getInputStream());
+        this.wireFormat = wireFormat;
+
+        if (WireFormat.JAVA_SERIALIZATION.equals(wireFormat)) {
+            this.out = new ObjectOutputStream(socket.getOutputStream());
+            this.in = new ObjectInputStream(socket.getInputStream());
+        } else {
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+    }
+
+    public SecureTcpMessenger(final Socket socket, final CryptoService cryptoService) throws IOException {
+        this(socket, cryptoService, DEFAULT_WIRE_FORMAT);
     }
 
     public SecureTcpMessenger(final String host, final int port, final CryptoService cryptoService) throws IOException {
         this(new Socket(host, port), cryptoService);
     }
 
+    public SecureTcpMessenger(final String host, final int port, final CryptoService cryptoService,
+            final WireFormat wireFormat) throws IOException {
+        this(new Socket(host, port), cryptoService, wireFormat);
+    }
+
     public SecureTcpMessenger(final ServerSocket serverSocket, final CryptoService cryptoService) throws IOException {
         this(serverSocket.accept(), cryptoService);
     }
 
+    public SecureTcpMessenger(final ServerSocket serverSocket, final CryptoService cryptoService,
+            final WireFormat wireFormat) throws IOException {
+        this(serverSocket.accept(), cryptoService, wireFormat);
+    }
+
     @Override
     public ConnectionType getConnectionType() {
         return ConnectionType.TCP;
@@ -61,7 +93,11 @@ public class SecureTcpMessenger extends SecureMessenger {
     @SneakyThrows
     public void send(final Message message) {
         final var secureMessage = cryptoService.encrypt(message.toBytes());
-        out.writeObject(secureMessage);
+        if (WireFormat.JAVA_SERIALIZATION.equals(wireFormat)) {
+            ((ObjectOutputStream) out).writeObject(secureMessage);
+        } else {
+            SecureMessageFrames.write((DataOutputStream) out, secureMessage, wireFormat);
+        }
         out.flush();
 
         log.info("Enviando mensagem do tipo {} para {}/{}:{}", message.getType(), socket.getInetAddress().getHostName(),
@@ -71,7 +107,13 @@ public class SecureTcpMessenger extends SecureMessenger {
     @Override
     @SneakyThrows
     public Message receive() {
-        final var secureMessage = (SecureMessage) in.readObject();
+        final SecureMessage secureMessage;
+        if (WireFormat.JAVA_SERIALIZATION.equals(wireFormat)) {
+            secureMessage = (SecureMessage) ((ObjectInputStream) in).readObject();
+        } else {
+            secureMessage = SecureMessageFrames.read((DataInputStream) in, wireFormat);
+        }
+
         final var messageAsBytes = cryptoService.decrypt(secureMessage);
         final var message = Message.fromBytes(messageAsBytes);
 
@@ -5,13 +5,16 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.factories.ExecutorFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
 import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -25,14 +28,14 @@ public class SecureTcpServerMessenger implements ServerMessenger {
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     public class Subscription implements Closeable {
         private final Function<Message, Message> callback;
-        private Thread thread;
+        private Future<?> task;
 
         private AtomicBoolean isRunning = new AtomicBoolean(false);
 
         private void start() {
             isRunning.set(true);
 
-            thread = new Thread(() -> {
+            task = ExecutorFactory.listeners().submit(() -> {
                 while (isRunning.get()) {
                     try {
                         log.info("Aguardando clientes...");
@@ -46,23 +49,22 @@ public class SecureTcpServerMessenger implements ServerMessenger {
                     }
                 }
             });
-
-            thread.start();
         }
 
         @Override
         public void close() {
             isRunning.set(false);
-            thread.interrupt();
+            task.cancel(true);
         }
 
         private SecureTcpMessenger accept() throws IOException {
-            return new SecureTcpMessenger(serverSocket, cryptoService);
+            return new SecureTcpMessenger(serverSocket, cryptoService, wireFormat);
         }
     }
 
     private final ServerSocket serverSocket;
     private final CryptoService cryptoService;
+    private final WireFormat wireFormat;
 
     public SecureTcpServerMessenger(final CryptoService cryptoService) throws IOException {
         this(new ServerSocket(0), cryptoService);
@@ -73,8 +75,14 @@ public class SecureTcpServerMessenger implements ServerMessenger {
     }
 
     public SecureTcpServerMessenger(final ServerSocket socket, final CryptoService cryptoService) {
+        this(socket, cryptoService, SecureTcpMessenger.DEFAULT_WIRE_FORMAT);
+    }
+
+    public SecureTcpServerMessenger(final ServerSocket socket, final CryptoService cryptoService,
+            final WireFormat wireFormat) {
         this.serverSocket = socket;
         this.cryptoService = cryptoService;
+        this.wireFormat = wireFormat;
     }
 
     public int getPort() {
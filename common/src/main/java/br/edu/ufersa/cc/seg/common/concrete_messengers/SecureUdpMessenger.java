@@ -4,28 +4,53 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
-import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.SecureMessenger;
+import br.edu.ufersa.cc.seg.common.utils.BufferPool;
 import br.edu.ufersa.cc.seg.common.utils.ConnectionType;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class SecureUdpMessenger extends SecureMessenger {
 
+    public static final WireFormat DEFAULT_WIRE_FORMAT = WireFormat.BINARY;
+
     private final DatagramSocket socket;
     private final InetAddress destinationHost;
     private final int destinationPort;
+    private final String sessionId;
+    private final WireFormat wireFormat;
+
+    // Alocado na primeira leitura e mantido pela vida do mensageiro: quem lê
+    // fica bloqueado em receive() enquanto a conexão está ociosa, então um
+    // buffer do pool ficaria preso do mesmo jeito
+    private byte[] receiveBuffer;
 
     public SecureUdpMessenger(final String destinationHost, final int destinationPort,
             final CryptoService cryptoService) throws IOException {
+        this(destinationHost, destinationPort, cryptoService, null);
+    }
+
+    public SecureUdpMessenger(final String destinationHost, final int destinationPort,
+            final CryptoService cryptoService, final String sessionId) throws IOException {
+        this(destinationHost, destinationPort, cryptoService, sessionId, DEFAULT_WIRE_FORMAT);
+    }
+
+    public SecureUdpMessenger(final String destinationHost, final int destinationPort,
+            final CryptoService cryptoService, final String sessionId, final WireFormat wireFormat)
+            throws IOException {
         super(cryptoService);
         this.socket = new DatagramSocket();
         this.destinationHost = InetAddress.getByName(destinationHost);
         this.destinationPort = destinationPort;
+        this.sessionId = sessionId;
+        this.wireFormat = wireFormat;
     }
 
     @Override
@@ -43,6 +68,15 @@ public class SecureUdpMessenger extends SecureMessenger {
         return socket.getLocalPort();
     }
 
+    /**
+     * Tempo máximo de espera em {@link #receive()}, em milissegundos ({@code 0}
+     * espera indefinidamente)
+     */
+    @SneakyThrows
+    public void setTimeout(final int timeout) {
+        socket.setSoTimeout(timeout);
+    }
+
     @Override
     public boolean isClosed() {
         return socket.isClosed();
@@ -51,26 +85,42 @@ public class SecureUdpMessenger extends SecureMessenger {
     @Override
     @SneakyThrows
     public void send(final Message message) {
-        final var secureMessage = cryptoService.encrypt(message.toBytes()).toBytes();
-        final var packet = new DatagramPacket(secureMessage, secureMessage.length, destinationHost, destinationPort);
-
-        log.info("Enviando mensagem do tipo {} para {}/{}:{}", message.getType(), destinationHost.getHostName(),
-                destinationHost.getHostAddress(), destinationPort);
-        socket.send(packet);
+        final var secureMessage = cryptoService.encrypt(message.toBytes());
+        secureMessage.setSessionId(sessionId);
+
+        final var envelope = SecureMessageFrames.toEnvelope(secureMessage, wireFormat);
+        try {
+            if (envelope.limit() > SecureUdpServerMessenger.MAX_DATAGRAM_SIZE) {
+                throw new IOException("Mensagem excede o tamanho máximo de um datagrama: " + envelope.limit());
+            }
+
+            final var packet = new DatagramPacket(envelope.array(), envelope.arrayOffset(), envelope.limit(),
+                    destinationHost, destinationPort);
+
+            log.info("Enviando mensagem do tipo {} para {}/{}:{}", message.getType(), destinationHost.getHostName(),
+                    destinationHost.getHostAddress(), destinationPort);
+            socket.send(packet);
+        } finally {
+            BufferPool.SHARED.release(envelope);
+        }
     }
 
     @Override
     @SneakyThrows
-    public Message receive() {
-        final var bytes = new byte[2048];
-        final var packet = new DatagramPacket(bytes, bytes.length);
+    public synchronized Message receive() {
+        if (receiveBuffer == null) {
+            receiveBuffer = new byte[SecureUdpServerMessenger.MAX_DATAGRAM_SIZE];
+        }
+
+        final var packet = new DatagramPacket(receiveBuffer, receiveBuffer.length);
         socket.receive(packet);
 
         return receive(packet);
     }
 
     public Message receive(final DatagramPacket packet) {
-        final var secureMessage = SecureMessage.fromBytes(packet.getData());
+        final var envelope = ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength());
+        final var secureMessage = SecureMessageFrames.decode(envelope, wireFormat);
         final var messageAsBytes = cryptoService.decrypt(secureMessage);
         final var message = Message.fromBytes(messageAsBytes);
 
@@ -82,6 +132,16 @@ public class SecureUdpMessenger extends SecureMessenger {
     @Override
     public void close() throws IOException {
         closeSubscriptions();
+
+        // Avisar o servidor, para que ele não espere a sessão ficar ociosa
+        if (sessionId != null && !socket.isClosed()) {
+            try {
+                send(new Message(MessageType.CLOSE_SESSION));
+            } catch (final RuntimeException e) {
+                log.debug("Não foi possível avisar o encerramento da sessão {}", sessionId, e);
+            }
+        }
+
         socket.close();
     }
 
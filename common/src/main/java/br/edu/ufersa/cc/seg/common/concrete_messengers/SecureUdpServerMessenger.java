@@ -2,98 +2,151 @@ package br.edu.ufersa.cc.seg.common.concrete_messengers;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.util.HashSet;
-import java.util.Set;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+import br.edu.ufersa.cc.seg.common.concrete_crypto.SessionTicketService;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricKeys;
+import br.edu.ufersa.cc.seg.common.factories.ExecutorFactory;
+import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
-import br.edu.ufersa.cc.seg.common.messengers.Messenger;
-import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionServerMessenger;
+import br.edu.ufersa.cc.seg.common.utils.BufferPool;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
 import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Value;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Servidor UDP seguro com um único canal por serviço. Os datagramas são
+ * distribuídos às sessões pelo identificador presente no
+ * {@link SecureMessage}; os que não trazem sessão usam a cifra padrão do
+ * servidor (quando houver) e o tratador da inscrição. As respostas saem pelo
+ * mesmo canal, de volta ao endereço de origem.
+ * <p>
+ * Com a retomada habilitada, uma mensagem cujo identificador de sessão é um
+ * ticket emitido por este servidor reabre a sessão com as chaves do ticket.
+ * <p>
+ * Uma sessão termina quando o cliente envia {@code CLOSE_SESSION} ao fechar o
+ * seu mensageiro ou, como datagramas podem se perder, quando fica mais de
+ * {@code UDP_SESSION_IDLE} ms sem receber mensagens: uma thread virtual varre
+ * as sessões periodicamente e descarta as ociosas.
+ */
 @Slf4j
-public class SecureUdpServerMessenger implements ServerMessenger {
+public class SecureUdpServerMessenger implements SessionServerMessenger {
 
-    private final Set<Messenger> clients = new HashSet<>();
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+    public static final String IDLE_VARIABLE = "UDP_SESSION_IDLE";
+
+    private static final long DEFAULT_MAX_IDLE = 300_000;
+    private static final long MIN_SWEEP_INTERVAL = 1_000;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
 
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     public class Subscription implements Closeable {
         private final Function<Message, Message> callback;
-        private Thread thread;
+        private Future<?> task;
 
         private AtomicBoolean isRunning = new AtomicBoolean(false);
 
         private void start() {
             isRunning.set(true);
 
-            thread = new Thread(() -> {
-                while (isRunning.get()) {
-                    try {
-                        final var client = accept();
-                        clients.add(client.getMessenger());
-
-                        final var clientSubscription = client.getMessenger().subscribe(callback);
-                        clientSubscription.handleRequest(client.getFirstMessage());
-                    } catch (final IOException e) {
-                        log.info("Parando leitura...");
-                        close();
+            task = ExecutorFactory.listeners().submit(() -> {
+                // Um só buffer do tamanho máximo para a leitura; cada datagrama
+                // segue para a sessão num buffer do seu próprio tamanho
+                final var received = BufferPool.SHARED.acquire(MAX_DATAGRAM_SIZE);
+                try {
+                    while (isRunning.get()) {
+                        final var address = channel.receive(received.clear());
+                        received.flip();
+                        final var datagram = BufferPool.SHARED.acquire(received.remaining()).put(received).flip();
+                        ExecutorFactory.sessions().execute(() -> handle(address, datagram, callback));
                     }
+                } catch (final IOException e) {
+                    log.info("Parando leitura...");
+                    close();
+                } finally {
+                    BufferPool.SHARED.release(received);
                 }
             });
-
-            thread.start();
-        }
-
-        private ClientRegistration accept() throws IOException {
-            final var bytes = new byte[2048];
-            final var packet = new DatagramPacket(bytes, bytes.length);
-            socket.receive(packet);
-
-            final var client = new SecureUdpMessenger(packet.getAddress().getHostName(), packet.getPort(),
-                    cryptoService);
-
-            return new ClientRegistration(client, client.receive(packet));
         }
 
         @Override
         public void close() {
             isRunning.set(false);
-            thread.interrupt();
+            task.cancel(true);
         }
     }
 
-    @Value
-    public static class ClientRegistration {
-        SecureUdpMessenger messenger;
-        Message firstMessage;
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class Session {
+        private final CryptoService cryptoService;
+        private final Function<Message, Message> callback;
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        private void touch() {
+            lastSeen = System.currentTimeMillis();
+        }
     }
 
-    private final DatagramSocket socket;
+    private final DatagramChannel channel;
     private final CryptoService cryptoService;
+    private final WireFormat wireFormat;
+    private final SessionTicketService tickets = new SessionTicketService();
+    private final long maxIdle;
+    private final Thread sweeper;
+
+    private volatile Function<String, Function<Message, Message>> resumeCallbacks;
 
     public SecureUdpServerMessenger(final CryptoService cryptoService) throws IOException {
-        this(new DatagramSocket(), cryptoService);
+        this(0, cryptoService);
     }
 
     public SecureUdpServerMessenger(final int port, final CryptoService cryptoService) throws IOException {
-        this(new DatagramSocket(port), cryptoService);
+        this(DatagramChannel.open().bind(new InetSocketAddress(port)), cryptoService);
+    }
+
+    /**
+     * @param cryptoService cifra das mensagens sem sessão, ou {@code null} para
+     *                      aceitar apenas mensagens de sessões abertas
+     */
+    public SecureUdpServerMessenger(final DatagramChannel channel, final CryptoService cryptoService) {
+        this(channel, cryptoService, SecureUdpMessenger.DEFAULT_WIRE_FORMAT);
     }
 
-    public SecureUdpServerMessenger(final DatagramSocket socket, final CryptoService cryptoService) {
-        this.socket = socket;
+    public SecureUdpServerMessenger(final DatagramChannel channel, final CryptoService cryptoService,
+            final WireFormat wireFormat) {
+        this.channel = channel;
         this.cryptoService = cryptoService;
+        this.wireFormat = wireFormat;
+        this.maxIdle = Optional.ofNullable(System.getenv(IDLE_VARIABLE))
+                .map(Long::parseLong)
+                .orElse(DEFAULT_MAX_IDLE);
+        this.sweeper = Thread.ofVirtual().name("udp-sessions-sweep").start(this::sweep);
     }
 
     @Override
+    @SneakyThrows
     public int getPort() {
-        return socket.getLocalPort();
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
     }
 
     @Override
@@ -104,19 +157,173 @@ public class SecureUdpServerMessenger implements ServerMessenger {
     }
 
     @Override
+    public String openSession(final CryptoService cryptoService, final Function<Message, Message> callback) {
+        final var sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new Session(cryptoService, callback));
+
+        log.info("Sessão {} aberta na porta {}", sessionId, getPort());
+        return sessionId;
+    }
+
+    @Override
+    public void closeSession(final String sessionId) {
+        if (sessions.remove(sessionId) != null) {
+            log.info("Sessão {} encerrada na porta {}", sessionId, getPort());
+        }
+    }
+
+    @Override
+    public String issueTicket(final SymmetricKeys keys) {
+        return tickets.issue(keys);
+    }
+
+    @Override
+    public void enableResumption(final Function<String, Function<Message, Message>> callbacks) {
+        this.resumeCallbacks = callbacks;
+    }
+
+    @Override
+    @SneakyThrows
     public void close() {
-        // Fechar clientes
-        clients.forEach(client -> {
+        sweeper.interrupt();
+        sessions.clear();
+        channel.close();
+    }
+
+    /**
+     * Descarta, a cada fração da ociosidade máxima, as sessões sem mensagens
+     * há mais tempo que ela
+     */
+    private void sweep() {
+        final var interval = Math.max(MIN_SWEEP_INTERVAL, maxIdle / 4);
+        while (channel.isOpen()) {
             try {
-                client.close();
-            } catch (final IOException ignore) {
-                // Ignorar
+                Thread.sleep(interval);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
-        });
-        clients.clear();
 
-        // Fechar servidor
-        socket.close();
+            final var oldest = System.currentTimeMillis() - maxIdle;
+            sessions.entrySet().removeIf(entry -> {
+                final var idle = entry.getValue().getLastSeen() < oldest;
+                if (idle) {
+                    log.info("Sessão {} descartada por ociosidade na porta {}", entry.getKey(), getPort());
+                }
+                return idle;
+            });
+        }
+    }
+
+    private void handle(final SocketAddress address, final ByteBuffer datagram,
+            final Function<Message, Message> defaultCallback) {
+        try {
+            final var secureMessage = decode(datagram);
+            final var sessionId = secureMessage.getSessionId();
+
+            final var session = sessionId == null ? null : sessions.get(sessionId);
+            final CryptoService sessionCryptoService;
+            final Function<Message, Message> callback;
+            if (sessionId == null) {
+                sessionCryptoService = cryptoService;
+                callback = defaultCallback;
+            } else {
+                if (session == null) {
+                    resume(address, secureMessage);
+                    return;
+                }
+
+                sessionCryptoService = session.getCryptoService();
+                callback = session.getCallback();
+            }
+
+            if (sessionCryptoService == null) {
+                log.warn("Descartando mensagem de {} para sessão desconhecida: {}", address, sessionId);
+                return;
+            }
+
+            final var request = Message.fromBytes(sessionCryptoService.decrypt(secureMessage));
+            log.info("Recebida mensagem do tipo {} de {}", request.getType(), address);
+
+            if (session != null) {
+                if (MessageType.CLOSE_SESSION.equals(request.getType())) {
+                    closeSession(sessionId);
+                    return;
+                }
+                session.touch();
+            }
+
+            final var response = callback.apply(request);
+            if (response != null) {
+                send(address, sessionCryptoService, sessionId, response.correlateWith(request));
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.error("Erro ao tratar mensagem de {}", address, e);
+        }
+    }
+
+    /**
+     * Trata mensagens de sessões desconhecidas: se o identificador for um
+     * ticket válido e a mensagem, cifrada com as chaves do ticket, for um
+     * {@code RESUME_SESSION}, abre uma nova sessão e responde com o novo
+     * identificador e um novo ticket. Cada ticket reabre uma única sessão, de
+     * modo que repetir o datagrama não cria outras.
+     */
+    private void resume(final SocketAddress address, final SecureMessage secureMessage) throws IOException {
+        final var ticket = secureMessage.getSessionId();
+        final var callbacks = resumeCallbacks;
+        final var keys = callbacks == null ? Optional.<SymmetricKeys>empty() : tickets.open(ticket);
+
+        if (keys.isEmpty()) {
+            log.warn("Descartando mensagem de {} para sessão desconhecida: {}", address, ticket);
+            return;
+        }
+
+        final var sessionCryptoService = keys.get().getCryptoService();
+        final var request = Message.fromBytes(sessionCryptoService.decrypt(secureMessage));
+        if (MessageType.CLOSE_SESSION.equals(request.getType())) {
+            // Mensageiro temporário da retomada sendo fechado; não há sessão
+            return;
+        }
+        if (!MessageType.RESUME_SESSION.equals(request.getType())) {
+            log.warn("Descartando mensagem do tipo {} de {} enviada com ticket", request.getType(), address);
+            return;
+        }
+        if (!tickets.redeem(ticket)) {
+            log.warn("Descartando retomada de {} com ticket já utilizado", address);
+            return;
+        }
+
+        final var sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new Session(sessionCryptoService, callbacks.apply(sessionId)));
+        log.info("Sessão {} retomada por ticket na porta {}", sessionId, getPort());
+
+        final var response = MessageFactory.ok()
+                .withValue(Fields.SESSION_ID, sessionId)
+                .withValue(Fields.SESSION_TICKET, tickets.issue(keys.get()));
+        send(address, sessionCryptoService, ticket, response);
+    }
+
+    private SecureMessage decode(final ByteBuffer datagram) {
+        try {
+            return SecureMessageFrames.decode(datagram, wireFormat);
+        } finally {
+            BufferPool.SHARED.release(datagram);
+        }
+    }
+
+    private void send(final SocketAddress address, final CryptoService sessionCryptoService, final String sessionId,
+            final Message message) throws IOException {
+        final var secureMessage = sessionCryptoService.encrypt(message.toBytes());
+        secureMessage.setSessionId(sessionId);
+
+        final var envelope = SecureMessageFrames.toEnvelope(secureMessage, wireFormat);
+        try {
+            log.info("Enviando mensagem do tipo {} para {}", message.getType(), address);
+            channel.send(envelope, address);
+        } finally {
+            BufferPool.SHARED.release(envelope);
+        }
     }
 
 }
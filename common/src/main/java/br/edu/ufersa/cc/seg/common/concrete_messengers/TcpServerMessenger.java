@@ -5,9 +5,11 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+import br.edu.ufersa.cc.seg.common.factories.ExecutorFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
 import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
@@ -24,14 +26,14 @@ public class TcpServerMessenger implements ServerMessenger {
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     public class Subscription implements Closeable {
         private final Function<Message, Message> callback;
-        private Thread thread;
+        private Future<?> task;
 
         private AtomicBoolean isRunning = new AtomicBoolean(false);
 
         private void start() {
             isRunning.set(true);
 
-            thread = new Thread(() -> {
+            task = ExecutorFactory.listeners().submit(() -> {
                 while (isRunning.get()) {
                     try {
                         log.info("Aguardando clientes...");
@@ -45,14 +47,12 @@ public class TcpServerMessenger implements ServerMessenger {
                     }
                 }
             });
-
-            thread.start();
         }
 
         @Override
         public void close() {
             isRunning.set(false);
-            thread.interrupt();
+            task.cancel(true);
         }
 
         private TcpMessenger accept() throws IOException {
@@ -4,75 +4,59 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+import br.edu.ufersa.cc.seg.common.factories.ExecutorFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
-import br.edu.ufersa.cc.seg.common.messengers.Messenger;
 import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
-import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class UdpServerMessenger implements ServerMessenger {
 
-    private final Set<Messenger> clients = new HashSet<>();
-
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     public class Subscription implements Closeable {
         private final Function<Message, Message> callback;
-        private Thread thread;
+        private Future<?> task;
 
         private AtomicBoolean isRunning = new AtomicBoolean(false);
 
         private void start() {
             isRunning.set(true);
 
-            thread = new Thread(() -> {
+            task = ExecutorFactory.listeners().submit(() -> {
                 while (isRunning.get()) {
                     try {
-                        final var client = accept();
-                        clients.add(client.getMessenger());
-
-                        final var clientSubscription = client.getMessenger().subscribe(callback);
-                        clientSubscription.handleRequest(client.getFirstMessage());
+                        final var packet = accept();
+                        ExecutorFactory.sessions().execute(() -> handle(packet, callback));
                     } catch (final IOException e) {
                         log.info("Parando leitura...");
                         close();
                     }
                 }
             });
-
-            thread.start();
         }
 
-        private ClientRegistration accept() throws IOException {
+        private DatagramPacket accept() throws IOException {
             final var bytes = new byte[2048];
             final var packet = new DatagramPacket(bytes, bytes.length);
             socket.receive(packet);
 
-            final var client = new UdpMessenger(packet.getAddress().getHostName(), packet.getPort());
-
-            return new ClientRegistration(client, client.receive(packet));
+            return packet;
         }
 
         @Override
         public void close() {
             isRunning.set(false);
-            thread.interrupt();
+            task.cancel(true);
         }
     }
 
-    @Value
-    public static class ClientRegistration {
-        UdpMessenger messenger;
-        Message firstMessage;
-    }
-
     private final DatagramSocket socket;
 
     public UdpServerMessenger() throws IOException {
@@ -98,18 +82,30 @@ public class UdpServerMessenger implements ServerMessenger {
     }
 
     public void close() {
-        // Fechar clientes
-        clients.forEach(client -> {
-            try {
-                client.close();
-            } catch (final IOException ignore) {
-                // Ignorar
-            }
-        });
-        clients.clear();
-
-        // Fechar servidor
         socket.close();
     }
 
+    /**
+     * Trata um datagrama e responde pelo próprio socket do servidor, sem abrir
+     * um socket por cliente
+     */
+    private void handle(final DatagramPacket packet, final Function<Message, Message> callback) {
+        try {
+            final var request = Message.fromBytes(
+                    Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength()));
+            log.info("Recebida mensagem do tipo {} de {}:{}", request.getType(), packet.getAddress().getHostAddress(),
+                    packet.getPort());
+
+            final var response = callback.apply(request);
+            if (response != null) {
+                final var responseAsBytes = response.correlateWith(request).toBytes();
+                log.info("Enviando mensagem do tipo {} para {}:{}", response.getType(),
+                        packet.getAddress().getHostAddress(), packet.getPort());
+                socket.send(new DatagramPacket(responseAsBytes, responseAsBytes.length, packet.getSocketAddress()));
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.error("Erro ao tratar mensagem de {}", packet.getSocketAddress(), e);
+        }
+    }
+
 }
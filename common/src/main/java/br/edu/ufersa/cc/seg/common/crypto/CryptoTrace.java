@@ -0,0 +1,131 @@
+package br.edu.ufersa.cc.seg.common.crypto;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rastreamento dos serviços de criptografia.
+ * <p>
+ * Os dumps das mensagens (texto claro e {@link SecureMessage} em JSON) só são
+ * montados quando há um destino ligado, seja pela variável de ambiente
+ * {@code CRYPTO_TRACE=true} (log em DEBUG) ou por {@link #useSink(Consumer)}.
+ * Sem destino, o custo é só o de verificar um campo.
+ * <p>
+ * Os contadores por operação são ligados com {@code CRYPTO_METRICS=true} na
+ * inicialização. Desligados, {@link #count(Counter, long)} não faz nada.
+ * Ligados, aparecem no log quando o servidor para ({@link #logCounters()}).
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class CryptoTrace {
+
+    public static final String TRACE_VARIABLE = "CRYPTO_TRACE";
+    public static final String METRICS_VARIABLE = "CRYPTO_METRICS";
+
+    public enum Counter {
+        ENCRYPTED_MESSAGES,
+        DECRYPTED_MESSAGES,
+        BYTES_ENCRYPTED,
+        BYTES_DECRYPTED,
+        INTEGRITY_FAILURES,
+        RSA_POOL_HITS,
+        RSA_POOL_MISSES,
+        RSA_KEYS_GENERATED,
+        RSA_GENERATION_NANOS;
+    }
+
+    private static final boolean METRICS_ENABLED = Boolean.parseBoolean(System.getenv(METRICS_VARIABLE));
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+    private static final ObjectWriter WRITER = new ObjectMapper().writerWithDefaultPrettyPrinter();
+
+    private static volatile Consumer<String> sink = Boolean.parseBoolean(System.getenv(TRACE_VARIABLE))
+            ? log::debug
+            : null;
+
+    static {
+        for (var i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+
+    public static boolean isTracing() {
+        return sink != null;
+    }
+
+    public static boolean isCounting() {
+        return METRICS_ENABLED;
+    }
+
+    /**
+     * Troca o destino dos dumps. {@code null} desliga o rastreamento.
+     */
+    public static void useSink(final Consumer<String> newSink) {
+        sink = newSink;
+    }
+
+    /**
+     * Envia um dump ao destino, materializando o conteúdo apenas se houver
+     * destino. Arrays de bytes são mostrados como texto, o resto em JSON.
+     */
+    public static void trace(final String label, final Supplier<?> content) {
+        final var current = sink;
+        if (current != null) {
+            current.accept(label + "\n" + render(content.get()));
+        }
+    }
+
+    public static void count(final Counter counter, final long amount) {
+        if (METRICS_ENABLED) {
+            COUNTERS[counter.ordinal()].add(amount);
+        }
+    }
+
+    public static void increment(final Counter counter) {
+        count(counter, 1);
+    }
+
+    public static Map<Counter, Long> counters() {
+        final var result = new EnumMap<Counter, Long>(Counter.class);
+        for (final var counter : Counter.values()) {
+            result.put(counter, COUNTERS[counter.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * Registra os contadores no log, se estiverem ligados. Os servidores
+     * chamam ao parar, como fazem com as estatísticas dos pools.
+     */
+    public static void logCounters() {
+        if (METRICS_ENABLED) {
+            log.info("Contadores de criptografia: {}", counters());
+        }
+    }
+
+    public static void reset() {
+        for (final var counter : COUNTERS) {
+            counter.reset();
+        }
+    }
+
+    @SneakyThrows
+    private static String render(final Object content) {
+        if (content instanceof byte[] bytes) {
+            return new String(bytes);
+        }
+        return WRITER.writeValueAsString(content);
+    }
+
+}
@@ -44,6 +44,12 @@ public class SecureMessage implements Serializable {
      */
     private long timestamp;
 
+    /**
+     * Sessão à qual a mensagem pertence, usada pelo servidor para escolher a
+     * cifra. Fica fora do conteúdo cifrado e é nula fora de sessões.
+     */
+    private String sessionId;
+
     @SneakyThrows
     public static SecureMessage fromBytes(final byte[] bytes) {
         return MAPPER.readValue(bytes, SecureMessage.class);
@@ -0,0 +1,47 @@
+package br.edu.ufersa.cc.seg.common.crypto;
+
+import javax.crypto.SecretKey;
+
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.SymmetricMode;
+import lombok.Data;
+
+/**
+ * Chaves geradas por quem responde um {@code USE_SYMMETRIC}, junto com o
+ * serviço de criptografia correspondente. A chave de HMAC só existe no modo
+ * {@link SymmetricMode#AES_CBC_HMAC}.
+ * <p>
+ * Quando as chaves vêm de um acordo X25519, {@code agreementKey} guarda a
+ * chave pública efêmera de quem responde, e só ela vai na resposta.
+ */
+@Data
+public class SymmetricKeys {
+
+    private final SymmetricMode mode;
+    private final SecretKey encryptionKey;
+    private final SecretKey hmacKey;
+    private final CryptoService cryptoService;
+    private String agreementKey;
+
+    /**
+     * Adiciona o modo e as chaves (ou a chave pública do acordo) à resposta
+     * do handshake
+     */
+    public Message writeTo(final Message message) {
+        message.withValue(Fields.SYMMETRIC_MODE, mode);
+
+        if (agreementKey != null) {
+            return message.withValue(Fields.AGREEMENT_KEY, agreementKey);
+        }
+
+        message.withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded());
+
+        if (hmacKey != null) {
+            message.withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+        }
+
+        return message;
+    }
+
+}
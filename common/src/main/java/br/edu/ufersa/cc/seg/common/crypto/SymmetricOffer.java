@@ -0,0 +1,48 @@
+package br.edu.ufersa.cc.seg.common.crypto;
+
+import java.security.KeyPair;
+import java.util.Base64;
+
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.SymmetricMode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Pedido de {@code USE_SYMMETRIC} feito por esta instância: o modo simétrico
+ * preferido e, no acordo de chaves, o par X25519 efêmero, cuja parte privada
+ * fica guardada aqui até a resposta chegar.
+ */
+@Getter
+@RequiredArgsConstructor
+public class SymmetricOffer {
+
+    private final SymmetricMode mode;
+    private final KeyPair agreementKeys;
+
+    public boolean hasAgreement() {
+        return agreementKeys != null;
+    }
+
+    /**
+     * Chave pública efêmera em Base64, ou {@code null} sem acordo de chaves
+     */
+    public String getAgreementKey() {
+        return hasAgreement() ? Base64.getEncoder().encodeToString(agreementKeys.getPublic().getEncoded()) : null;
+    }
+
+    /**
+     * Adiciona o modo e, se houver, a chave pública efêmera ao pedido
+     */
+    public Message writeTo(final Message message) {
+        message.withValue(Fields.SYMMETRIC_MODE, mode);
+
+        if (hasAgreement()) {
+            message.withValue(Fields.AGREEMENT_KEY, getAgreementKey());
+        }
+
+        return message;
+    }
+
+}
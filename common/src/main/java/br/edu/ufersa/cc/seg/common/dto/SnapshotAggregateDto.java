@@ -0,0 +1,26 @@
+package br.edu.ufersa.cc.seg.common.dto;
+
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Resumo das capturas de um elemento de um dispositivo num intervalo de tempo
+ */
+@Data
+@Accessors(chain = true)
+public class SnapshotAggregateDto {
+
+    private String deviceName;
+    private Element element;
+
+    /** Início do intervalo; ele vai até o início do seguinte */
+    private String timestamp;
+
+    private long count;
+    private double avg;
+    private double min;
+    private double max;
+    private double p95;
+
+}
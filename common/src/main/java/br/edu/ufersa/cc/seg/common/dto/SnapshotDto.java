@@ -11,6 +11,7 @@ import lombok.experimental.Accessors;
 public class SnapshotDto {
 
     private UUID id;
+    private long sequence;
     private String deviceName;
     private String timestamp;
     private Element element;
@@ -0,0 +1,17 @@
+package br.edu.ufersa.cc.seg.common.dto;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class SnapshotPageDto {
+
+    private List<SnapshotDto> data;
+
+    /** Cursor opaco da próxima página; nulo na última */
+    private String next;
+
+}
@@ -1,18 +1,34 @@
 package br.edu.ufersa.cc.seg.common.factories;
 
 import java.security.Key;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 
+import br.edu.ufersa.cc.seg.common.concrete_crypto.AESGCMService;
 import br.edu.ufersa.cc.seg.common.concrete_crypto.AESService;
 import br.edu.ufersa.cc.seg.common.concrete_crypto.AsymmetricMode;
+import br.edu.ufersa.cc.seg.common.concrete_crypto.HybridRSAService;
+import br.edu.ufersa.cc.seg.common.concrete_crypto.RSAKeyPool;
 import br.edu.ufersa.cc.seg.common.concrete_crypto.RSAService;
+import br.edu.ufersa.cc.seg.common.concrete_crypto.X25519KeyAgreement;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoServicePair;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricKeys;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricOffer;
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.KeyExchange;
+import br.edu.ufersa.cc.seg.common.utils.SymmetricMode;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
@@ -20,9 +36,21 @@ import lombok.SneakyThrows;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public abstract class CryptoServiceFactory {
 
+    public static final String SYMMETRIC_MODE_VARIABLE = "SYMMETRIC_MODE";
+    public static final String KEY_EXCHANGE_VARIABLE = "KEY_EXCHANGE";
+    public static final String RSA_POOL_SIZE_VARIABLE = "RSA_POOL_SIZE";
+    public static final String RSA_POOL_WORKERS_VARIABLE = "RSA_POOL_WORKERS";
+
     private static final int KEY_SIZE = 2048;
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
     private static final String RSA_ALGORITHM = "RSA";
+    private static final int AES_KEY_BYTES = 16;
+    private static final String AGREEMENT_INFO = "smart_stations/use-symmetric/";
+
+    private static final RSAKeyPool RSA_POOL = new RSAKeyPool(
+            intFromEnv(RSA_POOL_SIZE_VARIABLE, 3),
+            intFromEnv(RSA_POOL_WORKERS_VARIABLE, Math.min(2, Runtime.getRuntime().availableProcessors())),
+            () -> generateKeys(RSA_ALGORITHM));
 
     public static CryptoService aes(final SecretKey encryptionKey, final SecretKey hmacKey) {
         return new AESService(encryptionKey, hmacKey);
@@ -36,27 +64,189 @@ public abstract class CryptoServiceFactory {
         return new AESService(encryptionKey, hmacKey);
     }
 
+    public static CryptoService aesGcm(final SecretKey encryptionKey) {
+        return new AESGCMService(encryptionKey);
+    }
+
+    public static CryptoService aesGcm(final byte[] encryptionKey) {
+        return new AESGCMService(encryptionKey);
+    }
+
+    public static CryptoService aesGcm(final String encryptionKey) {
+        return new AESGCMService(encryptionKey);
+    }
+
+    /**
+     * Modo simétrico pedido por esta instância nos handshakes, definido pela
+     * variável de ambiente {@code SYMMETRIC_MODE} (padrão: AES_GCM)
+     */
+    public static SymmetricMode preferredSymmetricMode() {
+        return Optional.ofNullable(System.getenv(SYMMETRIC_MODE_VARIABLE))
+                .map(String::toUpperCase)
+                .map(SymmetricMode::valueOf)
+                .orElse(SymmetricMode.AES_GCM);
+    }
+
+    /**
+     * Interpreta o modo recebido de outra instância. Pares antigos não enviam
+     * o campo, e modos desconhecidos caem no AES_CBC_HMAC, que todos suportam.
+     */
+    public static SymmetricMode symmetricMode(final Object requested) {
+        if (requested == null) {
+            return SymmetricMode.AES_CBC_HMAC;
+        }
+
+        try {
+            return SymmetricMode.valueOf(String.valueOf(requested));
+        } catch (final IllegalArgumentException e) {
+            return SymmetricMode.AES_CBC_HMAC;
+        }
+    }
+
+    /**
+     * Forma de estabelecer as chaves pedida por esta instância, definida pela
+     * variável de ambiente {@code KEY_EXCHANGE} (padrão: X25519)
+     */
+    public static KeyExchange preferredKeyExchange() {
+        return Optional.ofNullable(System.getenv(KEY_EXCHANGE_VARIABLE))
+                .map(String::toUpperCase)
+                .map(KeyExchange::valueOf)
+                .orElse(KeyExchange.X25519);
+    }
+
+    /**
+     * Lado de quem pede o handshake: modo preferido e, no acordo de chaves, um
+     * par X25519 efêmero novo
+     */
+    public static SymmetricOffer symmetricOffer() {
+        final var agreementKeys = KeyExchange.X25519.equals(preferredKeyExchange())
+                ? X25519KeyAgreement.generateKeyPair()
+                : null;
+        return new SymmetricOffer(preferredSymmetricMode(), agreementKeys);
+    }
+
+    /**
+     * Lado de quem responde o handshake: gera as chaves no modo pedido, ou as
+     * deriva por acordo X25519 se o pedido trouxer uma chave pública efêmera
+     */
+    public static SymmetricKeys generateSymmetric(final Message request) {
+        return generateSymmetric(symmetricMode(request.getValue(Fields.SYMMETRIC_MODE)),
+                request.getValue(Fields.AGREEMENT_KEY));
+    }
+
+    public static SymmetricKeys generateSymmetric(final SymmetricMode mode, final String peerAgreementKey) {
+        if (peerAgreementKey == null) {
+            return generateSymmetric(mode);
+        }
+
+        final var ownKeys = X25519KeyAgreement.generateKeyPair();
+        final var ownPublicKey = ownKeys.getPublic().getEncoded();
+        final var peerPublicKey = Base64.getDecoder().decode(peerAgreementKey);
+
+        final var keys = deriveSymmetric(mode, ownKeys.getPrivate(), peerPublicKey, peerPublicKey, ownPublicKey);
+        keys.setAgreementKey(Base64.getEncoder().encodeToString(ownPublicKey));
+        return keys;
+    }
+
+    public static SymmetricKeys generateSymmetric(final SymmetricMode mode) {
+        final var hmacKey = SymmetricMode.AES_GCM.equals(mode) ? null : generateAESKey();
+        return symmetricKeys(mode, generateAESKey(), hmacKey);
+    }
+
+    /**
+     * Monta o serviço para chaves já existentes (por exemplo, as de um ticket
+     * de retomada de sessão)
+     */
+    public static SymmetricKeys symmetricKeys(final SymmetricMode mode, final SecretKey encryptionKey,
+            final SecretKey hmacKey) {
+        if (SymmetricMode.AES_GCM.equals(mode)) {
+            return new SymmetricKeys(mode, encryptionKey, null, aesGcm(encryptionKey));
+        }
+
+        return new SymmetricKeys(SymmetricMode.AES_CBC_HMAC, encryptionKey, hmacKey, aes(encryptionKey, hmacKey));
+    }
+
+    /**
+     * Lado de quem pediu o handshake: monta o serviço a partir das chaves
+     * recebidas na resposta
+     */
+    public static CryptoService symmetric(final Message response) {
+        final String encryptionKey = response.getValue(Fields.ENCRYPTION_KEY);
+
+        if (SymmetricMode.AES_GCM.equals(symmetricMode(response.getValue(Fields.SYMMETRIC_MODE)))) {
+            return aesGcm(encryptionKey);
+        }
+
+        final String hmacKey = response.getValue(Fields.HMAC_KEY);
+        return aes(encryptionKey, hmacKey);
+    }
+
+    /**
+     * Lado de quem pediu o handshake com um {@link SymmetricOffer}: deriva as
+     * chaves se a resposta trouxer a chave pública do acordo, senão as lê da
+     * resposta. As chaves derivadas são gravadas na própria resposta (em
+     * Base64, como chegam da rede), que assim serve ao
+     * {@code SessionTicketCache} como no transporte de chaves.
+     */
+    public static CryptoService symmetric(final SymmetricOffer offer, final Message response) {
+        final String peerAgreementKey = response.getValue(Fields.AGREEMENT_KEY);
+        if (peerAgreementKey == null || !offer.hasAgreement()) {
+            return symmetric(response);
+        }
+
+        final var ownPublicKey = offer.getAgreementKeys().getPublic().getEncoded();
+        final var peerPublicKey = Base64.getDecoder().decode(peerAgreementKey);
+        final var mode = symmetricMode(response.getValue(Fields.SYMMETRIC_MODE));
+
+        final var keys = deriveSymmetric(mode, offer.getAgreementKeys().getPrivate(), peerPublicKey, ownPublicKey,
+                peerPublicKey);
+        response.withValue(Fields.ENCRYPTION_KEY, base64(keys.getEncryptionKey()));
+        if (keys.getHmacKey() != null) {
+            response.withValue(Fields.HMAC_KEY, base64(keys.getHmacKey()));
+        }
+
+        return keys.getCryptoService();
+    }
+
+    /**
+     * Serviço RSA híbrido (chave AES de uso único envelopada com RSA) para a
+     * chave pública de outra instância
+     */
     public static CryptoService publicRsa(final byte[] encryptionKey) {
-        return new RSAService(AsymmetricMode.PUBLIC, encryptionKey);
+        return new HybridRSAService(AsymmetricMode.PUBLIC, encryptionKey);
     }
 
     public static CryptoService publicRsa(final String encryptionKey) {
-        return new RSAService(AsymmetricMode.PUBLIC, encryptionKey);
+        return new HybridRSAService(AsymmetricMode.PUBLIC, encryptionKey);
     }
 
     public static CryptoService publicRsa(final Key encryptionKey) {
-        return new RSAService(AsymmetricMode.PUBLIC, encryptionKey.getEncoded());
+        return new HybridRSAService(AsymmetricMode.PUBLIC, encryptionKey.getEncoded());
     }
 
+    /**
+     * Par de serviços RSA com chaves novas, retiradas do estoque gerado em
+     * segundo plano
+     */
     public static CryptoServicePair rsaPair() {
-        final var keyPair = generateKeys(RSA_ALGORITHM);
+        final var keyPair = RSA_POOL.take();
 
-        final var publicSide = new RSAService(AsymmetricMode.PUBLIC, keyPair.getPublic().getEncoded());
-        final var privateSide = new RSAService(AsymmetricMode.PRIVATE, keyPair.getPrivate().getEncoded());
+        final var publicSide = new HybridRSAService(AsymmetricMode.PUBLIC, keyPair.getPublic().getEncoded());
+        final var privateSide = new HybridRSAService(AsymmetricMode.PRIVATE, keyPair.getPrivate().getEncoded());
 
         return new CryptoServicePair(publicSide, privateSide, keyPair.getPublic());
     }
 
+    /**
+     * Começa a gerar pares RSA em segundo plano. Deve ser chamado o quanto
+     * antes na inicialização, para que os handshakes já encontrem chaves
+     * prontas; o tamanho do estoque e o número de threads vêm das variáveis
+     * {@code RSA_POOL_SIZE} e {@code RSA_POOL_WORKERS}.
+     */
+    public static void warmUpRsaPool() {
+        RSA_POOL.warmUp();
+    }
+
     @SneakyThrows
     public static SecretKey generateAESKey() {
         final var keyGenerator = KeyGenerator.getInstance("AES");
@@ -64,6 +254,39 @@ public abstract class CryptoServiceFactory {
         return keyGenerator.generateKey();
     }
 
+    /**
+     * Deriva as chaves do modo a partir do segredo X25519. O salt são as duas
+     * chaves públicas (de quem pediu e de quem respondeu), para que os dois
+     * lados cheguem ao mesmo material só se viram as mesmas chaves.
+     */
+    private static SymmetricKeys deriveSymmetric(final SymmetricMode mode, final PrivateKey ownKey,
+            final byte[] peerPublicKey, final byte[] requesterPublicKey, final byte[] responderPublicKey) {
+        final var salt = new byte[requesterPublicKey.length + responderPublicKey.length];
+        System.arraycopy(requesterPublicKey, 0, salt, 0, requesterPublicKey.length);
+        System.arraycopy(responderPublicKey, 0, salt, requesterPublicKey.length, responderPublicKey.length);
+
+        final var hasHmac = !SymmetricMode.AES_GCM.equals(mode);
+        final var info = (AGREEMENT_INFO + mode.name()).getBytes(StandardCharsets.UTF_8);
+        final var material = X25519KeyAgreement.derive(ownKey, peerPublicKey, salt, info,
+                hasHmac ? 2 * AES_KEY_BYTES : AES_KEY_BYTES);
+
+        final var encryptionKey = new SecretKeySpec(Arrays.copyOfRange(material, 0, AES_KEY_BYTES), "AES");
+        final var hmacKey = hasHmac
+                ? new SecretKeySpec(Arrays.copyOfRange(material, AES_KEY_BYTES, 2 * AES_KEY_BYTES), "AES")
+                : null;
+        return symmetricKeys(mode, encryptionKey, hmacKey);
+    }
+
+    private static String base64(final Key key) {
+        return Base64.getEncoder().encodeToString(key.getEncoded());
+    }
+
+    private static int intFromEnv(final String variable, final int defaultValue) {
+        return Optional.ofNullable(System.getenv(variable))
+                .map(Integer::parseInt)
+                .orElse(defaultValue);
+    }
+
     @SneakyThrows
     private static KeyPair generateKeys(final String algorithm) {
         final var generator = KeyPairGenerator.getInstance(algorithm);
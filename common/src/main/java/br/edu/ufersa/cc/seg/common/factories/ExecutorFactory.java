@@ -0,0 +1,65 @@
+package br.edu.ufersa.cc.seg.common.factories;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import br.edu.ufersa.cc.seg.common.utils.ExecutionMode;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Executores compartilhados pelos mensageiros.
+ * <p>
+ * As sessões (laços de {@code receive()} de cada cliente e o processamento
+ * das requisições) rodam em threads virtuais por padrão, o que permite manter
+ * muitas sessões ociosas a baixo custo. O modo pode ser trocado pela variável
+ * de ambiente {@code EXECUTION_MODE} ou substituído por
+ * {@link #useSessionExecutor(ExecutorService)}.
+ * <p>
+ * Os laços de escuta dos servidores rodam sempre em threads de plataforma não
+ * daemon, pois são eles que mantêm os processos vivos após o {@code main}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class ExecutorFactory {
+
+    public static final String MODE_VARIABLE = "EXECUTION_MODE";
+
+    private static ExecutorService sessionExecutor;
+    private static ExecutorService listenerExecutor;
+
+    public static ExecutionMode mode() {
+        return Optional.ofNullable(System.getenv(MODE_VARIABLE))
+                .map(String::toUpperCase)
+                .map(ExecutionMode::valueOf)
+                .orElse(ExecutionMode.VIRTUAL);
+    }
+
+    public static synchronized ExecutorService sessions() {
+        if (sessionExecutor == null) {
+            sessionExecutor = create(mode());
+        }
+
+        return sessionExecutor;
+    }
+
+    public static synchronized ExecutorService listeners() {
+        if (listenerExecutor == null) {
+            listenerExecutor = Executors.newCachedThreadPool(Thread.ofPlatform().name("listener-", 0).factory());
+        }
+
+        return listenerExecutor;
+    }
+
+    public static synchronized void useSessionExecutor(final ExecutorService executor) {
+        sessionExecutor = executor;
+    }
+
+    public static ExecutorService create(final ExecutionMode mode) {
+        return switch (mode) {
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("session-", 0).factory());
+            case PLATFORM -> Executors.newCachedThreadPool(Thread.ofPlatform().name("session-", 0).factory());
+        };
+    }
+
+}
@@ -0,0 +1,59 @@
+package br.edu.ufersa.cc.seg.common.factories;
+
+import br.edu.ufersa.cc.seg.common.concrete_messengers.BinaryMessageCodec;
+import br.edu.ufersa.cc.seg.common.concrete_messengers.JsonMessageCodec;
+import br.edu.ufersa.cc.seg.common.messengers.MessageCodec;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Codecs usados por {@code Message.toBytes/fromBytes}. O padrão é o binário;
+ * a variável de ambiente {@code MESSAGE_CODEC=json} volta ao JSON para
+ * depuração.
+ * <p>
+ * A decodificação reconhece o formato pelo primeiro byte, então processos com
+ * codecs diferentes continuam se entendendo.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class MessageCodecFactory {
+
+    public static final String CODEC_VARIABLE = "MESSAGE_CODEC";
+
+    private static final MessageCodec JSON = new JsonMessageCodec();
+    private static final MessageCodec BINARY = new BinaryMessageCodec();
+
+    private static volatile MessageCodec defaultCodec = "json".equalsIgnoreCase(System.getenv(CODEC_VARIABLE))
+            ? JSON
+            : BINARY;
+
+    public static MessageCodec json() {
+        return JSON;
+    }
+
+    public static MessageCodec binary() {
+        return BINARY;
+    }
+
+    public static MessageCodec getDefault() {
+        return defaultCodec;
+    }
+
+    public static void setDefault(final MessageCodec codec) {
+        defaultCodec = codec;
+    }
+
+    /**
+     * Escolhe o codec capaz de ler os bytes recebidos
+     */
+    public static MessageCodec forPayload(final byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == BinaryMessageCodec.MAGIC) {
+            return BINARY;
+        }
+        if (bytes.length > 0 && bytes[0] == '{') {
+            return JSON;
+        }
+
+        return defaultCodec;
+    }
+
+}
@@ -1,5 +1,6 @@
 package br.edu.ufersa.cc.seg.common.factories;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -10,16 +11,27 @@ import br.edu.ufersa.cc.seg.common.concrete_messengers.SecureUdpMessenger;
 import br.edu.ufersa.cc.seg.common.concrete_messengers.TcpMessenger;
 import br.edu.ufersa.cc.seg.common.concrete_messengers.UdpMessenger;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.HybridCryptoException;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricOffer;
+import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
 import br.edu.ufersa.cc.seg.common.messengers.SecureMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionTicketCache;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public abstract class MessengerFactory {
 
+    public static final int RESUME_TIMEOUT = 2_000;
+
     @FunctionalInterface
     private static interface TriFunction<A, B, C, R> {
         R apply(A a, B b, C c);
@@ -31,10 +43,18 @@ public abstract class MessengerFactory {
         private final int port;
     }
 
+    @Data
+    private static class FramedMessengerInfo {
+        private final String host;
+        private final int port;
+        private final WireFormat wireFormat;
+    }
+
     private static final Map<MessengerInfo, TcpMessenger> TCP_MESSENGERS = new HashMap<>();
     private static final Map<MessengerInfo, UdpMessenger> UDP_MESSENGERS = new HashMap<>();
     private static final Map<MessengerInfo, SecureTcpMessenger> SECURE_TCP_MESSENGERS = new HashMap<>();
     private static final Map<MessengerInfo, SecureUdpMessenger> SECURE_UDP_MESSENGERS = new HashMap<>();
+    private static final Map<FramedMessengerInfo, SecureTcpMessenger> FRAMED_TCP_MESSENGERS = new HashMap<>();
 
     public static Messenger tcp(final String host, final int port) {
         final var info = new MessengerInfo(host, port);
@@ -51,11 +71,103 @@ public abstract class MessengerFactory {
         return findOrCreate(SECURE_TCP_MESSENGERS, info, cryptoService, MessengerFactory::createSecureTcpMessenger);
     }
 
+    public static SecureMessenger secureTcp(final String host, final int port, final CryptoService cryptoService,
+            final WireFormat wireFormat) {
+        if (SecureTcpMessenger.DEFAULT_WIRE_FORMAT.equals(wireFormat)) {
+            return secureTcp(host, port, cryptoService);
+        }
+
+        final var info = new FramedMessengerInfo(host, port, wireFormat);
+        final var cached = FRAMED_TCP_MESSENGERS.remove(info);
+        if (cached != null && !cached.isClosed()) {
+            return cached;
+        }
+
+        final var messenger = createSecureTcpMessenger(host, port, cryptoService, wireFormat);
+        FRAMED_TCP_MESSENGERS.put(info, messenger);
+
+        return messenger;
+    }
+
     public static SecureMessenger secureUdp(final String host, final int port, final CryptoService cryptoService) {
         final var info = new MessengerInfo(host, port);
         return findOrCreate(SECURE_UDP_MESSENGERS, info, cryptoService, MessengerFactory::createSecureUdpMessenger);
     }
 
+    /**
+     * Mensageiro para uma sessão aberta num servidor UDP de sessões. Não é
+     * reaproveitado entre chamadas, pois cada sessão tem a sua própria cifra.
+     */
+    public static SecureMessenger secureUdp(final String host, final int port, final CryptoService cryptoService,
+            final String sessionId) {
+        return createSecureUdpMessenger(host, port, cryptoService, sessionId);
+    }
+
+    /**
+     * Tenta retomar, por ticket, a sessão aberta anteriormente com o servidor
+     * em {@code host:port}: uma única ida e volta, cifrada com as chaves já
+     * conhecidas e sem nenhuma operação RSA. Retorna vazio se não houver
+     * ticket guardado ou se o servidor não o aceitar, e nesse caso o chamador
+     * deve refazer o handshake completo.
+     */
+    public static Optional<SecureMessenger> resumeUdp(final String host, final int port) {
+        final var handshake = SessionTicketCache.find(host, port);
+        if (handshake.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final String sessionHost = handshake.get().getValue(Fields.HOST);
+        final int sessionPort = handshake.get().getValue(Fields.PORT);
+        final String ticket = handshake.get().getValue(Fields.SESSION_TICKET);
+        final var cryptoService = CryptoServiceFactory.symmetric(handshake.get());
+
+        final var resumer = createSecureUdpMessenger(sessionHost, sessionPort, cryptoService, ticket);
+        try (resumer) {
+            resumer.setTimeout(RESUME_TIMEOUT);
+            resumer.send(new Message(MessageType.RESUME_SESSION));
+            final var response = resumer.receive();
+
+            if (MessageType.OK.equals(response.getType())) {
+                log.info("Sessão com {}:{} retomada por ticket", host, port);
+                handshake.get().withValue(Fields.SESSION_TICKET, response.getValue(Fields.SESSION_TICKET));
+
+                final String sessionId = response.getValue(Fields.SESSION_ID);
+                return Optional.of(createSecureUdpMessenger(sessionHost, sessionPort, cryptoService, sessionId));
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.info("Ticket de sessão com {}:{} não aceito: {}", host, port, e.getMessage());
+        }
+
+        SessionTicketCache.remove(host, port);
+        return Optional.empty();
+    }
+
+    /**
+     * Primeiro contato com o Location Server por acordo de chaves X25519: o
+     * pedido e a resposta vão em texto plano, mas só levam as chaves públicas
+     * efêmeras, então não é preciso gerar um par RSA nem abrir o servidor
+     * assimétrico temporário para receber as chaves AES.
+     */
+    @SneakyThrows
+    public static SecureMessenger agreeUdp(final String host, final int port, final SymmetricOffer offer) {
+        final var insecureMessenger = udp(host, port);
+        insecureMessenger.send(offer.writeTo(new Message(MessageType.USE_SYMMETRIC)));
+        final var response = insecureMessenger.receive();
+        insecureMessenger.close();
+
+        if (!MessageType.OK.equals(response.getType()) || response.getValue(Fields.AGREEMENT_KEY) == null) {
+            throw new HybridCryptoException("Acordo de chaves não aceito por " + host + ":" + port);
+        }
+
+        log.info("Sessão com {}:{} estabelecida por acordo de chaves", host, port);
+
+        final String sessionHost = response.getValue(Fields.HOST);
+        final int sessionPort = response.getValue(Fields.PORT);
+        final String sessionId = response.getValue(Fields.SESSION_ID);
+        final var cryptoService = CryptoServiceFactory.symmetric(offer, response);
+        return createSecureUdpMessenger(sessionHost, sessionPort, cryptoService, sessionId);
+    }
+
     private static <M extends Messenger> M findOrCreate(final Map<MessengerInfo, M> map, final MessengerInfo info,
             final BiFunction<String, Integer, M> creator) {
         return Optional.ofNullable(map.get(info))
@@ -110,10 +222,22 @@ public abstract class MessengerFactory {
         return new SecureTcpMessenger(host, port, cryptoService);
     }
 
+    @SneakyThrows
+    private static SecureTcpMessenger createSecureTcpMessenger(final String host, final int port,
+            final CryptoService cryptoService, final WireFormat wireFormat) {
+        return new SecureTcpMessenger(host, port, cryptoService, wireFormat);
+    }
+
     @SneakyThrows
     private static SecureUdpMessenger createSecureUdpMessenger(final String host, final int port,
             final CryptoService cryptoService) {
         return new SecureUdpMessenger(host, port, cryptoService);
     }
 
+    @SneakyThrows
+    private static SecureUdpMessenger createSecureUdpMessenger(final String host, final int port,
+            final CryptoService cryptoService, final String sessionId) {
+        return new SecureUdpMessenger(host, port, cryptoService, sessionId);
+    }
+
 }
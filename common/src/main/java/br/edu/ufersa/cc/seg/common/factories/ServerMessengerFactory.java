@@ -2,14 +2,20 @@ package br.edu.ufersa.cc.seg.common.factories;
 
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
 
+import br.edu.ufersa.cc.seg.common.concrete_messengers.SecureNioTcpServerMessenger;
+import br.edu.ufersa.cc.seg.common.concrete_messengers.SecureTcpMessenger;
 import br.edu.ufersa.cc.seg.common.concrete_messengers.SecureTcpServerMessenger;
 import br.edu.ufersa.cc.seg.common.concrete_messengers.SecureUdpServerMessenger;
 import br.edu.ufersa.cc.seg.common.concrete_messengers.TcpServerMessenger;
 import br.edu.ufersa.cc.seg.common.concrete_messengers.UdpServerMessenger;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
 import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionServerMessenger;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
@@ -62,19 +68,61 @@ public abstract class ServerMessengerFactory {
         return new SecureTcpServerMessenger(new ServerSocket(port, 50, InetAddress.getByName(host)), cryptoService);
     }
 
+    /**
+     * Servidor TCP seguro orientado a eventos, que atende muitas conexões com
+     * poucas threads. Compatível com os clientes de
+     * {@link MessengerFactory#secureTcp(String, int, CryptoService)}.
+     */
     @SneakyThrows
-    public static ServerMessenger secureUdp(final CryptoService cryptoService) {
+    public static ServerMessenger secureNioTcp(final CryptoService cryptoService) {
+        return new SecureNioTcpServerMessenger(cryptoService);
+    }
+
+    @SneakyThrows
+    public static ServerMessenger secureNioTcp(final int port, final CryptoService cryptoService) {
+        return new SecureNioTcpServerMessenger(port, cryptoService);
+    }
+
+    @SneakyThrows
+    public static ServerMessenger secureNioTcp(final String host, final int port, final CryptoService cryptoService) {
+        final var channel = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getByName(host), port), SecureNioTcpServerMessenger.BACKLOG);
+        return new SecureNioTcpServerMessenger(channel, cryptoService, SecureTcpMessenger.DEFAULT_WIRE_FORMAT);
+    }
+
+    /**
+     * Servidor NIO numa porta livre que divide os reatores do processo com os
+     * demais criados aqui: próprio para quem abre um servidor por cliente
+     */
+    @SneakyThrows
+    public static ServerMessenger secureNioTcpShared(final CryptoService cryptoService) {
+        return SecureNioTcpServerMessenger.onSharedReactors(cryptoService);
+    }
+
+    @SneakyThrows
+    public static SessionServerMessenger secureUdp(final CryptoService cryptoService) {
         return new SecureUdpServerMessenger(cryptoService);
     }
 
     @SneakyThrows
-    public static ServerMessenger secureUdp(final int port, final CryptoService cryptoService) {
+    public static SessionServerMessenger secureUdp(final int port, final CryptoService cryptoService) {
         return new SecureUdpServerMessenger(port, cryptoService);
     }
 
     @SneakyThrows
-    public static ServerMessenger secureUdp(final String host, final int port, final CryptoService cryptoService) {
-        return new SecureUdpServerMessenger(new DatagramSocket(port, InetAddress.getByName(host)), cryptoService);
+    public static SessionServerMessenger secureUdp(final String host, final int port,
+            final CryptoService cryptoService) {
+        final var channel = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getByName(host), port));
+        return new SecureUdpServerMessenger(channel, cryptoService);
+    }
+
+    /**
+     * Servidor UDP que só atende sessões abertas por
+     * {@link SessionServerMessenger#openSession}
+     */
+    @SneakyThrows
+    public static SessionServerMessenger secureUdpSessions() {
+        return new SecureUdpServerMessenger(null);
     }
 
 }
@@ -4,8 +4,10 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import br.edu.ufersa.cc.seg.common.factories.MessageCodecFactory;
 import br.edu.ufersa.cc.seg.common.utils.MessageType;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,13 +22,19 @@ public class Message implements Serializable {
     private MessageType type;
     private final Map<String, Object> values = new HashMap<>();
 
+    /**
+     * Identificador que associa uma resposta à sua requisição, usado por
+     * {@link Messenger#request(Message)}. Nulo nas mensagens em lock-step.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long correlationId;
+
     public Message(final MessageType type) {
         this.type = type;
     }
 
-    @SneakyThrows
     public static Message fromBytes(final byte[] bytes) {
-        return MAPPER.readValue(bytes, Message.class);
+        return MessageCodecFactory.forPayload(bytes).decode(bytes);
     }
 
     @SneakyThrows
@@ -34,9 +42,8 @@ public class Message implements Serializable {
         return MAPPER.readValue(json, Message.class);
     }
 
-    @SneakyThrows
     public byte[] toBytes() {
-        return MAPPER.writeValueAsBytes(this);
+        return MessageCodecFactory.getDefault().encode(this);
     }
 
     @SneakyThrows
@@ -49,6 +56,23 @@ public class Message implements Serializable {
         return this;
     }
 
+    /**
+     * Copia o identificador de correlação da requisição para esta resposta
+     */
+    public Message correlateWith(final Message request) {
+        this.correlationId = request.getCorrelationId();
+        return this;
+    }
+
+    /**
+     * Cópia rasa, com o mesmo tipo e os mesmos valores, mas sem correlação
+     */
+    public Message copy() {
+        final var copy = new Message(type);
+        copy.values.putAll(values);
+        return copy;
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T getValue(final String key) {
         return (T) values.get(key);
@@ -0,0 +1,18 @@
+package br.edu.ufersa.cc.seg.common.messengers;
+
+/**
+ * Conversão de uma {@link Message} para os bytes que serão cifrados e
+ * enviados, e de volta.
+ * <p>
+ * Toda implementação deve entregar ao destinatário os mesmos tipos que a
+ * desserialização JSON entregaria ({@code String}, {@code Integer},
+ * {@code Long}, {@code Double}, {@code Boolean}, {@code List} e {@code Map}),
+ * pois os tratadores fazem conversões diretas sobre os valores recebidos.
+ */
+public interface MessageCodec {
+
+    byte[] encode(final Message message);
+
+    Message decode(final byte[] bytes);
+
+}
@@ -4,10 +4,18 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
+import br.edu.ufersa.cc.seg.common.factories.ExecutorFactory;
 import br.edu.ufersa.cc.seg.common.utils.ConnectionType;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -16,43 +24,81 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public abstract class Messenger implements Closeable {
 
+    /** Tempo máximo de espera de uma resposta de {@link #request(Message)} */
+    public static final int REQUEST_TIMEOUT = 30_000;
+
+    /** Falhas seguidas de decodificação que encerram a leitura de respostas */
+    private static final int MAX_DECODE_FAILURES = 16;
+
+    private static final AtomicLong NEXT_CORRELATION_ID = new AtomicLong();
+
     private final Set<Subscription> subscriptions = new HashSet<>();
 
+    private final Map<Long, CompletableFuture<Message>> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+    private final Object sendLock = new Object();
+
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     public class Subscription implements Closeable {
         private final Function<Message, Message> callback;
-        private Thread thread;
+        private Future<?> task;
 
         private AtomicBoolean isRunning = new AtomicBoolean(false);
 
+        /**
+         * Responde com o retorno do callback; {@code null} significa que não há
+         * resposta a enviar, como nos servidores
+         */
         public void handleRequest(final Message request) {
             final var response = callback.apply(request);
-            send(response);
+            if (response == null) {
+                return;
+            }
+            synchronized (sendLock) {
+                send(response.correlateWith(request));
+            }
         }
 
         private void start() {
             isRunning.set(true);
             subscriptions.add(this);
 
-            thread = new Thread(() -> {
+            task = ExecutorFactory.sessions().submit(() -> {
                 while (isRunning.get()) {
                     try {
                         log.info("Aguardando requisições...");
-                        handleRequest(receive());
+                        final var request = receive();
+
+                        // Com correlationId, o cliente aceita respostas fora de ordem
+                        if (request.getCorrelationId() != null) {
+                            ExecutorFactory.sessions().execute(() -> handleCorrelated(request));
+                        } else {
+                            handleRequest(request);
+                        }
                     } catch (final IOException e) {
                         log.info("Parando leitura...");
                         isRunning.set(false);
+                    } catch (final RuntimeException e) {
+                        // O executor não reporta exceções das tarefas, então registrar aqui
+                        log.error("Erro na sessão, parando leitura...", e);
+                        isRunning.set(false);
                     }
                 }
             });
+        }
 
-            thread.start();
+        private void handleCorrelated(final Message request) {
+            try {
+                handleRequest(request);
+            } catch (final RuntimeException e) {
+                log.error("Erro ao tratar requisição {}", request.getCorrelationId(), e);
+            }
         }
 
         @Override
         public void close() throws IOException {
             isRunning.set(false);
-            thread.interrupt();
+            task.cancel(true);
         }
     }
 
@@ -68,6 +114,38 @@ public abstract class Messenger implements Closeable {
 
     public abstract boolean isClosed();
 
+    /**
+     * Envia a requisição sem bloquear e devolve a resposta quando ela chegar.
+     * <p>
+     * Cada requisição leva um {@code correlationId} próprio, e uma única
+     * leitura em segundo plano entrega cada resposta ao pedido
+     * correspondente, então várias requisições podem estar em andamento na
+     * mesma conexão e ser concluídas fora de ordem. A mensagem original não é
+     * alterada. Depois do primeiro {@code request()}, a leitura pertence a esse
+     * laço e {@link #receive()} não deve mais ser chamado diretamente.
+     */
+    public CompletableFuture<Message> request(final Message message) {
+        final var correlationId = NEXT_CORRELATION_ID.incrementAndGet();
+        final var outgoing = message.copy();
+        outgoing.setCorrelationId(correlationId);
+
+        final var future = new CompletableFuture<Message>();
+        pendingRequests.put(correlationId, future);
+        future.orTimeout(REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> pendingRequests.remove(correlationId));
+
+        startDispatcher();
+        try {
+            synchronized (sendLock) {
+                send(outgoing);
+            }
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
     public Subscription subscribe(final Function<Message, Message> callback) {
         final var subscription = new Subscription(callback);
         subscription.start();
@@ -75,6 +153,66 @@ public abstract class Messenger implements Closeable {
         return subscription;
     }
 
+    private void startDispatcher() {
+        if (dispatching.compareAndSet(false, true)) {
+            ExecutorFactory.sessions().execute(this::dispatchResponses);
+        }
+    }
+
+    /**
+     * Laço de leitura do {@link #request(Message)}. Respostas sem
+     * {@code correlationId} (pares antigos, em lock-step) só são entregues
+     * quando há exatamente um pedido em aberto; com mais de um, não há como
+     * saber a qual pertencem, e elas são descartadas.
+     * <p>
+     * Um quadro que não pode ser decifrado ou decodificado é registrado e
+     * descartado, sem derrubar os demais pedidos; só erros de E/S (ou
+     * {@link #MAX_DECODE_FAILURES} falhas seguidas) encerram a leitura.
+     */
+    private void dispatchResponses() {
+        try {
+            var failures = 0;
+            while (!isClosed()) {
+                final Message response;
+                try {
+                    response = receive();
+                    failures = 0;
+                } catch (final RuntimeException e) {
+                    if (++failures >= MAX_DECODE_FAILURES) {
+                        throw e;
+                    }
+                    log.warn("Descartando resposta inválida: {}", e.getMessage());
+                    continue;
+                }
+
+                deliver(response);
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.info("Parando leitura de respostas: {}", e.getMessage());
+        } finally {
+            dispatching.set(false);
+            pendingRequests.values().forEach(future -> future
+                    .completeExceptionally(new IOException("Conexão encerrada com requisições pendentes")));
+        }
+    }
+
+    private void deliver(final Message response) {
+        final Long correlationId;
+        if (response.getCorrelationId() != null) {
+            correlationId = response.getCorrelationId();
+        } else {
+            final var pending = List.copyOf(pendingRequests.keySet());
+            correlationId = pending.size() == 1 ? pending.getFirst() : null;
+        }
+
+        final var future = correlationId == null ? null : pendingRequests.remove(correlationId);
+        if (future == null) {
+            log.warn("Descartando resposta do tipo {} sem requisição pendente correspondente", response.getType());
+        } else {
+            future.complete(response);
+        }
+    }
+
     protected void closeSubscriptions() {
         subscriptions.forEach(subscription -> {
             try {
@@ -0,0 +1,202 @@
+package br.edu.ufersa.cc.seg.common.messengers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Conjunto de mensageiros para um mesmo servidor, cada um usado por um
+ * chamador de cada vez. As conexões são abertas sob demanda (com o handshake
+ * feito pela fábrica informada), até o limite do pool, e reaproveitadas na
+ * ordem inversa da devolução, para manter as mais recentes aquecidas.
+ * <p>
+ * Conexões fechadas são descartadas ao serem emprestadas ou devolvidas, e as
+ * que falham durante uma requisição são descartadas por
+ * {@link #invalidate(Messenger)}, de modo que a próxima requisição abre uma
+ * nova. Como uma sessão UDP nunca aparece fechada deste lado, conexões
+ * ociosas há mais de {@code MESSENGER_POOL_IDLE} ms também são descartadas ao
+ * serem emprestadas: o servidor pode já ter esquecido a sessão.
+ */
+@Slf4j
+public class MessengerPool implements Closeable {
+
+    public static final String SIZE_VARIABLE = "MESSENGER_POOL_SIZE";
+    public static final String IDLE_VARIABLE = "MESSENGER_POOL_IDLE";
+    public static final int BORROW_TIMEOUT = 10_000;
+
+    /** Retrato dos contadores do pool */
+    @Value
+    public static class Stats {
+        String name;
+        int size;
+        int open;
+        int idle;
+        long created;
+        long evicted;
+        long borrowed;
+        long waited;
+    }
+
+    private static final long DEFAULT_MAX_IDLE = 60_000;
+
+    /** Conexão ociosa e o instante em que foi devolvida */
+    private record Idle(Messenger messenger, long since) {
+    }
+
+    private final String name;
+    private final int size;
+    private final long maxIdle;
+    private final Supplier<? extends Messenger> factory;
+
+    private final Deque<Idle> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+
+    private volatile boolean closed;
+
+    public MessengerPool(final String name, final int size, final Supplier<? extends Messenger> factory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("O pool precisa de ao menos uma conexão");
+        }
+
+        this.name = name;
+        this.size = size;
+        this.maxIdle = Optional.ofNullable(System.getenv(IDLE_VARIABLE))
+                .map(Long::parseLong)
+                .orElse(DEFAULT_MAX_IDLE);
+        this.factory = factory;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Tamanho definido pela variável de ambiente {@code MESSENGER_POOL_SIZE}
+     * (padrão: número de processadores)
+     */
+    public static int sizeFromEnv() {
+        return Optional.ofNullable(System.getenv(SIZE_VARIABLE))
+                .map(Integer::parseInt)
+                .orElse(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Empresta uma conexão saudável, abrindo uma nova se não houver nenhuma
+     * ociosa. Espera até {@link #BORROW_TIMEOUT} ms se todas estiverem em uso.
+     */
+    @SneakyThrows
+    public Messenger borrow() {
+        if (closed) {
+            throw new IllegalStateException("Pool " + name + " encerrado");
+        }
+
+        if (!permits.tryAcquire()) {
+            waited.increment();
+            if (!permits.tryAcquire(BORROW_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Nenhuma conexão livre no pool " + name);
+            }
+        }
+
+        try {
+            final var now = System.currentTimeMillis();
+            Idle candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                if (!candidate.messenger().isClosed() && now - candidate.since() <= maxIdle) {
+                    borrowed.increment();
+                    return candidate.messenger();
+                }
+                discard(candidate.messenger());
+            }
+
+            final var messenger = factory.get();
+            open.incrementAndGet();
+            created.increment();
+            borrowed.increment();
+            log.info("Nova conexão no pool {} ({}/{})", name, open.get(), size);
+            return messenger;
+        } catch (final RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Devolve uma conexão emprestada
+     */
+    public void release(final Messenger messenger) {
+        if (closed || messenger.isClosed()) {
+            discard(messenger);
+        } else {
+            idle.offerFirst(new Idle(messenger, System.currentTimeMillis()));
+        }
+        permits.release();
+    }
+
+    /**
+     * Descarta uma conexão emprestada que falhou
+     */
+    public void invalidate(final Messenger messenger) {
+        log.warn("Descartando conexão com falha do pool {}", name);
+        discard(messenger);
+        permits.release();
+    }
+
+    /**
+     * Faz uma requisição numa conexão emprestada e a devolve em seguida. Se a
+     * requisição falhar (inclusive por tempo esgotado), a conexão é descartada.
+     */
+    public Message request(final Message message) {
+        final var messenger = borrow();
+
+        final Message response;
+        try {
+            response = messenger.request(message).join();
+        } catch (final RuntimeException e) {
+            invalidate(messenger);
+            throw e;
+        }
+
+        release(messenger);
+        return response;
+    }
+
+    public Stats stats() {
+        return new Stats(name, size, open.get(), idle.size(), created.sum(), evicted.sum(), borrowed.sum(),
+                waited.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        Idle candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            discard(candidate.messenger());
+        }
+    }
+
+    private void discard(final Messenger messenger) {
+        open.decrementAndGet();
+        evicted.increment();
+        try {
+            messenger.close();
+        } catch (final IOException | RuntimeException ignore) {
+            // Ignorar
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package br.edu.ufersa.cc.seg.common.messengers;
+
+import java.util.function.Function;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricKeys;
+
+/**
+ * Servidor que atende várias sessões seguras pelo mesmo socket. Cada
+ * mensagem indica a sua sessão no cabeçalho do envelope seguro, e o servidor
+ * usa a cifra e o tratador registrados para ela.
+ */
+public interface SessionServerMessenger extends ServerMessenger {
+
+    /**
+     * Registra uma nova sessão e retorna o identificador que os clientes devem
+     * enviar em suas mensagens
+     */
+    String openSession(final CryptoService cryptoService, final Function<Message, Message> callback);
+
+    void closeSession(final String sessionId);
+
+    /**
+     * Emite um ticket opaco e com validade que permite ao cliente reabrir uma
+     * sessão com as mesmas chaves, enviando um {@code RESUME_SESSION} com o
+     * ticket no lugar do identificador de sessão, sem refazer o handshake RSA
+     */
+    String issueTicket(final SymmetricKeys keys);
+
+    /**
+     * Habilita a retomada de sessões por ticket. A função recebe o
+     * identificador da sessão retomada e devolve o tratador das suas mensagens.
+     */
+    void enableResumption(final Function<String, Function<Message, Message>> callbacks);
+
+}
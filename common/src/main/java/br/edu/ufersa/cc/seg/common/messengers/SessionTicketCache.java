@@ -0,0 +1,42 @@
+package br.edu.ufersa.cc.seg.common.messengers;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Respostas de {@code USE_SYMMETRIC} que trouxeram um ticket de retomada,
+ * indexadas pelo endereço do servidor que as emitiu. Cada resposta contém o
+ * endereço da sessão, o modo, as chaves e o ticket, que é tudo o que o
+ * cliente precisa para reabrir a sessão sem RSA.
+ * <p>
+ * Fica apenas em memória, pois guarda chaves de sessão.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class SessionTicketCache {
+
+    private static final Map<String, Message> HANDSHAKES = new ConcurrentHashMap<>();
+
+    public static void store(final String host, final int port, final Message handshake) {
+        if (handshake.getValue(Fields.SESSION_TICKET) != null) {
+            HANDSHAKES.put(key(host, port), handshake);
+        }
+    }
+
+    public static Optional<Message> find(final String host, final int port) {
+        return Optional.ofNullable(HANDSHAKES.get(key(host, port)));
+    }
+
+    public static void remove(final String host, final int port) {
+        HANDSHAKES.remove(key(host, port));
+    }
+
+    private static String key(final String host, final int port) {
+        return host + ":" + port;
+    }
+
+}
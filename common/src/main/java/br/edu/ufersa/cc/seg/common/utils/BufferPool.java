@@ -0,0 +1,107 @@
+package br.edu.ufersa.cc.seg.common.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conjunto de {@link ByteBuffer}s reaproveitados entre mensagens, para que a
+ * codificação dos quadros não aloque um buffer novo a cada envio ou
+ * recebimento.
+ * <p>
+ * Os buffers são separados em classes de tamanho (por padrão 1 KB, 4 KB e
+ * 64 KB), e cada pedido recebe um da menor classe que comporte o tamanho
+ * informado. Assim uma leitura de poucas centenas de bytes não prende um
+ * buffer de 64 KB. Pedidos maiores que a maior classe recebem um buffer
+ * avulso, que é descartado na devolução.
+ */
+public class BufferPool {
+
+    public static final BufferPool SHARED = new BufferPool(new int[] { 1024, 4 * 1024, 64 * 1024 }, 256);
+
+    private final int[] sizes;
+    private final int maxPooled;
+
+    private final SizeClass[] classes;
+
+    /** Buffers livres de um mesmo tamanho */
+    private static class SizeClass {
+        private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pooled = new AtomicInteger();
+    }
+
+    /**
+     * @param sizes     tamanhos das classes, em ordem crescente
+     * @param maxPooled máximo de buffers livres guardados em cada classe
+     */
+    public BufferPool(final int[] sizes, final int maxPooled) {
+        for (var i = 1; i < sizes.length; i++) {
+            if (sizes[i] <= sizes[i - 1]) {
+                throw new IllegalArgumentException("Os tamanhos das classes devem ser crescentes");
+            }
+        }
+
+        this.sizes = sizes.clone();
+        this.maxPooled = maxPooled;
+        this.classes = new SizeClass[sizes.length];
+        for (var i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass();
+        }
+    }
+
+    /**
+     * Maior tamanho servido pelo conjunto
+     */
+    public int getBufferSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    /**
+     * Obtém um buffer vazio (em modo de escrita) com pelo menos a capacidade
+     * informada
+     */
+    public ByteBuffer acquire(final int minCapacity) {
+        final var index = classFor(minCapacity);
+        if (index < 0) {
+            return ByteBuffer.allocate(minCapacity);
+        }
+
+        final var sizeClass = classes[index];
+        final var buffer = sizeClass.buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(sizes[index]);
+        }
+
+        sizeClass.pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    public void release(final ByteBuffer buffer) {
+        final var index = classFor(buffer.capacity());
+        if (index < 0 || sizes[index] != buffer.capacity()) {
+            return;
+        }
+
+        final var sizeClass = classes[index];
+        if (sizeClass.pooled.incrementAndGet() > maxPooled) {
+            sizeClass.pooled.decrementAndGet();
+            return;
+        }
+
+        sizeClass.buffers.offer(buffer.clear());
+    }
+
+    /**
+     * Índice da menor classe que comporta a capacidade, ou {@code -1}
+     */
+    private int classFor(final int capacity) {
+        for (var i = 0; i < sizes.length; i++) {
+            if (capacity <= sizes[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,52 @@
+package br.edu.ufersa.cc.seg.common.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Leitura de um fluxo de eventos do servidor ({@code text/event-stream}).
+ * Cada evento é entregue com o seu nome e os seus dados; comentários (usados
+ * pelo servidor para manter a conexão viva) são descartados.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class EventStream {
+
+    public static final String CONTENT_TYPE = "text/event-stream";
+
+    /**
+     * Lê eventos até o fim do fluxo, bloqueando a thread chamadora
+     */
+    public static void read(final InputStream in, final BiConsumer<String, String> onEvent) throws IOException {
+        try (final var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            var event = "message";
+            final var data = new StringBuilder();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    // Linha em branco encerra o evento
+                    if (!data.isEmpty()) {
+                        onEvent.accept(event, data.toString());
+                    }
+                    event = "message";
+                    data.setLength(0);
+                } else if (line.startsWith("event:")) {
+                    event = line.substring("event:".length()).strip();
+                } else if (line.startsWith("data:")) {
+                    if (!data.isEmpty()) {
+                        data.append('\n');
+                    }
+                    data.append(line.substring("data:".length()).strip());
+                }
+            }
+        }
+    }
+
+}
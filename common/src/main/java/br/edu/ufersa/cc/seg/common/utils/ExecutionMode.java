@@ -0,0 +1,14 @@
+package br.edu.ufersa.cc.seg.common.utils;
+
+/**
+ * Tipo de thread usada para executar as sessões dos mensageiros.
+ */
+public enum ExecutionMode {
+
+    /** Uma thread virtual por tarefa (padrão) */
+    VIRTUAL,
+
+    /** Uma thread de plataforma por tarefa, como nas versões anteriores */
+    PLATFORM;
+
+}
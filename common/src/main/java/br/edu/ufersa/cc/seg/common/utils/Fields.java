@@ -14,5 +14,15 @@ public abstract class Fields {
     public static final String ENCRYPTION_KEY = "encryptionKey";
     public static final String HMAC_KEY = "hmacKey";
     public static final String TOKEN = "token";
+    public static final String SESSION_ID = "sessionId";
+    public static final String SYMMETRIC_MODE = "symmetricMode";
+    public static final String SESSION_TICKET = "sessionTicket";
+    public static final String AGREEMENT_KEY = "agreementKey";
+    public static final String DEVICE_NAME = "deviceName";
+    public static final String TIMESTAMP = "timestamp";
+    public static final String READINGS = "readings";
+    public static final String VERDICTS = "verdicts";
+    public static final String READING_ID = "readingId";
+    public static final String PROOF = "proof";
 
 }
@@ -0,0 +1,17 @@
+package br.edu.ufersa.cc.seg.common.utils;
+
+/**
+ * Como as chaves simétricas de um {@code USE_SYMMETRIC} são estabelecidas.
+ * Quem pede a conexão oferece uma chave pública efêmera em
+ * {@link Fields#AGREEMENT_KEY}; se quem responde não devolver a sua, as
+ * chaves vêm na própria resposta, como nos pares antigos.
+ */
+public enum KeyExchange {
+
+    /** Chaves geradas por quem responde e enviadas pelo canal RSA */
+    KEY_TRANSPORT,
+
+    /** ECDH X25519 com chaves efêmeras, seguido de HKDF-SHA256 */
+    X25519;
+
+}
@@ -1,27 +1,62 @@
 package br.edu.ufersa.cc.seg.common.utils;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+/**
+ * Tipos de mensagem. Cada um tem um código fixo, usado no formato binário no
+ * lugar da posição na enumeração: um código nunca muda nem é reaproveitado,
+ * para que versões diferentes continuem se entendendo.
+ */
 @Getter
+@AllArgsConstructor
 public enum MessageType {
 
     /*
      * Requests
      */
-    REGISTER_SERVER,
-    LOCATE_SERVER,
-    REMOVE_SERVER,
-    SEND_SNAPSHOT,
-    STORE_SNAPSHOT,
-    AUTHENTICATE,
-    USE_SYMMETRIC,
+    REGISTER_SERVER(1),
+    LOCATE_SERVER(2),
+    REMOVE_SERVER(3),
+    SEND_SNAPSHOT(4),
+    STORE_SNAPSHOT(5),
+    AUTHENTICATE(6),
+    USE_SYMMETRIC(7),
+    RETRACT_SNAPSHOT(12),
+    SEND_SNAPSHOT_BATCH(13),
+    STORE_SNAPSHOT_BATCH(14),
+    RESUME_SESSION(11),
+    CLOSE_SESSION(15),
 
     /*
      * Responses
      */
-    OK,
-    ERROR,
-    UNAUTHORIZED,
+    OK(8),
+    ERROR(9),
+    UNAUTHORIZED(10),
     ;
 
+    private static final MessageType[] BY_CODE = new MessageType[16];
+
+    static {
+        for (final var type : values()) {
+            if (BY_CODE[type.code] != null) {
+                throw new IllegalStateException("Código repetido: " + type.code);
+            }
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    /**
+     * @throws IllegalArgumentException se nenhum tipo tiver o código
+     */
+    public static MessageType fromCode(final int code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Tipo de mensagem desconhecido: " + code);
+        }
+        return BY_CODE[code];
+    }
+
 }
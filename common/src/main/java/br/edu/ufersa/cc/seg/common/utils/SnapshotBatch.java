@@ -0,0 +1,153 @@
+package br.edu.ufersa.cc.seg.common.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Conversão entre leituras avulsas ({@code SEND_SNAPSHOT}/{@code STORE_SNAPSHOT})
+ * e lotes ({@code SEND_SNAPSHOT_BATCH}/{@code STORE_SNAPSHOT_BATCH}).
+ * <p>
+ * Um lote guarda uma única vez os campos comuns às leituras (nome do
+ * dispositivo, token etc.) e, em {@link Fields#READINGS}, uma lista com o
+ * instante e os valores de cada elemento de cada leitura e, opcionalmente,
+ * o seu identificador ({@link Fields#READING_ID}).
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public abstract class SnapshotBatch {
+
+    public static boolean isBatch(final Message message) {
+        return MessageType.SEND_SNAPSHOT_BATCH.equals(message.getType())
+                || MessageType.STORE_SNAPSHOT_BATCH.equals(message.getType());
+    }
+
+    /**
+     * Agrupa leituras do mesmo dispositivo num lote do tipo informado. Os
+     * campos comuns são tirados da primeira leitura.
+     */
+    public static Message pack(final MessageType type, final List<Message> readings) {
+        final var batch = new Message(type);
+        readings.getFirst().getValues().forEach((key, value) -> {
+            if (!isReadingKey(key)) {
+                batch.withValue(key, value);
+            }
+        });
+
+        final List<Map<String, Object>> packed = new ArrayList<>(readings.size());
+        for (final var reading : readings) {
+            final Map<String, Object> values = new LinkedHashMap<>();
+            values.put(Fields.TIMESTAMP, reading.getValue(Fields.TIMESTAMP));
+            for (final var element : Element.values()) {
+                values.put(element.name(), reading.getValue(element.name()));
+            }
+            if (reading.getValue(Fields.READING_ID) != null) {
+                values.put(Fields.READING_ID, reading.getValue(Fields.READING_ID));
+            }
+            packed.add(values);
+        }
+
+        return batch.withValue(Fields.READINGS, packed);
+    }
+
+    /**
+     * Separa um lote em leituras avulsas, do tipo avulso correspondente
+     */
+    public static List<Message> unpack(final Message batch) {
+        final var type = MessageType.STORE_SNAPSHOT_BATCH.equals(batch.getType())
+                ? MessageType.STORE_SNAPSHOT
+                : MessageType.SEND_SNAPSHOT;
+
+        final List<Map<String, Object>> packed = batch.getValue(Fields.READINGS);
+        final List<Message> readings = new ArrayList<>(packed.size());
+        for (final var values : packed) {
+            final var reading = new Message(type);
+            batch.getValues().forEach((key, value) -> {
+                if (!Fields.READINGS.equals(key)) {
+                    reading.withValue(key, value);
+                }
+            });
+            values.forEach(reading::withValue);
+            readings.add(reading);
+        }
+
+        return readings;
+    }
+
+    /**
+     * Leituras de uma mensagem, seja ela avulsa ou um lote
+     */
+    public static List<Message> readingsOf(final Message message) {
+        return isBatch(message) ? unpack(message) : List.of(message);
+    }
+
+    /**
+     * Quantidade de leituras de uma mensagem, sem separar o lote
+     */
+    public static int countOf(final Message message) {
+        return isBatch(message) ? message.<List<?>>getValue(Fields.READINGS).size() : 1;
+    }
+
+    /**
+     * Cópia da mensagem (avulsa ou lote) com um identificador novo em cada
+     * leitura, que a acompanha até o banco e permite retirá-la depois. A
+     * mensagem original não é alterada.
+     */
+    public static Message identify(final Message message) {
+        if (!isBatch(message)) {
+            return message.copy().withValue(Fields.READING_ID, UUID.randomUUID().toString());
+        }
+
+        final List<Map<String, Object>> packed = message.getValue(Fields.READINGS);
+        final List<Map<String, Object>> identified = new ArrayList<>(packed.size());
+        for (final var values : packed) {
+            final Map<String, Object> copy = new LinkedHashMap<>(values);
+            copy.put(Fields.READING_ID, UUID.randomUUID().toString());
+            identified.add(copy);
+        }
+
+        return message.copy().withValue(Fields.READINGS, identified);
+    }
+
+    /**
+     * Cópia do lote apenas com as leituras cujo veredito é {@code true}
+     *
+     * @throws IllegalArgumentException se não houver um veredito por leitura
+     */
+    public static Message filter(final Message batch, final List<Boolean> verdicts) {
+        final List<Map<String, Object>> packed = batch.getValue(Fields.READINGS);
+        if (verdicts.size() != packed.size()) {
+            throw new IllegalArgumentException(
+                    "Esperados " + packed.size() + " vereditos, recebidos " + verdicts.size());
+        }
+
+        final List<Map<String, Object>> kept = new ArrayList<>(packed.size());
+        for (var i = 0; i < packed.size(); i++) {
+            if (Boolean.TRUE.equals(verdicts.get(i))) {
+                kept.add(packed.get(i));
+            }
+        }
+
+        return batch.copy().withValue(Fields.READINGS, kept);
+    }
+
+    private static boolean isReadingKey(final String key) {
+        if (Fields.TIMESTAMP.equals(key) || Fields.READING_ID.equals(key)) {
+            return true;
+        }
+
+        for (final var element : Element.values()) {
+            if (element.name().equals(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,17 @@
+package br.edu.ufersa.cc.seg.common.utils;
+
+/**
+ * Cifra simétrica negociada no {@code USE_SYMMETRIC}. Quem pede a conexão
+ * informa o modo preferido em {@link Fields#SYMMETRIC_MODE} e quem responde
+ * devolve o modo escolhido junto com as chaves. A ausência do campo indica um
+ * par antigo, que só conhece {@link #AES_CBC_HMAC}.
+ */
+public enum SymmetricMode {
+
+    /** AES/CBC seguido de HmacSHA256, com chaves separadas */
+    AES_CBC_HMAC,
+
+    /** AES/GCM, que cifra e autentica em uma única passada com uma só chave */
+    AES_GCM;
+
+}
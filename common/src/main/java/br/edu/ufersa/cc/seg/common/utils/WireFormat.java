@@ -0,0 +1,25 @@
+package br.edu.ufersa.cc.seg.common.utils;
+
+/**
+ * Formato usado para transportar uma {@code SecureMessage} nos mensageiros
+ * seguros. No UDP, cada datagrama leva o envelope sem o prefixo de tamanho.
+ */
+public enum WireFormat {
+
+    /**
+     * Serialização nativa do Java via {@code ObjectOutputStream}
+     */
+    JAVA_SERIALIZATION,
+
+    /**
+     * Quadros com prefixo de tamanho (4 bytes) seguidos da mensagem em JSON
+     */
+    JSON,
+
+    /**
+     * Quadros com prefixo de tamanho (4 bytes) seguidos dos campos da mensagem
+     * em binário, sem reflexão nem base64
+     */
+    BINARY;
+
+}
@@ -0,0 +1,87 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoException;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
+
+class AESGCMServiceTest {
+
+    private static final byte[] MESSAGE = "leitura de CO2: 415.2".getBytes(StandardCharsets.UTF_8);
+
+    private final AESGCMService service = new AESGCMService(CryptoServiceFactory.generateAESKey());
+
+    /** Cópia da mensagem, para adulterar sem afetar a original */
+    private static SecureMessage copy(final SecureMessage message) {
+        return SecureMessage.builder()
+                .encryptedContent(message.getEncryptedContent().clone())
+                .iv(message.getIv().clone())
+                .timestamp(message.getTimestamp())
+                .build();
+    }
+
+    @Test
+    void decryptsWhatItEncrypts() {
+        final var secureMessage = service.encrypt(MESSAGE);
+
+        assertNull(secureMessage.getHmac());
+        assertArrayEquals(MESSAGE, service.decrypt(secureMessage));
+        // A mesma sessão cifra várias mensagens com os mesmos Ciphers
+        assertArrayEquals(MESSAGE, service.decrypt(service.encrypt(MESSAGE)));
+    }
+
+    @Test
+    void rejectsTamperedContent() {
+        final var tampered = copy(service.encrypt(MESSAGE));
+        tampered.getEncryptedContent()[0] ^= 1;
+
+        assertThrows(CryptoException.class, () -> service.decrypt(tampered));
+    }
+
+    @Test
+    void rejectsTamperedTag() {
+        final var tampered = copy(service.encrypt(MESSAGE));
+        final var content = tampered.getEncryptedContent();
+        content[content.length - 1] ^= 1;
+
+        assertThrows(CryptoException.class, () -> service.decrypt(tampered));
+    }
+
+    @Test
+    void rejectsTamperedTimestamp() {
+        // O timestamp é dado associado: mudá-lo invalida a tag
+        final var tampered = copy(service.encrypt(MESSAGE));
+        tampered.setTimestamp(tampered.getTimestamp() + 1);
+
+        assertThrows(CryptoException.class, () -> service.decrypt(tampered));
+    }
+
+    @Test
+    void rejectsTamperedOrMissingIv() {
+        final var tampered = copy(service.encrypt(MESSAGE));
+        tampered.getIv()[0] ^= 1;
+        final var shortIv = copy(service.encrypt(MESSAGE));
+        shortIv.setIv(new byte[8]);
+        final var noIv = copy(service.encrypt(MESSAGE));
+        noIv.setIv(null);
+
+        assertThrows(CryptoException.class, () -> service.decrypt(tampered));
+        assertThrows(CryptoException.class, () -> service.decrypt(shortIv));
+        assertThrows(CryptoException.class, () -> service.decrypt(noIv));
+    }
+
+    @Test
+    void rejectsMessageFromAnotherKey() {
+        final var other = new AESGCMService(CryptoServiceFactory.generateAESKey());
+
+        assertThrows(CryptoException.class, () -> service.decrypt(other.encrypt(MESSAGE)));
+    }
+
+}
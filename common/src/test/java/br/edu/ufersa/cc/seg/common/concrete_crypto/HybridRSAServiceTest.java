@@ -0,0 +1,92 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoException;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoServicePair;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
+
+class HybridRSAServiceTest {
+
+    private static final byte[] MESSAGE = "USE_SYMMETRIC".getBytes(StandardCharsets.UTF_8);
+
+    private static final CryptoServicePair PAIR = CryptoServiceFactory.rsaPair();
+
+    private final CryptoService publicSide = PAIR.getPublicSide();
+    private final CryptoService privateSide = PAIR.getPrivateSide();
+
+    private static SecureMessage copy(final SecureMessage message) {
+        return SecureMessage.builder()
+                .encryptedContent(message.getEncryptedContent().clone())
+                .iv(message.getIv().clone())
+                .timestamp(message.getTimestamp())
+                .build();
+    }
+
+    @Test
+    void decryptsWhatPublicSideEncrypts() {
+        final var secureMessage = publicSide.encrypt(MESSAGE);
+
+        assertNotNull(secureMessage.getIv());
+        assertArrayEquals(MESSAGE, privateSide.decrypt(secureMessage));
+    }
+
+    @Test
+    void encryptsMessagesLargerThanRsaBlock() {
+        // RSA puro de 2048 bits não cifra mais que 245 bytes
+        final var large = new byte[64 * 1024];
+        Arrays.fill(large, (byte) 'x');
+
+        assertArrayEquals(large, privateSide.decrypt(publicSide.encrypt(large)));
+    }
+
+    @Test
+    void rejectsTamperedContent() {
+        final var tampered = copy(publicSide.encrypt(MESSAGE));
+        final var content = tampered.getEncryptedContent();
+        content[content.length - 1] ^= 1;
+
+        assertThrows(CryptoException.class, () -> privateSide.decrypt(tampered));
+    }
+
+    @Test
+    void rejectsTamperedTimestamp() {
+        final var tampered = copy(publicSide.encrypt(MESSAGE));
+        tampered.setTimestamp(tampered.getTimestamp() - 1);
+
+        assertThrows(CryptoException.class, () -> privateSide.decrypt(tampered));
+    }
+
+    @Test
+    void rejectsInvalidWrappedKeyLength() {
+        final var tampered = copy(publicSide.encrypt(MESSAGE));
+        final var content = tampered.getEncryptedContent();
+        content[0] = 0x7F;
+
+        assertThrows(CryptoException.class, () -> privateSide.decrypt(tampered));
+    }
+
+    @Test
+    void rejectsMessageForAnotherKeyPair() {
+        final var other = CryptoServiceFactory.rsaPair().getPublicSide();
+
+        assertThrows(CryptoException.class, () -> privateSide.decrypt(other.encrypt(MESSAGE)));
+    }
+
+    @Test
+    void decryptsLegacyRsaMessagesWithoutIv() {
+        final var legacy = new RSAService(AsymmetricMode.PUBLIC, PAIR.getPublicKey().getEncoded());
+
+        assertArrayEquals(MESSAGE, privateSide.decrypt(legacy.encrypt(MESSAGE)));
+    }
+
+}
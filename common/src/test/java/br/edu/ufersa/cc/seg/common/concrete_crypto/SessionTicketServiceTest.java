@@ -0,0 +1,91 @@
+package br.edu.ufersa.cc.seg.common.concrete_crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
+import br.edu.ufersa.cc.seg.common.utils.SymmetricMode;
+
+class SessionTicketServiceTest {
+
+    private static final byte[] MESSAGE = "retomada".getBytes(StandardCharsets.UTF_8);
+
+    private final SessionTicketService tickets = new SessionTicketService(Duration.ofMinutes(1));
+
+    @ParameterizedTest
+    @EnumSource(SymmetricMode.class)
+    void opensWhatItIssues(final SymmetricMode mode) {
+        final var keys = CryptoServiceFactory.generateSymmetric(mode);
+
+        final var opened = tickets.open(tickets.issue(keys)).orElseThrow();
+
+        assertEquals(mode, opened.getMode());
+        assertEquals(keys.getEncryptionKey(), opened.getEncryptionKey());
+        if (keys.getHmacKey() == null) {
+            assertNull(opened.getHmacKey());
+        } else {
+            assertEquals(keys.getHmacKey(), opened.getHmacKey());
+        }
+
+        // O serviço reaberto conversa com o da sessão original
+        final var secureMessage = keys.getCryptoService().encrypt(MESSAGE);
+        assertArrayEquals(MESSAGE, opened.getCryptoService().decrypt(secureMessage));
+    }
+
+    @Test
+    void rejectsTamperedTicket() {
+        final var ticket = Base64.getUrlDecoder()
+                .decode(tickets.issue(CryptoServiceFactory.generateSymmetric(SymmetricMode.AES_GCM)));
+        ticket[ticket.length - 1] ^= 1;
+
+        assertTrue(tickets.open(Base64.getUrlEncoder().withoutPadding().encodeToString(ticket)).isEmpty());
+    }
+
+    @Test
+    void rejectsGarbageAndTruncatedTickets() {
+        final var ticket = tickets.issue(CryptoServiceFactory.generateSymmetric(SymmetricMode.AES_GCM));
+
+        assertTrue(tickets.open("não é um ticket").isEmpty());
+        assertTrue(tickets.open("").isEmpty());
+        assertTrue(tickets.open(ticket.substring(0, 10)).isEmpty());
+    }
+
+    @Test
+    void rejectsTicketFromAnotherServer() {
+        final var other = new SessionTicketService(Duration.ofMinutes(1));
+        final var ticket = other.issue(CryptoServiceFactory.generateSymmetric(SymmetricMode.AES_GCM));
+
+        assertTrue(tickets.open(ticket).isEmpty());
+    }
+
+    @Test
+    void rejectsExpiredTicket() {
+        final var expiring = new SessionTicketService(Duration.ofMillis(-1));
+        final var ticket = expiring.issue(CryptoServiceFactory.generateSymmetric(SymmetricMode.AES_GCM));
+
+        assertTrue(expiring.open(ticket).isEmpty());
+    }
+
+    @Test
+    void redeemsEachTicketOnce() {
+        final var keys = CryptoServiceFactory.generateSymmetric(SymmetricMode.AES_GCM);
+        final var ticket = tickets.issue(keys);
+        final var next = tickets.issue(keys);
+
+        assertTrue(tickets.redeem(ticket));
+        assertFalse(tickets.redeem(ticket), "Repetição do mesmo ticket deveria ser recusada");
+        assertTrue(tickets.redeem(next));
+    }
+
+}
@@ -0,0 +1,160 @@
+package br.edu.ufersa.cc.seg.common.concrete_messengers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.messengers.MessageCodec;
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+import br.edu.ufersa.cc.seg.common.utils.SnapshotBatch;
+
+class MessageCodecTest {
+
+    private static final BinaryMessageCodec BINARY = new BinaryMessageCodec();
+
+    static Stream<MessageCodec> codecs() {
+        return Stream.of(BINARY, new JsonMessageCodec());
+    }
+
+    private static Message reading(final int index) {
+        final var reading = new Message(MessageType.SEND_SNAPSHOT)
+                .withValue(Fields.DEVICE_NAME, "device-1")
+                .withValue(Fields.TOKEN, "token")
+                .withValue(Fields.TIMESTAMP, "2026-01-01 00:00:0" + index);
+        for (final var element : Element.values()) {
+            reading.withValue(element.name(), index + element.ordinal() + 0.25);
+        }
+        return reading;
+    }
+
+    private static Message batch(final int size) {
+        final var readings = new ArrayList<Message>();
+        for (var i = 0; i < size; i++) {
+            readings.add(reading(i));
+        }
+        return SnapshotBatch.pack(MessageType.SEND_SNAPSHOT_BATCH, readings);
+    }
+
+    private static Message roundTrip(final MessageCodec codec, final Message message) {
+        return codec.decode(codec.encode(message));
+    }
+
+    /** Layout escolhido pelo codec binário (terceiro byte, sem o bit de correlação) */
+    private static int layoutOf(final Message message) {
+        return BINARY.encode(message)[2] & 0x0F;
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsGenericValues(final MessageCodec codec) {
+        final Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("name", "gateway");
+        nested.put("weights", List.of(1, 2.5, "x"));
+
+        final var message = new Message(MessageType.OK)
+                .withValue("text", "Olá, ruído")
+                .withValue("int", -42)
+                .withValue("long", 1L << 40)
+                .withValue("double", 3.75)
+                .withValue("flag", true)
+                .withValue("nothing", null)
+                .withValue("list", List.of("a", false, 7))
+                .withValue("map", nested);
+        message.setCorrelationId(123_456_789_012L);
+
+        assertEquals(message, roundTrip(codec, message));
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsSnapshot(final MessageCodec codec) {
+        final var snapshot = reading(3);
+
+        assertEquals(snapshot, roundTrip(codec, snapshot));
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsBatchWithAndWithoutReadingIds(final MessageCodec codec) {
+        final var batch = batch(4);
+        final var identified = SnapshotBatch.identify(batch);
+
+        assertEquals(batch, roundTrip(codec, batch));
+        assertEquals(identified, roundTrip(codec, identified));
+    }
+
+    @Test
+    void usesFastPathsOnlyForCompleteReadings() {
+        final var partial = reading(0);
+        partial.getValues().remove(Element.UV.name());
+
+        final var mixed = SnapshotBatch.identify(batch(2));
+        final List<Map<String, Object>> readings = mixed.getValue(Fields.READINGS);
+        readings.getFirst().remove(Fields.READING_ID);
+
+        assertEquals(1, layoutOf(reading(0)));
+        assertEquals(2, layoutOf(batch(2)));
+        assertEquals(3, layoutOf(SnapshotBatch.identify(batch(2))));
+        assertEquals(0, layoutOf(partial));
+        assertEquals(0, layoutOf(mixed));
+
+        assertEquals(partial, roundTrip(BINARY, partial));
+        assertEquals(mixed, roundTrip(BINARY, mixed));
+    }
+
+    @Test
+    void pinsWireCodeOfEveryType() {
+        // Estes códigos estão no formato: mudá-los quebra pares de outras versões
+        final Map<MessageType, Integer> codes = new EnumMap<>(MessageType.class);
+        codes.put(MessageType.REGISTER_SERVER, 1);
+        codes.put(MessageType.LOCATE_SERVER, 2);
+        codes.put(MessageType.REMOVE_SERVER, 3);
+        codes.put(MessageType.SEND_SNAPSHOT, 4);
+        codes.put(MessageType.STORE_SNAPSHOT, 5);
+        codes.put(MessageType.AUTHENTICATE, 6);
+        codes.put(MessageType.USE_SYMMETRIC, 7);
+        codes.put(MessageType.OK, 8);
+        codes.put(MessageType.ERROR, 9);
+        codes.put(MessageType.UNAUTHORIZED, 10);
+        codes.put(MessageType.RESUME_SESSION, 11);
+        codes.put(MessageType.RETRACT_SNAPSHOT, 12);
+        codes.put(MessageType.SEND_SNAPSHOT_BATCH, 13);
+        codes.put(MessageType.STORE_SNAPSHOT_BATCH, 14);
+        codes.put(MessageType.CLOSE_SESSION, 15);
+
+        assertEquals(MessageType.values().length, codes.size(), "Tipo novo sem código fixado no teste");
+        codes.forEach((type, code) -> {
+            assertEquals(code, BINARY.encode(new Message(type))[1]);
+            assertEquals(type, BINARY.decode(new byte[] { BinaryMessageCodec.MAGIC, code.byteValue(), 0, 0 })
+                    .getType());
+        });
+    }
+
+    @Test
+    void rejectsUnknownTypeCode() {
+        final var bytes = new byte[] { BinaryMessageCodec.MAGIC, 127, 0, 0 };
+
+        assertThrows(IllegalArgumentException.class, () -> BINARY.decode(bytes));
+    }
+
+    @Test
+    void rejectsPayloadsThatAreNotBinary() {
+        final var json = new JsonMessageCodec().encode(new Message(MessageType.OK));
+
+        assertThrows(IllegalArgumentException.class, () -> BINARY.decode(json));
+    }
+
+}
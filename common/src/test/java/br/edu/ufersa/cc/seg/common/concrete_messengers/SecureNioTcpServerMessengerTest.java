@@ -0,0 +1,163 @@
+package br.edu.ufersa.cc.seg.common.concrete_messengers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
+import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.utils.BufferPool;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+import br.edu.ufersa.cc.seg.common.utils.WireFormat;
+
+/**
+ * Quadros que chegam ao servidor NIO em pedaços, juntos numa mesma escrita ou
+ * maiores que o buffer de leitura inicial devem ser remontados um a um.
+ */
+class SecureNioTcpServerMessengerTest {
+
+    private static final WireFormat FORMAT = WireFormat.BINARY;
+    private static final long PAUSE = 50;
+
+    private final CryptoService cryptoService = CryptoServiceFactory.aesGcm(CryptoServiceFactory.generateAESKey());
+
+    private SecureNioTcpServerMessenger server;
+    private Socket client;
+    private DataInputStream in;
+    private OutputStream out;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final var channel = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server = new SecureNioTcpServerMessenger(channel, cryptoService, FORMAT, 1);
+        server.subscribe(request -> MessageFactory.ok("echo", request.getValue("text")));
+
+        client = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        client.setTcpNoDelay(true);
+        client.setSoTimeout(5_000);
+        in = new DataInputStream(client.getInputStream());
+        out = client.getOutputStream();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    private byte[] frame(final String text) {
+        final var request = new Message(MessageType.OK).withValue("text", text);
+        final var frame = SecureMessageFrames.toFrame(cryptoService.encrypt(request.toBytes()), FORMAT);
+        try {
+            final var bytes = new byte[frame.remaining()];
+            frame.get(bytes);
+            return bytes;
+        } finally {
+            BufferPool.SHARED.release(frame);
+        }
+    }
+
+    /** Escreve {@code bytes[from, to)} e espera, para que o servidor leia só essa parte */
+    private void writePart(final byte[] bytes, final int from, final int to) throws IOException, InterruptedException {
+        out.write(bytes, from, to - from);
+        out.flush();
+        Thread.sleep(PAUSE);
+    }
+
+    private String echo() throws IOException {
+        return echo(in);
+    }
+
+    private String echo(final DataInputStream in) throws IOException {
+        final var response = Message.fromBytes(cryptoService.decrypt(SecureMessageFrames.read(in, FORMAT)));
+        assertEquals(MessageType.OK, response.getType());
+        return response.getValue("echo");
+    }
+
+    @Test
+    void reassemblesFrameSplitInsideLengthPrefix() throws Exception {
+        final var bytes = frame("dividido");
+
+        writePart(bytes, 0, 2);
+        writePart(bytes, 2, 7);
+        writePart(bytes, 7, bytes.length);
+
+        assertEquals("dividido", echo());
+    }
+
+    @Test
+    void readsSeveralFramesFromOneWrite() throws Exception {
+        final var first = frame("primeiro");
+        final var second = frame("segundo");
+        final var third = frame("terceiro");
+
+        // Dois quadros inteiros e o começo do terceiro numa escrita só
+        final var joined = new byte[first.length + second.length + third.length];
+        System.arraycopy(first, 0, joined, 0, first.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        System.arraycopy(third, 0, joined, first.length + second.length, third.length);
+
+        final var cut = first.length + second.length + 3;
+        writePart(joined, 0, cut);
+        writePart(joined, cut, joined.length);
+
+        assertEquals("primeiro", echo());
+        assertEquals("segundo", echo());
+        assertEquals("terceiro", echo());
+    }
+
+    @Test
+    void growsReadBufferForLargeFrames() throws Exception {
+        final var text = "x".repeat(40 * 1024);
+        final var bytes = frame(text);
+
+        for (var from = 0; from < bytes.length; from += 8 * 1024) {
+            writePart(bytes, from, Math.min(bytes.length, from + 8 * 1024));
+        }
+
+        assertEquals(text, echo());
+
+        // O buffer maior continua servindo aos quadros seguintes
+        final var small = frame("depois");
+        writePart(small, 0, small.length);
+        assertEquals("depois", echo());
+    }
+
+    @Test
+    void sharedReactorsKeepServingAfterOneServerCloses() throws Exception {
+        final var first = SecureNioTcpServerMessenger.onSharedReactors(cryptoService);
+        final var second = SecureNioTcpServerMessenger.onSharedReactors(cryptoService);
+        first.subscribe(request -> MessageFactory.ok("echo", "primeiro"));
+        second.subscribe(request -> MessageFactory.ok("echo", "segundo"));
+
+        try (var toFirst = new Socket(InetAddress.getLoopbackAddress(), first.getPort());
+                var toSecond = new Socket(InetAddress.getLoopbackAddress(), second.getPort())) {
+            toFirst.setSoTimeout(5_000);
+            toSecond.setSoTimeout(5_000);
+
+            toFirst.getOutputStream().write(frame("a"));
+            assertEquals("primeiro", echo(new DataInputStream(toFirst.getInputStream())));
+
+            first.close();
+
+            toSecond.getOutputStream().write(frame("b"));
+            assertEquals("segundo", echo(new DataInputStream(toSecond.getInputStream())));
+        } finally {
+            second.close();
+        }
+    }
+
+}
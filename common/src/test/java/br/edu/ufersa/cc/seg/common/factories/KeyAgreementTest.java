@@ -0,0 +1,99 @@
+package br.edu.ufersa.cc.seg.common.factories;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import br.edu.ufersa.cc.seg.common.concrete_crypto.Hkdf;
+import br.edu.ufersa.cc.seg.common.concrete_crypto.X25519KeyAgreement;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoException;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricOffer;
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+import br.edu.ufersa.cc.seg.common.utils.SymmetricMode;
+
+/**
+ * Handshake {@code USE_SYMMETRIC} com acordo X25519: os dois lados derivam as
+ * mesmas chaves sem que elas trafeguem.
+ */
+class KeyAgreementTest {
+
+    private static final byte[] MESSAGE = "acordo".getBytes(StandardCharsets.UTF_8);
+
+    private static SymmetricOffer offer(final SymmetricMode mode) {
+        return new SymmetricOffer(mode, X25519KeyAgreement.generateKeyPair());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SymmetricMode.class)
+    void bothSidesDeriveTheSameKeys(final SymmetricMode mode) {
+        final var offer = offer(mode);
+        final var request = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
+
+        final var keys = CryptoServiceFactory.generateSymmetric(request);
+        final var response = keys.writeTo(MessageFactory.ok());
+
+        // Só a chave pública efêmera vai na resposta
+        assertNotNull(response.getValue(Fields.AGREEMENT_KEY));
+        assertNull(response.getValue(Fields.ENCRYPTION_KEY));
+        assertNull(response.getValue(Fields.HMAC_KEY));
+
+        final var requester = CryptoServiceFactory.symmetric(offer, response);
+        final var responder = keys.getCryptoService();
+
+        assertEquals(mode, keys.getMode());
+        assertArrayEquals(MESSAGE, responder.decrypt(requester.encrypt(MESSAGE)));
+        assertArrayEquals(MESSAGE, requester.decrypt(responder.encrypt(MESSAGE)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SymmetricMode.class)
+    void otherPartyCannotDeriveTheKeys(final SymmetricMode mode) {
+        final var offer = offer(mode);
+        final var keys = CryptoServiceFactory.generateSymmetric(offer.writeTo(new Message(MessageType.USE_SYMMETRIC)));
+        final var response = keys.writeTo(MessageFactory.ok());
+
+        // Quem só viu a resposta, com um par próprio, chega a outras chaves
+        final var eavesdropper = CryptoServiceFactory.symmetric(offer(mode), response);
+
+        assertThrows(CryptoException.class,
+                () -> eavesdropper.decrypt(keys.getCryptoService().encrypt(MESSAGE)));
+    }
+
+    @Test
+    void swappedResponderKeyBreaksTheSession() {
+        final var offer = offer(SymmetricMode.AES_GCM);
+        final var keys = CryptoServiceFactory.generateSymmetric(offer.writeTo(new Message(MessageType.USE_SYMMETRIC)));
+
+        // Um intermediário troca a chave pública de quem respondeu pela sua
+        final var intruder = CryptoServiceFactory.generateSymmetric(
+                offer.writeTo(new Message(MessageType.USE_SYMMETRIC)));
+        final var response = intruder.writeTo(MessageFactory.ok());
+        final var requester = CryptoServiceFactory.symmetric(offer, response);
+
+        assertThrows(CryptoException.class, () -> requester.decrypt(keys.getCryptoService().encrypt(MESSAGE)));
+    }
+
+    @Test
+    void hkdfMatchesRfc5869() {
+        // RFC 5869, caso de teste 1
+        final var hex = HexFormat.of();
+        final var okm = Hkdf.derive(hex.parseHex("000102030405060708090a0b0c"),
+                hex.parseHex("0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b"),
+                hex.parseHex("f0f1f2f3f4f5f6f7f8f9"), 42);
+
+        assertEquals("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865",
+                hex.formatHex(okm));
+    }
+
+}
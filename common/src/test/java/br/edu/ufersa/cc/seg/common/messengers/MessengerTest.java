@@ -0,0 +1,117 @@
+package br.edu.ufersa.cc.seg.common.messengers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
+import br.edu.ufersa.cc.seg.common.utils.ConnectionType;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+
+class MessengerTest {
+
+    private static final String SILENT = "silêncio";
+
+    /** Mensageiro em memória: lê de uma fila e guarda o que envia */
+    private static class QueueMessenger extends Messenger {
+
+        private final BlockingQueue<Message> incoming = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Message> sent = new LinkedBlockingQueue<>();
+        private volatile boolean closed;
+
+        @Override
+        public ConnectionType getConnectionType() {
+            return ConnectionType.TCP;
+        }
+
+        @Override
+        public InetAddress getHost() {
+            return InetAddress.getLoopbackAddress();
+        }
+
+        @Override
+        public int getPort() {
+            return 0;
+        }
+
+        @Override
+        public void send(final Message message) {
+            sent.add(message);
+        }
+
+        @Override
+        public Message receive() throws IOException {
+            try {
+                return incoming.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Leitura interrompida", e);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            closeSubscriptions();
+        }
+    }
+
+    private final QueueMessenger messenger = new QueueMessenger();
+
+    @AfterEach
+    void tearDown() {
+        messenger.close();
+    }
+
+    private static Message request(final String text, final Long correlationId) {
+        final var request = new Message(MessageType.OK).withValue("text", text);
+        request.setCorrelationId(correlationId);
+        return request;
+    }
+
+    private void assertOnlyEcho(final String text) throws InterruptedException {
+        final var response = messenger.sent.poll(5, TimeUnit.SECONDS);
+        assertEquals(text, response.getValue("echo"));
+        assertNull(messenger.sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private void subscribeEcho() {
+        messenger.subscribe(request -> SILENT.equals(request.getValue("text"))
+                ? null
+                : MessageFactory.ok("echo", request.getValue("text")));
+    }
+
+    @Test
+    void skipsResponseWhenCallbackReturnsNull() throws InterruptedException {
+        subscribeEcho();
+
+        messenger.incoming.add(request(SILENT, null));
+        messenger.incoming.add(request("eco", null));
+
+        assertOnlyEcho("eco");
+    }
+
+    @Test
+    void skipsCorrelatedResponseWhenCallbackReturnsNull() throws InterruptedException {
+        subscribeEcho();
+
+        messenger.incoming.add(request(SILENT, 1L));
+        messenger.incoming.add(request("eco", 2L));
+
+        assertOnlyEcho("eco");
+    }
+
+}
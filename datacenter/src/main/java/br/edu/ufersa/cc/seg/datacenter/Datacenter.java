@@ -1,17 +1,29 @@
 package br.edu.ufersa.cc.seg.datacenter;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.security.PublicKey;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.BiConsumer;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
 
 import br.edu.ufersa.cc.seg.common.auth.TokenService;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.dto.SnapshotAggregateDto;
+import br.edu.ufersa.cc.seg.common.dto.SnapshotDto;
+import br.edu.ufersa.cc.seg.common.dto.SnapshotPageDto;
 import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
 import br.edu.ufersa.cc.seg.common.factories.EnvOrInputFactory;
 import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
@@ -19,23 +31,38 @@ import br.edu.ufersa.cc.seg.common.factories.MessengerFactory;
 import br.edu.ufersa.cc.seg.common.factories.ServerMessengerFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
-import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionServerMessenger;
 import br.edu.ufersa.cc.seg.common.utils.Constants;
 import br.edu.ufersa.cc.seg.common.utils.Element;
 import br.edu.ufersa.cc.seg.common.utils.Fields;
 import br.edu.ufersa.cc.seg.common.utils.InstanceType;
 import br.edu.ufersa.cc.seg.common.utils.MessageType;
 import br.edu.ufersa.cc.seg.common.utils.ServerType;
+import br.edu.ufersa.cc.seg.common.utils.SnapshotBatch;
 import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+import br.edu.ufersa.cc.seg.datacenter.services.SnapshotAggregator;
+import br.edu.ufersa.cc.seg.datacenter.services.SnapshotCache;
 import br.edu.ufersa.cc.seg.datacenter.services.SnapshotService;
+import br.edu.ufersa.cc.seg.datacenter.services.SnapshotWriter;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import io.javalin.http.UnauthorizedResponse;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class Datacenter {
 
+    private static final String OVERLOADED = "Datacenter sobrecarregado, tente novamente";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5_000;
+    private static final long PROOF_MAX_AGE = 30_000;
+    private static final long AGGREGATE_BUCKET = 60;
+    private static final long AGGREGATE_RANGE_HOURS = 1;
+    private static final long MAX_AGGREGATE_BUCKETS = 10_000;
+    private static final int MAX_AGGREGATE_POINTS = 100_000;
+
     private final TokenService tokenService;
     private final CryptoService asymmetricCryptoService;
     private final EnvOrInputFactory envOrInputFactory;
@@ -43,7 +70,7 @@ public class Datacenter {
     private final PublicKey publicKey;
 
     private final Javalin httpServer;
-    private final ServerMessenger serverMessenger;
+    private final SessionServerMessenger serverMessenger;
     private Messenger locationMessenger;
     private Optional<CryptoService> gatewayAesService = Optional.empty();
 
@@ -51,6 +78,9 @@ public class Datacenter {
      * Serviço do banco de dados
      */
     private final SnapshotService snapshotService = new SnapshotService();
+    private final SnapshotWriter snapshotWriter = new SnapshotWriter(snapshotService);
+    private final SnapshotCache snapshotCache = new SnapshotCache(snapshotService);
+    private final LiveFeed liveFeed = new LiveFeed(snapshotService, () -> gatewayAesService);
 
     public Datacenter(final EnvOrInputFactory envOrInputFactory) throws IOException {
         this.envOrInputFactory = envOrInputFactory;
@@ -62,6 +92,10 @@ public class Datacenter {
         this.serverMessenger = ServerMessengerFactory.secureUdp(asymmetricCryptoService);
 
         httpServer = Javalin.create();
+        snapshotWriter.onWritten(batch -> {
+            snapshotCache.addAll(batch);
+            liveFeed.publish(batch);
+        });
 
         final var jwtSecret = envOrInputFactory.getString("JWT_SECRET");
         this.tokenService = new TokenService(jwtSecret);
@@ -72,6 +106,7 @@ public class Datacenter {
         configureHttpServer();
         register();
         registerHttp();
+        serverMessenger.enableResumption(sessionId -> this::handleRequest);
         serverMessenger.subscribe(this::serveSymmetric);
     }
 
@@ -79,11 +114,25 @@ public class Datacenter {
     public void stop() {
         locationMessenger.close();
         serverMessenger.close();
+        liveFeed.close();
         httpServer.stop();
+
+        // Só depois de parar de receber leituras, gravar as pendentes
+        snapshotWriter.close();
+        log.info("Cache de capturas: {}", snapshotCache.stats());
+        CryptoTrace.logCounters();
     }
 
     @SneakyThrows
     private void connectToLocationServer() {
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationMessenger = MessengerFactory.agreeUdp(envOrInputFactory.getString("LOCATION_HOST"),
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -97,12 +146,12 @@ public class Datacenter {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -114,7 +163,7 @@ public class Datacenter {
         final var insecureHost = envOrInputFactory.getString("LOCATION_HOST");
         final var insecurePort = envOrInputFactory.getInt("LOCATION_PORT");
         final var insecureMessenger = MessengerFactory.udp(insecureHost, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -172,6 +221,8 @@ public class Datacenter {
 
     private void configureHttpServer() {
         httpServer
+                .before("/api/snapshots/live", this::verifyGateway)
+                .sse("/api/snapshots/live", liveFeed::subscribe)
                 .get("/api/snapshots", ctx -> {
                     log.info("Requisição HTTP recebida");
                     handleToken(tokenService, ctx, InstanceType.CLIENT,
@@ -181,28 +232,74 @@ public class Datacenter {
                                 context.json(encMessage);
                             });
                 })
+                .get("/api/snapshots/since/{sequence}", ctx -> {
+                    log.info("Requisição HTTP recebida (feed)");
+                    handleToken(tokenService, ctx, InstanceType.CLIENT, (identifier, context) -> {
+                        final var sequence = context.pathParamAsClass("sequence", Long.class).get();
+                        final var limit = Math.clamp(
+                                context.queryParamAsClass("limit", Integer.class).getOrDefault(PAGE_SIZE),
+                                1, MAX_PAGE_SIZE);
+
+                        // "next" é o cursor da próxima consulta; "more" indica que
+                        // já há mais capturas além desta página
+                        final var data = snapshotCache.listSince(sequence, limit);
+                        final var message = MessageFactory.ok("data", data)
+                                .withValue("next", data.isEmpty() ? sequence : data.getLast().getSequence())
+                                .withValue("more", data.size() == limit);
+                        final var encMessage = gatewayAesService.get().encrypt(message.toBytes());
+                        context.json(encMessage);
+                    });
+                })
+                .get("/api/snapshots/page", ctx -> {
+                    log.info("Requisição HTTP recebida (página)");
+                    handleToken(tokenService, ctx, InstanceType.CLIENT, (identifier, context) -> {
+                        final var limit = Math.clamp(
+                                context.queryParamAsClass("limit", Integer.class).getOrDefault(PAGE_SIZE),
+                                1, MAX_PAGE_SIZE);
+
+                        final SnapshotPageDto page;
+                        try {
+                            page = snapshotService.listPage(context.queryParam("after"), limit);
+                        } catch (final IllegalArgumentException e) {
+                            final var response = MessageFactory.error(e.getMessage());
+                            context.status(400).json(gatewayAesService.get().encrypt(response.toBytes()));
+                            return;
+                        }
+
+                        final var message = MessageFactory.ok("data", page.getData())
+                                .withValue("next", page.getNext());
+                        final var encMessage = gatewayAesService.get().encrypt(message.toBytes());
+                        context.json(encMessage);
+                    });
+                })
+                .get("/api/snapshots/aggregate", ctx -> {
+                    log.info("Requisição HTTP recebida (agregação)");
+                    handleToken(tokenService, ctx, InstanceType.CLIENT,
+                            (identifier, context) -> aggregateSnapshots(context, gatewayAesService.get()));
+                })
+                .get("/api/snapshots/stream", ctx -> {
+                    log.info("Requisição HTTP recebida (exportação)");
+                    handleToken(tokenService, ctx, InstanceType.CLIENT,
+                            (identifier, context) -> streamSnapshots(context, gatewayAesService.get()));
+                })
                 .get("/api/snapshots/{starting}", ctx -> {
                     log.info("Requisição HTTP recebida");
                     handleToken(tokenService, ctx, InstanceType.CLIENT, (identifier, context) -> {
                         final var formattedTimestamp = context.pathParam("starting");
                         final var timestamp = LocalDateTime.parse(formattedTimestamp,
                                 Constants.DATE_TIME_URL_FORMATTER);
-                        final var message = MessageFactory.ok("data", snapshotService.listAllAfter(timestamp));
+                        final var message = MessageFactory.ok("data", snapshotCache.listAllAfter(timestamp));
                         final var encMessage = gatewayAesService.get().encrypt(message.toBytes());
                         context.json(encMessage);
                     });
                 })
                 .get("api/accept-gateway", ctx -> {
                     log.info("Conectando com Gateway");
-                    final var encryptionKey = CryptoServiceFactory.generateAESKey();
-                    final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-                    final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-                    gatewayAesService = Optional.of(cryptoService);
+                    final var mode = CryptoServiceFactory.symmetricMode(ctx.header(Fields.SYMMETRIC_MODE));
+                    final var keys = CryptoServiceFactory.generateSymmetric(mode, ctx.header(Fields.AGREEMENT_KEY));
+                    gatewayAesService = Optional.of(keys.getCryptoService());
 
-                    final var response = MessageFactory.ok()
-                            .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                            .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                    final var response = keys.writeTo(MessageFactory.ok());
                     final var asymmetricEncryptedResponse = asymmetricCryptoService.encrypt(response.toBytes());
                     ctx.json(asymmetricEncryptedResponse);
                 })
@@ -211,24 +308,140 @@ public class Datacenter {
         log.info("Servidor HTTP iniciado na porta {}", httpServer.port());
     }
 
+    /**
+     * Só o Gateway tem a chave combinada em {@code accept-gateway}: ele prova
+     * isso enviando, no cabeçalho {@link Fields#PROOF}, uma mensagem recente
+     * cifrada com ela
+     */
+    private void verifyGateway(final Context context) {
+        final var proof = context.header(Fields.PROOF);
+        if (proof == null) {
+            throw new UnauthorizedResponse("Prova de Gateway ausente");
+        }
+
+        try {
+            final var secureMessage = SecureMessage.fromBytes(Base64.getUrlDecoder().decode(proof));
+            gatewayAesService.orElseThrow().decrypt(secureMessage);
+            if (Math.abs(System.currentTimeMillis() - secureMessage.getTimestamp()) > PROOF_MAX_AGE) {
+                throw new UnauthorizedResponse("Prova de Gateway expirada");
+            }
+        } catch (final UnauthorizedResponse e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new UnauthorizedResponse("Prova de Gateway inválida");
+        }
+    }
+
+    /**
+     * Séries resumidas por dispositivo e elemento, em vez das capturas. Todos
+     * os parâmetros são opcionais: {@code from} e {@code to} (padrão: a última
+     * hora), {@code bucket} em segundos (padrão: um minuto), {@code device} e
+     * {@code element}. A resposta tem no máximo {@link #MAX_AGGREGATE_POINTS}
+     * pontos, somando todas as séries.
+     */
+    private void aggregateSnapshots(final Context context, final CryptoService cryptoService) {
+        final LocalDateTime from;
+        final LocalDateTime to;
+        final long bucket;
+        final Element element;
+        try {
+            to = Optional.ofNullable(context.queryParam("to"))
+                    .map(value -> LocalDateTime.parse(value, Constants.DATE_TIME_URL_FORMATTER))
+                    .orElseGet(LocalDateTime::now);
+            from = Optional.ofNullable(context.queryParam("from"))
+                    .map(value -> LocalDateTime.parse(value, Constants.DATE_TIME_URL_FORMATTER))
+                    .orElseGet(() -> to.minusHours(AGGREGATE_RANGE_HOURS));
+            bucket = Optional.ofNullable(context.queryParam("bucket"))
+                    .map(Long::parseLong)
+                    .orElse(AGGREGATE_BUCKET);
+            element = Optional.ofNullable(context.queryParam("element"))
+                    .map(Element::valueOf)
+                    .orElse(null);
+
+            if (bucket < 1 || !from.isBefore(to)
+                    || SnapshotAggregator.bucketsBetween(from, to, bucket) > MAX_AGGREGATE_BUCKETS) {
+                throw new IllegalArgumentException("Intervalo de agregação inválido");
+            }
+
+            // Cada elemento é uma série; o número de dispositivos só se sabe na leitura
+            final var elements = element == null ? Element.values().length : 1;
+            if (SnapshotAggregator.bucketsBetween(from, to, bucket) * elements > MAX_AGGREGATE_POINTS) {
+                throw new IllegalArgumentException("Agregação com pontos demais");
+            }
+        } catch (final IllegalArgumentException | DateTimeParseException e) {
+            final var response = MessageFactory.error("Parâmetros de agregação inválidos");
+            context.status(400).json(cryptoService.encrypt(response.toBytes()));
+            return;
+        }
+
+        final List<SnapshotAggregateDto> data;
+        try {
+            data = snapshotService.aggregate(from, to, bucket, context.queryParam("device"), element,
+                    MAX_AGGREGATE_POINTS);
+        } catch (final IllegalArgumentException e) {
+            final var response = MessageFactory.error("Agregação excede " + MAX_AGGREGATE_POINTS
+                    + " pontos; reduza o período ou aumente o intervalo");
+            context.status(400).json(cryptoService.encrypt(response.toBytes()));
+            return;
+        }
+
+        final var message = MessageFactory.ok("data", data).withValue("bucket", bucket);
+        context.json(cryptoService.encrypt(message.toBytes()));
+    }
+
+    /**
+     * Exporta todas as capturas em quadros cifrados independentes, um por
+     * linha (NDJSON), cada um com até {@link #PAGE_SIZE} capturas. O último
+     * quadro vem sem dados e com {@code done} e o total enviado, para que o
+     * receptor perceba uma exportação interrompida. A memória usada não
+     * depende do tamanho do histórico.
+     */
+    @SneakyThrows
+    private void streamSnapshots(final Context context, final CryptoService cryptoService) {
+        context.contentType(NDJSON);
+        final var out = context.outputStream();
+
+        final var chunk = new ArrayList<SnapshotDto>(PAGE_SIZE);
+        final var total = new long[1];
+        snapshotService.forEach(dto -> {
+            chunk.add(dto);
+            total[0]++;
+            if (chunk.size() == PAGE_SIZE) {
+                writeFrame(out, cryptoService, MessageFactory.ok("data", chunk));
+                chunk.clear();
+            }
+        });
+
+        if (!chunk.isEmpty()) {
+            writeFrame(out, cryptoService, MessageFactory.ok("data", chunk));
+        }
+        writeFrame(out, cryptoService, MessageFactory.ok("done", true).withValue("count", total[0]));
+
+        log.info("Exportação concluída: {} capturas", total[0]);
+    }
+
+    @SneakyThrows
+    private static void writeFrame(final OutputStream out, final CryptoService cryptoService, final Message message) {
+        out.write(cryptoService.encrypt(message.toBytes()).toJson().getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+        out.flush();
+    }
+
     @SneakyThrows
     private Message serveSymmetric(final Message request) {
         if (MessageType.USE_SYMMETRIC.equals(request.getType())) {
             log.info("Nova conexão assimétrica. Preparando-se para usar simétrica...");
 
-            final var encryptionKey = CryptoServiceFactory.generateAESKey();
-            final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            final var symmetricMessenger = ServerMessengerFactory.secureUdp(cryptoService);
-            symmetricMessenger.subscribe(this::handleRequest);
+            final var keys = CryptoServiceFactory.generateSymmetric(request);
+            final var cryptoService = keys.getCryptoService();
+            final var sessionId = serverMessenger.openSession(cryptoService, this::handleRequest);
             log.info("Aguardando mensagens simétricas...");
 
-            return MessageFactory.ok()
+            return keys.writeTo(MessageFactory.ok()
                     .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
-                    .withValue(Fields.PORT, symmetricMessenger.getPort())
-                    .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                    .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                    .withValue(Fields.PORT, serverMessenger.getPort())
+                    .withValue(Fields.SESSION_ID, sessionId)
+                    .withValue(Fields.SESSION_TICKET, serverMessenger.issueTicket(keys)));
         } else {
             return MessageFactory.error("Tipo de mensagem não suportada");
         }
@@ -236,8 +449,11 @@ public class Datacenter {
 
     private Message handleRequest(final Message request) {
         if (MessageType.STORE_SNAPSHOT.equals(request.getType())) {
-            storeSnapshot(request);
-            return MessageFactory.ok();
+            return storeSnapshot(request) ? MessageFactory.ok() : MessageFactory.error(OVERLOADED);
+        } else if (MessageType.STORE_SNAPSHOT_BATCH.equals(request.getType())) {
+            return storeSnapshotBatch(request) ? MessageFactory.ok() : MessageFactory.error(OVERLOADED);
+        } else if (MessageType.RETRACT_SNAPSHOT.equals(request.getType())) {
+            return retractSnapshot(request);
         } else {
             return MessageFactory.error("Tipo de mensagem não suportada");
         }
@@ -271,28 +487,74 @@ public class Datacenter {
                         });
     }
 
-    private void storeSnapshot(final Message request) {
+    /**
+     * Coloca as capturas da leitura no buffer de escrita
+     *
+     * @return {@code false} se o buffer estiver cheio
+     */
+    private boolean storeSnapshot(final Message request) {
+        final var deviceName = (String) request.getValue("deviceName");
+        final var formattedTimestamp = (String) request.getValue("timestamp");
+
+        log.info("Armazenando as leituras de {} em {}...", deviceName, formattedTimestamp);
+        return snapshotWriter.offer(toSnapshots(request));
+    }
+
+    private boolean storeSnapshotBatch(final Message request) {
+        final var readings = SnapshotBatch.unpack(request);
+        log.info("Armazenando lote de {} leituras de {}...", readings.size(), request.getValue("deviceName"));
+
+        // Todas as capturas do lote entram juntas no buffer
+        final var snapshots = readings.stream()
+                .flatMap(reading -> toSnapshots(reading).stream())
+                .toList();
+        return snapshotWriter.offer(snapshots);
+    }
+
+    private List<Snapshot> toSnapshots(final Message request) {
         final var values = request.getValues();
         final var deviceName = (String) values.get("deviceName");
         final var formattedTimestamp = (String) values.get("timestamp");
         final var timestamp = LocalDateTime.parse(formattedTimestamp, Constants.DATE_TIME_FORMATTER);
+        final var readingId = Optional.ofNullable((String) values.get(Fields.READING_ID))
+                .map(UUID::fromString)
+                .orElse(null);
 
-        log.info("Armazenando as leituras de {} em {}...", deviceName, formattedTimestamp);
-
+        final var snapshots = new ArrayList<Snapshot>(Element.values().length);
         for (final var element : Element.values()) {
-            Optional.of((double) values.get(element.name()))
-                    .ifPresent(value -> {
-                        final var snapshot = new Snapshot()
-                                .setDeviceName(deviceName)
-                                .setTimestamp(timestamp)
-                                .setElement(element)
-                                .setCapturedValue(value);
-
-                        snapshotService.create(snapshot);
-                    });
+            Optional.ofNullable((Number) values.get(element.name()))
+                    .ifPresent(value -> snapshots.add(new Snapshot()
+                            .setDeviceName(deviceName)
+                            .setTimestamp(timestamp)
+                            .setElement(element)
+                            .setCapturedValue(value.doubleValue())
+                            .setReadingId(readingId)));
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Apaga as capturas de uma leitura rejeitada, identificada pelo
+     * {@link Fields#READING_ID} que o Gateway atribuiu ao repassá-la
+     */
+    private Message retractSnapshot(final Message request) {
+        final var deviceName = (String) request.getValue("deviceName");
+        final var formattedTimestamp = (String) request.getValue("timestamp");
+        final var readingId = Optional.ofNullable((String) request.getValue(Fields.READING_ID))
+                .map(UUID::fromString);
+        if (readingId.isEmpty()) {
+            log.error("Retirada sem identificador da leitura de {} em {} ignorada", deviceName, formattedTimestamp);
+            return MessageFactory.error("Identificador da leitura ausente");
         }
 
-        log.info("Leituras de {} em {} armazenadas", deviceName, formattedTimestamp);
+        // A leitura pode ainda estar no buffer de escrita
+        snapshotWriter.flush();
+        final var removed = snapshotService.deleteByReadingId(readingId.get());
+        snapshotCache.removeAll(removed);
+        log.warn("Leitura {} de {} em {} retirada a pedido do Gateway ({} registros)", readingId.get(), deviceName,
+                formattedTimestamp, removed.size());
+        return MessageFactory.ok();
     }
 
 }
@@ -0,0 +1,162 @@
+package br.edu.ufersa.cc.seg.datacenter;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.dto.SnapshotDto;
+import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
+import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+import br.edu.ufersa.cc.seg.datacenter.services.SnapshotService;
+import io.javalin.http.sse.SseClient;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Canal ao vivo das capturas: cada lote gravado pelo
+ * {@link br.edu.ufersa.cc.seg.datacenter.services.SnapshotWriter} é enviado
+ * aos Gateways inscritos como um evento {@code snapshots}, cifrado uma única
+ * vez com a chave do Gateway. O quadro traz as capturas em {@code data} e as
+ * posições do feed que cobre em {@code from} e {@code to}.
+ * <p>
+ * A escrita só coloca o lote numa fila limitada; uma thread própria junta os
+ * lotes pendentes num quadro e o envia. Se a fila encher, o lote é descartado:
+ * quem recebe percebe o salto nas posições e busca o que faltou em
+ * {@code /api/snapshots/since/{sequence}}.
+ */
+@Slf4j
+class LiveFeed implements Closeable {
+
+    public static final String QUEUE_VARIABLE = "LIVE_FEED_QUEUE";
+    public static final String EVENT = "snapshots";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final int MAX_FRAME_SIZE = 5_000;
+    private static final long POLL_INTERVAL = 1_000;
+
+    private final SnapshotService snapshotService;
+    private final Supplier<Optional<CryptoService>> cryptoService;
+
+    private final Set<SseClient> subscribers = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<List<Snapshot>> pending;
+    private final Thread publisher;
+    private volatile boolean closed;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    LiveFeed(final SnapshotService snapshotService, final Supplier<Optional<CryptoService>> cryptoService) {
+        this.snapshotService = snapshotService;
+        this.cryptoService = cryptoService;
+        this.pending = new ArrayBlockingQueue<>(Optional.ofNullable(System.getenv(QUEUE_VARIABLE))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_QUEUE_CAPACITY));
+        this.publisher = Thread.ofPlatform().name("snapshot-publisher").start(this::run);
+    }
+
+    /**
+     * Mantém a conexão aberta e passa a enviar a ela os novos lotes
+     */
+    void subscribe(final SseClient client) {
+        client.keepAlive();
+        client.onClose(() -> {
+            subscribers.remove(client);
+            log.info("Gateway deixou o canal ao vivo ({} inscritos)", subscribers.size());
+        });
+        subscribers.add(client);
+        log.info("Gateway inscrito no canal ao vivo ({} inscritos)", subscribers.size());
+    }
+
+    /**
+     * Enfileira um lote recém-gravado, sem bloquear quem o gravou
+     */
+    void publish(final List<Snapshot> batch) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        if (!pending.offer(batch)) {
+            dropped.add(batch.size());
+            log.warn("Fila do canal ao vivo cheia, descartando lote de {} capturas", batch.size());
+        }
+    }
+
+    @SneakyThrows
+    private void run() {
+        final var batches = new ArrayList<List<Snapshot>>();
+        while (!closed) {
+            final var first = pending.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                continue;
+            }
+
+            // Juntar o que se acumulou enquanto o quadro anterior era enviado
+            batches.add(first);
+            pending.drainTo(batches);
+            final var snapshots = batches.stream().flatMap(List::stream).toList();
+            batches.clear();
+
+            for (var start = 0; start < snapshots.size(); start += MAX_FRAME_SIZE) {
+                final var frame = snapshots.subList(start, Math.min(snapshots.size(), start + MAX_FRAME_SIZE));
+
+                // Um quadro com problema não pode derrubar a thread do canal
+                try {
+                    send(frame.stream().map(snapshotService::toDto).toList());
+                } catch (final RuntimeException e) {
+                    dropped.add(frame.size());
+                    log.error("Falha ao publicar quadro de {} capturas, descartando", frame.size(), e);
+                }
+            }
+        }
+    }
+
+    private void send(final List<SnapshotDto> data) {
+        final var crypto = cryptoService.get();
+        if (crypto.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+
+        // Um só quadro cifrado, o mesmo para todos os Gateways
+        final var from = data.getFirst().getSequence();
+        final var to = data.getLast().getSequence();
+        final var message = MessageFactory.ok("data", data)
+                .withValue("from", from)
+                .withValue("to", to);
+        final var json = crypto.get().encrypt(message.toBytes()).toJson();
+
+        for (final var client : subscribers) {
+            try {
+                client.sendEvent(EVENT, json, String.valueOf(to));
+            } catch (final RuntimeException e) {
+                log.warn("Falha ao enviar ao Gateway, removendo inscrição", e);
+                subscribers.remove(client);
+                client.close();
+            }
+        }
+
+        published.add(data.size());
+        frames.increment();
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+        closed = true;
+        publisher.join();
+
+        subscribers.forEach(SseClient::close);
+        log.info("Canal ao vivo encerrado: {} capturas em {} quadros, {} descartadas", published.sum(),
+                frames.sum(), dropped.sum());
+    }
+
+}
@@ -11,6 +11,8 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,7 +22,13 @@ import lombok.experimental.Accessors;
 @NoArgsConstructor
 @Accessors(chain = true)
 @Entity
-@Table(name = "snapshots")
+@Table(name = "snapshots", indexes = {
+        @Index(name = "idx_snapshots_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_snapshots_device_element_timestamp", columnList = "deviceName, element, timestamp"),
+        @Index(name = "idx_snapshots_epoch_day_timestamp", columnList = "epochDay, timestamp"),
+        @Index(name = "idx_snapshots_sequence", columnList = "sequence", unique = true),
+        @Index(name = "idx_snapshots_reading_id", columnList = "readingId"),
+})
 public class Snapshot {
 
     @Id
@@ -40,4 +48,40 @@ public class Snapshot {
     @Column(nullable = false)
     private double capturedValue;
 
+    /**
+     * Posição da captura no feed de mudanças, crescente na ordem em que as
+     * capturas são gravadas. Atribuída pelo {@code SnapshotWriter}, único
+     * responsável pelas gravações, antes de cada lote.
+     */
+    @Column(nullable = false)
+    private long sequence;
+
+    /**
+     * Leitura de origem, atribuída pelo Gateway e comum a todas as capturas
+     * dela. É por ela que uma leitura rejeitada é retirada; leituras que não
+     * podem ser retiradas chegam sem identificador.
+     */
+    private UUID readingId;
+
+    /**
+     * Dia da captura (dias desde 1970-01-01), derivado do instante ao
+     * persistir. Não é um particionamento: a tabela é uma só. Serve de prefixo
+     * do índice {@code (epochDay, timestamp)}, que as consultas por intervalo
+     * de instantes ({@code listAllAfter} e {@code forEachReading}) usam para
+     * limitar a busca aos dias pedidos. As que seguem outra ordem (página por
+     * {@code (timestamp, id)} e feed por {@code sequence}) usam os índices
+     * dessas colunas.
+     */
+    @Column(nullable = false)
+    private long epochDay;
+
+    public static long epochDayOf(final LocalDateTime timestamp) {
+        return timestamp.toLocalDate().toEpochDay();
+    }
+
+    @PrePersist
+    private void assignEpochDay() {
+        epochDay = epochDayOf(timestamp);
+    }
+
 }
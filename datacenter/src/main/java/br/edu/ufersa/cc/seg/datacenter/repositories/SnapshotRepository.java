@@ -1,15 +1,34 @@
 package br.edu.ufersa.cc.seg.datacenter.repositories;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.Session;
 
 import br.edu.ufersa.cc.seg.common.utils.Element;
 import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import jakarta.persistence.TypedQuery;
 
 public class SnapshotRepository {
 
+    /** Deve acompanhar {@code hibernate.jdbc.batch_size} no persistence.xml */
+    private static final int BATCH_SIZE = 50;
+
+    /** Linhas trazidas do banco por vez nas leituras com cursor */
+    private static final int FETCH_SIZE = 500;
+
+    /** Recebe as colunas de uma captura, sem instanciar a entidade */
+    @FunctionalInterface
+    public interface ReadingVisitor {
+        void visit(String deviceName, Element element, LocalDateTime timestamp, double capturedValue);
+    }
+
     private EntityManagerFactory emf = Persistence.createEntityManagerFactory("snapshots");
 
     public List<Snapshot> listAll() {
@@ -23,7 +42,9 @@ public class SnapshotRepository {
 
     public List<Snapshot> listAllAfter(final LocalDateTime timestamp) {
         final var em = emf.createEntityManager();
-        final var query = em.createQuery("select c from Snapshot c where c.timestamp >= :timestamp", Snapshot.class);
+        final var query = em.createQuery(
+                "select c from Snapshot c where c.epochDay >= :day and c.timestamp >= :timestamp", Snapshot.class);
+        query.setParameter("day", Snapshot.epochDayOf(timestamp));
         query.setParameter("timestamp", timestamp);
         final var result = query.getResultList();
 
@@ -31,6 +52,122 @@ public class SnapshotRepository {
         return result;
     }
 
+    /**
+     * Página ordenada por {@code (timestamp, id)} a partir da posição
+     * informada (exclusiva). Sem posição, começa do início. A consulta usa
+     * apenas o índice, sem {@code OFFSET}, então o custo não cresce com o
+     * número da página.
+     */
+    public List<Snapshot> listPage(final LocalDateTime afterTimestamp, final UUID afterId, final int limit) {
+        final var em = emf.createEntityManager();
+        final TypedQuery<Snapshot> query;
+        if (afterTimestamp == null) {
+            query = em.createQuery("select c from Snapshot c order by c.timestamp, c.id", Snapshot.class);
+        } else {
+            query = em.createQuery("select c from Snapshot c"
+                    + " where c.timestamp > :timestamp or (c.timestamp = :timestamp and c.id > :id)"
+                    + " order by c.timestamp, c.id", Snapshot.class);
+            query.setParameter("timestamp", afterTimestamp);
+            query.setParameter("id", afterId);
+        }
+
+        final var result = query.setMaxResults(limit).getResultList();
+        em.close();
+        return result;
+    }
+
+    /**
+     * Capturas gravadas depois da posição informada do feed de mudanças, em
+     * ordem
+     */
+    public List<Snapshot> listSince(final long sequence, final int limit) {
+        final var em = emf.createEntityManager();
+        final var query = em.createQuery(
+                "select c from Snapshot c where c.sequence > :sequence order by c.sequence", Snapshot.class);
+        query.setParameter("sequence", sequence);
+
+        final var result = query.setMaxResults(limit).getResultList();
+        em.close();
+        return result;
+    }
+
+    public long maxSequence() {
+        final var em = emf.createEntityManager();
+        final var max = em.createQuery("SELECT COALESCE(MAX(c.sequence), 0) FROM Snapshot c", Long.class)
+                .getSingleResult();
+        em.close();
+        return max;
+    }
+
+    /**
+     * Percorre todas as capturas em ordem de {@code (timestamp, id)} com um
+     * cursor do banco, sem carregar a tabela na memória: as linhas são lidas
+     * em blocos de {@link #FETCH_SIZE} e a sessão é esvaziada a cada bloco.
+     */
+    public void forEach(final Consumer<Snapshot> consumer) {
+        final var em = emf.createEntityManager();
+        final var session = em.unwrap(Session.class);
+
+        try (final var results = session
+                .createSelectionQuery("from Snapshot c order by c.timestamp, c.id", Snapshot.class)
+                .setReadOnly(true)
+                .setFetchSize(FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            var read = 0;
+            while (results.next()) {
+                consumer.accept(results.get());
+
+                if (++read % FETCH_SIZE == 0) {
+                    session.clear();
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Percorre com um cursor as capturas com instante em [{@code from},
+     * {@code to}), opcionalmente de um só dispositivo e/ou elemento. Só as
+     * colunas necessárias são lidas, sem entidades no contexto.
+     */
+    public void forEachReading(final LocalDateTime from, final LocalDateTime to, final String deviceName,
+            final Element element, final ReadingVisitor visitor) {
+        final var em = emf.createEntityManager();
+        final var session = em.unwrap(Session.class);
+
+        final var jpql = new StringBuilder("select c.deviceName, c.element, c.timestamp, c.capturedValue"
+                + " from Snapshot c where c.epochDay between :fromDay and :toDay"
+                + " and c.timestamp >= :from and c.timestamp < :to");
+        if (deviceName != null) {
+            jpql.append(" and c.deviceName = :deviceName");
+        }
+        if (element != null) {
+            jpql.append(" and c.element = :element");
+        }
+
+        final var query = session.createSelectionQuery(jpql.toString(), Object[].class)
+                .setParameter("fromDay", Snapshot.epochDayOf(from))
+                .setParameter("toDay", Snapshot.epochDayOf(to))
+                .setParameter("from", from)
+                .setParameter("to", to);
+        if (deviceName != null) {
+            query.setParameter("deviceName", deviceName);
+        }
+        if (element != null) {
+            query.setParameter("element", element);
+        }
+
+        try (final var results = query.setReadOnly(true).setFetchSize(FETCH_SIZE).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                final var row = results.get();
+                visitor.visit((String) row[0], (Element) row[1], (LocalDateTime) row[2], (Double) row[3]);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
     public List<Snapshot> listByElement(final Element element) {
         final var em = emf.createEntityManager();
         final var query = em.createQuery(
@@ -60,4 +197,69 @@ public class SnapshotRepository {
         em.close();
     }
 
+    /**
+     * Persiste todas as capturas numa única transação, em lotes JDBC. O
+     * contexto é esvaziado a cada lote para não acumular as entidades já
+     * enviadas ao banco. Se algo falhar, a transação é desfeita e nenhuma
+     * captura do lote fica gravada.
+     */
+    public void createAll(final Collection<Snapshot> snapshots) {
+        final var em = emf.createEntityManager();
+        final var tx = em.getTransaction();
+        try {
+            tx.begin();
+
+            var pending = 0;
+            for (final var snapshot : snapshots) {
+                em.persist(snapshot);
+
+                if (++pending == BATCH_SIZE) {
+                    em.flush();
+                    em.clear();
+                    pending = 0;
+                }
+            }
+
+            tx.commit();
+        } catch (final RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Apaga as capturas de uma leitura
+     *
+     * @return as capturas apagadas
+     */
+    public List<Snapshot> deleteByReadingId(final UUID readingId) {
+        final var em = emf.createEntityManager();
+        final var tx = em.getTransaction();
+        try {
+            tx.begin();
+
+            final var removed = em.createQuery("SELECT c FROM Snapshot c WHERE c.readingId = :readingId",
+                    Snapshot.class)
+                    .setParameter("readingId", readingId)
+                    .getResultList();
+            em.createQuery("DELETE FROM Snapshot c WHERE c.readingId = :readingId")
+                    .setParameter("readingId", readingId)
+                    .executeUpdate();
+
+            tx.commit();
+            return removed;
+        } catch (final RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
 }
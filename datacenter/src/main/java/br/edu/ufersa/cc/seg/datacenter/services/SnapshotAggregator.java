@@ -0,0 +1,174 @@
+package br.edu.ufersa.cc.seg.datacenter.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import br.edu.ufersa.cc.seg.common.dto.SnapshotAggregateDto;
+import br.edu.ufersa.cc.seg.common.utils.Constants;
+import br.edu.ufersa.cc.seg.common.utils.Element;
+
+/**
+ * Reduz capturas a uma série por dispositivo e elemento, com um ponto por
+ * intervalo de {@code bucketSeconds} a partir de {@code from}: quantidade,
+ * média, mínimo, máximo e percentil 95.
+ * <p>
+ * Só os intervalos que recebem capturas ganham acumuladores, e o total deles
+ * é limitado por {@code maxPoints}. Para o percentil, cada intervalo guarda no
+ * máximo {@link #MAX_SAMPLES} valores: até esse limite o percentil é exato;
+ * acima dele, é estimado sobre uma amostra uniforme das capturas (amostragem
+ * de reservatório).
+ */
+public class SnapshotAggregator {
+
+    public static final int MAX_SAMPLES = 1024;
+
+    private static final double PERCENTILE = 0.95;
+    private static final int INITIAL_SAMPLES = 16;
+
+    private final long from;
+    private final long bucketSeconds;
+    private final int buckets;
+    private final int maxPoints;
+
+    private final Map<String, Map<Element, Series>> series = new TreeMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private int points;
+
+    public SnapshotAggregator(final LocalDateTime from, final LocalDateTime to, final long bucketSeconds,
+            final int maxPoints) {
+        if (bucketSeconds < 1 || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Intervalo de agregação inválido");
+        }
+
+        this.from = toSeconds(from);
+        this.bucketSeconds = bucketSeconds;
+        this.buckets = (int) Math.ceilDiv(toSeconds(to) - this.from, bucketSeconds);
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Número de intervalos entre {@code from} e {@code to}
+     */
+    public static long bucketsBetween(final LocalDateTime from, final LocalDateTime to, final long bucketSeconds) {
+        return Math.ceilDiv(toSeconds(to) - toSeconds(from), bucketSeconds);
+    }
+
+    /**
+     * @throws IllegalArgumentException se a captura abrir um ponto além de
+     *                                  {@code maxPoints}
+     */
+    public void add(final String deviceName, final Element element, final LocalDateTime timestamp,
+            final double value) {
+        final var bucket = Math.floorDiv(toSeconds(timestamp) - from, bucketSeconds);
+        if (bucket < 0 || bucket >= buckets) {
+            return;
+        }
+
+        series.computeIfAbsent(deviceName, key -> new EnumMap<>(Element.class))
+                .computeIfAbsent(element, key -> new Series())
+                .add((int) bucket, value);
+    }
+
+    /**
+     * Pontos das séries, por dispositivo, elemento e instante; intervalos sem
+     * capturas ficam de fora
+     */
+    public List<SnapshotAggregateDto> result() {
+        final var result = new ArrayList<SnapshotAggregateDto>(points);
+        series.forEach((deviceName, elements) -> elements.forEach((element, each) -> each.points
+                .forEach((bucket, point) -> {
+                    final var kept = Math.min(point.count, MAX_SAMPLES);
+                    Arrays.sort(point.samples, 0, kept);
+
+                    // Percentil pelo posto mais próximo, entre os valores guardados
+                    final var rank = (int) Math.ceil(PERCENTILE * kept) - 1;
+                    result.add(new SnapshotAggregateDto()
+                            .setDeviceName(deviceName)
+                            .setElement(element)
+                            .setTimestamp(fromSeconds(from + bucket * bucketSeconds)
+                                    .format(Constants.DATE_TIME_FORMATTER))
+                            .setCount(point.count)
+                            .setAvg(point.sum / point.count)
+                            .setMin(point.min)
+                            .setMax(point.max)
+                            .setP95(point.samples[rank]));
+                })));
+
+        return result;
+    }
+
+    private static long toSeconds(final LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromSeconds(final long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    /** Pontos de um elemento de um dispositivo, só dos intervalos com capturas */
+    private class Series {
+
+        private final Map<Integer, Point> points = new TreeMap<>();
+
+        private void add(final int bucket, final double value) {
+            var point = points.get(bucket);
+            if (point == null) {
+                if (SnapshotAggregator.this.points == maxPoints) {
+                    throw new IllegalArgumentException("Agregação excede " + maxPoints + " pontos");
+                }
+                SnapshotAggregator.this.points++;
+
+                point = new Point(value);
+                points.put(bucket, point);
+            }
+
+            point.add(value);
+        }
+
+    }
+
+    /** Acumuladores de um intervalo */
+    private class Point {
+
+        private int count;
+        private double sum;
+        private double min;
+        private double max;
+        private double[] samples = new double[INITIAL_SAMPLES];
+
+        private Point(final double first) {
+            this.min = first;
+            this.max = first;
+        }
+
+        private void add(final double value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+
+            if (count < MAX_SAMPLES) {
+                if (count == samples.length) {
+                    samples = Arrays.copyOf(samples, Math.min(count * 2, MAX_SAMPLES));
+                }
+                samples[count] = value;
+            } else {
+                // Cada captura fica na amostra com probabilidade MAX_SAMPLES / (count + 1)
+                final var slot = random.nextInt(count + 1);
+                if (slot < MAX_SAMPLES) {
+                    samples[slot] = value;
+                }
+            }
+
+            count++;
+        }
+
+    }
+
+}
@@ -0,0 +1,373 @@
+package br.edu.ufersa.cc.seg.datacenter.services;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import br.edu.ufersa.cc.seg.common.dto.SnapshotDto;
+import br.edu.ufersa.cc.seg.common.utils.Constants;
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Capturas recentes em memória, uma série por dispositivo e elemento, para
+ * responder às consultas das janelas mais novas sem ir ao banco.
+ * <p>
+ * Cada série é um buffer circular em vetores primitivos (instante, valor,
+ * posição no feed e identificador), na ordem de gravação. Ela guarda as
+ * capturas dos últimos {@code SNAPSHOT_CACHE_RETENTION} ms, contados a partir
+ * da mais nova da série, até {@code SNAPSHOT_CACHE_CAPACITY} capturas; os
+ * vetores começam pequenos e crescem até esse limite.
+ * <p>
+ * As séries são preenchidas depois que cada lote é gravado, de modo que só
+ * contêm capturas que já estão no banco, com identificador e posição. Duas
+ * marcas dizem o que a memória cobre por inteiro: toda captura com posição
+ * acima de uma, ou com instante acima da outra, está nas séries. Consultas
+ * que começam antes delas vão ao {@link SnapshotService}.
+ */
+@Slf4j
+public class SnapshotCache {
+
+    public static final String RETENTION_VARIABLE = "SNAPSHOT_CACHE_RETENTION";
+    public static final String CAPACITY_VARIABLE = "SNAPSHOT_CACHE_CAPACITY";
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Retrato dos contadores do cache */
+    @Value
+    public static class Stats {
+        int series;
+        long entries;
+        long hits;
+        long misses;
+        long evicted;
+    }
+
+    private record Key(String deviceName, Element element) {
+    }
+
+    private final SnapshotService snapshotService;
+    private final long retention;
+    private final int capacity;
+
+    private final Map<Key, Series> series = new ConcurrentHashMap<>();
+
+    // Posição mais alta cujo lote já entrou por inteiro nas séries; as
+    // consultas ignoram o que estiver acima, para não pular capturas de um
+    // lote ainda pela metade
+    private volatile long published;
+
+    private final LongAccumulator sequenceMark = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator timeMark = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public SnapshotCache(final SnapshotService snapshotService) {
+        this(snapshotService, fromEnv(RETENTION_VARIABLE, 60_000), (int) fromEnv(CAPACITY_VARIABLE, 4_096));
+    }
+
+    public SnapshotCache(final SnapshotService snapshotService, final long retention, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cada série precisa comportar ao menos uma captura");
+        }
+
+        this.snapshotService = snapshotService;
+        this.retention = retention;
+        this.capacity = capacity;
+        warmUp();
+    }
+
+    private static long fromEnv(final String variable, final long defaultValue) {
+        return Optional.ofNullable(System.getenv(variable))
+                .map(Long::parseLong)
+                .orElse(defaultValue);
+    }
+
+    /**
+     * Carrega do banco a janela de retenção, para que a memória já responda
+     * por ela logo depois de reiniciar
+     */
+    private void warmUp() {
+        final var from = LocalDateTime.now().minus(retention, ChronoUnit.MILLIS);
+        final var maxSequence = snapshotService.maxSequence();
+
+        final var recent = new ArrayList<>(snapshotService.listAllAfter(from));
+        recent.sort(Comparator.comparingLong(SnapshotDto::getSequence));
+        for (final var dto : recent) {
+            seriesOf(dto.getDeviceName(), dto.getElement()).append(
+                    toMillis(LocalDateTime.parse(dto.getTimestamp(), Constants.DATE_TIME_FORMATTER)),
+                    dto.getCapturedValue(), dto.getSequence(), dto.getId());
+        }
+
+        // O que foi gravado antes de agora só está completo a partir de "from"
+        sequenceMark.accumulate(maxSequence);
+        timeMark.accumulate(toMillis(from) - 1);
+        published = maxSequence;
+
+        log.info("Cache de capturas iniciado com {} capturas dos últimos {} ms", recent.size(), retention);
+    }
+
+    /**
+     * Acrescenta um lote já gravado, na ordem das posições
+     */
+    public void addAll(final Collection<Snapshot> snapshots) {
+        var last = published;
+        for (final var snapshot : snapshots) {
+            seriesOf(snapshot.getDeviceName(), snapshot.getElement()).append(toMillis(snapshot.getTimestamp()),
+                    snapshot.getCapturedValue(), snapshot.getSequence(), snapshot.getId());
+            last = Math.max(last, snapshot.getSequence());
+        }
+        published = last;
+    }
+
+    /**
+     * Retira da memória capturas já apagadas do banco, pelo identificador
+     */
+    public void removeAll(final Collection<Snapshot> snapshots) {
+        for (final var snapshot : snapshots) {
+            Optional.ofNullable(series.get(new Key(snapshot.getDeviceName(), snapshot.getElement())))
+                    .ifPresent(found -> found.remove(snapshot.getId()));
+        }
+    }
+
+    /**
+     * Como {@link SnapshotService#listSince(long, int)}, da memória quando ela
+     * cobre tudo depois da posição informada
+     */
+    public List<SnapshotDto> listSince(final long sequence, final int limit) {
+        if (sequence >= sequenceMark.get()) {
+            final var upTo = published;
+            final var found = new ArrayList<SnapshotDto>();
+            for (final var each : series.values()) {
+                each.collectSince(sequence, upTo, limit, found);
+            }
+
+            // Se algo foi descartado durante a leitura, ela pode estar incompleta
+            if (sequence >= sequenceMark.get()) {
+                hits.increment();
+                found.sort(Comparator.comparingLong(SnapshotDto::getSequence));
+                return found.size() > limit ? List.copyOf(found.subList(0, limit)) : found;
+            }
+        }
+
+        misses.increment();
+        return snapshotService.listSince(sequence, limit);
+    }
+
+    /**
+     * Como {@link SnapshotService#listAllAfter(LocalDateTime)}, da memória
+     * quando ela cobre tudo a partir do instante informado
+     */
+    public List<SnapshotDto> listAllAfter(final LocalDateTime timestamp) {
+        final var millis = toMillis(timestamp);
+        if (millis > timeMark.get()) {
+            final var upTo = published;
+            final var found = new ArrayList<SnapshotDto>();
+            for (final var each : series.values()) {
+                each.collectAfter(millis, upTo, found);
+            }
+
+            if (millis > timeMark.get()) {
+                hits.increment();
+                found.sort(Comparator.comparingLong(SnapshotDto::getSequence));
+                return found;
+            }
+        }
+
+        misses.increment();
+        return snapshotService.listAllAfter(timestamp);
+    }
+
+    public Stats stats() {
+        var entries = 0L;
+        for (final var each : series.values()) {
+            entries += each.size();
+        }
+        return new Stats(series.size(), entries, hits.sum(), misses.sum(), evicted.sum());
+    }
+
+    private Series seriesOf(final String deviceName, final Element element) {
+        return series.computeIfAbsent(new Key(deviceName, element), key -> new Series(key));
+    }
+
+    private static long toMillis(final LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(final long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Capturas recentes de um elemento de um dispositivo. Como só a thread de
+     * escrita acrescenta capturas, as posições crescem do início ao fim.
+     */
+    private class Series {
+
+        private final Key key;
+
+        private long[] timestamps = new long[Math.min(INITIAL_CAPACITY, capacity)];
+        private double[] values = new double[timestamps.length];
+        private long[] sequences = new long[timestamps.length];
+        private long[] idHigh = new long[timestamps.length];
+        private long[] idLow = new long[timestamps.length];
+        private int head;
+        private int size;
+
+        private Series(final Key key) {
+            this.key = key;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized void append(final long timestamp, final double value, final long sequence,
+                final UUID id) {
+            // Descartar as que saíram da janela de retenção
+            while (size > 0 && timestamps[head] < timestamp - retention) {
+                evictHead();
+            }
+
+            if (size == timestamps.length) {
+                if (timestamps.length < capacity) {
+                    grow();
+                } else {
+                    evictHead();
+                }
+            }
+
+            final var index = (head + size) % timestamps.length;
+            timestamps[index] = timestamp;
+            values[index] = value;
+            sequences[index] = sequence;
+            idHigh[index] = id.getMostSignificantBits();
+            idLow[index] = id.getLeastSignificantBits();
+            size++;
+        }
+
+        private void evictHead() {
+            sequenceMark.accumulate(sequences[head]);
+            timeMark.accumulate(timestamps[head]);
+            evicted.increment();
+
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+
+        private void grow() {
+            final var length = Math.min(capacity, timestamps.length * 2);
+            timestamps = unroll(timestamps, length);
+            values = unroll(values, length);
+            sequences = unroll(sequences, length);
+            idHigh = unroll(idHigh, length);
+            idLow = unroll(idLow, length);
+            head = 0;
+        }
+
+        private long[] unroll(final long[] ring, final int length) {
+            final var copy = new long[length];
+            for (var i = 0; i < size; i++) {
+                copy[i] = ring[(head + i) % ring.length];
+            }
+            return copy;
+        }
+
+        private double[] unroll(final double[] ring, final int length) {
+            final var copy = new double[length];
+            for (var i = 0; i < size; i++) {
+                copy[i] = ring[(head + i) % ring.length];
+            }
+            return copy;
+        }
+
+        private synchronized void remove(final UUID id) {
+            // Compactar mantendo a ordem; retiradas são raras
+            var kept = 0;
+            for (var i = 0; i < size; i++) {
+                final var from = (head + i) % timestamps.length;
+                if (idHigh[from] == id.getMostSignificantBits() && idLow[from] == id.getLeastSignificantBits()) {
+                    continue;
+                }
+
+                final var to = (head + kept) % timestamps.length;
+                timestamps[to] = timestamps[from];
+                values[to] = values[from];
+                sequences[to] = sequences[from];
+                idHigh[to] = idHigh[from];
+                idLow[to] = idLow[from];
+                kept++;
+            }
+            size = kept;
+        }
+
+        /**
+         * Até {@code limit} capturas com posição em ({@code after}, {@code upTo}]
+         */
+        private synchronized void collectSince(final long after, final long upTo, final int limit,
+                final List<SnapshotDto> found) {
+            // Busca binária pela primeira posição depois de "after"
+            var low = 0;
+            var high = size;
+            while (low < high) {
+                final var middle = (low + high) >>> 1;
+                if (sequences[(head + middle) % timestamps.length] <= after) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            for (var i = low; i < size && i - low < limit; i++) {
+                final var index = (head + i) % timestamps.length;
+                if (sequences[index] > upTo) {
+                    break;
+                }
+                found.add(toDto(index));
+            }
+        }
+
+        /**
+         * Capturas com instante a partir de {@code from} e posição até
+         * {@code upTo}
+         */
+        private synchronized void collectAfter(final long from, final long upTo, final List<SnapshotDto> found) {
+            for (var i = 0; i < size; i++) {
+                final var index = (head + i) % timestamps.length;
+                if (sequences[index] > upTo) {
+                    break;
+                }
+                if (timestamps[index] >= from) {
+                    found.add(toDto(index));
+                }
+            }
+        }
+
+        private SnapshotDto toDto(final int index) {
+            return new SnapshotDto()
+                    .setId(new UUID(idHigh[index], idLow[index]))
+                    .setSequence(sequences[index])
+                    .setDeviceName(key.deviceName())
+                    .setElement(key.element())
+                    .setCapturedValue(values[index])
+                    .setTimestamp(fromMillis(timestamps[index]).format(Constants.DATE_TIME_FORMATTER));
+        }
+
+    }
+
+}
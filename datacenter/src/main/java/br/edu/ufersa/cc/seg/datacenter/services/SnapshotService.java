@@ -1,10 +1,19 @@
 package br.edu.ufersa.cc.seg.datacenter.services;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+import br.edu.ufersa.cc.seg.common.dto.SnapshotAggregateDto;
 import br.edu.ufersa.cc.seg.common.dto.SnapshotDto;
+import br.edu.ufersa.cc.seg.common.dto.SnapshotPageDto;
 import br.edu.ufersa.cc.seg.common.utils.Constants;
+import br.edu.ufersa.cc.seg.common.utils.Element;
 import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
 import br.edu.ufersa.cc.seg.datacenter.repositories.SnapshotRepository;
 import lombok.NoArgsConstructor;
@@ -14,6 +23,12 @@ import lombok.extern.slf4j.Slf4j;
 @NoArgsConstructor
 public class SnapshotService {
 
+    private static final String CURSOR_SEPARATOR = "_";
+
+    /** Posição de uma página: instante e identificador da última captura */
+    record Cursor(LocalDateTime timestamp, UUID id) {
+    }
+
     private SnapshotRepository snapshotRepository = new SnapshotRepository();
 
     public Long countAll() {
@@ -34,13 +49,109 @@ public class SnapshotService {
                 .toList();
     }
 
+    /**
+     * Página de capturas depois do cursor informado (ou do início, se nulo).
+     * O cursor da próxima página vem em {@link SnapshotPageDto#getNext()}, nulo
+     * quando não há mais capturas.
+     *
+     * @throws IllegalArgumentException se o cursor não for um emitido aqui
+     */
+    public SnapshotPageDto listPage(final String cursor, final int limit) {
+        LocalDateTime afterTimestamp = null;
+        UUID afterId = null;
+        if (cursor != null) {
+            final var after = decodeCursor(cursor);
+            afterTimestamp = after.timestamp();
+            afterId = after.id();
+        }
+
+        final var page = snapshotRepository.listPage(afterTimestamp, afterId, limit);
+
+        String next = null;
+        if (page.size() == limit) {
+            final var last = page.getLast();
+            next = encodeCursor(last.getTimestamp(), last.getId());
+        }
+
+        return new SnapshotPageDto()
+                .setData(page.stream().map(this::toDto).toList())
+                .setNext(next);
+    }
+
+    /**
+     * Cursor opaco: {@code timestamp_id} em base64 para URLs, sem
+     * preenchimento
+     */
+    static String encodeCursor(final LocalDateTime timestamp, final UUID id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestamp + CURSOR_SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeCursor(final String cursor) {
+        final String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: não é base64", e);
+        }
+
+        final var parts = decoded.split(CURSOR_SEPARATOR, -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Cursor inválido: esperado instante e identificador");
+        }
+
+        try {
+            return new Cursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (final DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + e.getMessage(), e);
+        }
+    }
+
+    public List<SnapshotDto> listSince(final long sequence, final int limit) {
+        return snapshotRepository.listSince(sequence, limit).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    public long maxSequence() {
+        return snapshotRepository.maxSequence();
+    }
+
+    /**
+     * Entrega todas as capturas, em ordem, sem carregá-las todas na memória
+     */
+    public void forEach(final Consumer<SnapshotDto> consumer) {
+        snapshotRepository.forEach(snapshot -> consumer.accept(toDto(snapshot)));
+    }
+
+    /**
+     * Séries resumidas das capturas com instante em [{@code from}, {@code to}),
+     * com um ponto a cada {@code bucketSeconds}; dispositivo e elemento são
+     * filtros opcionais
+     */
+    public List<SnapshotAggregateDto> aggregate(final LocalDateTime from, final LocalDateTime to,
+            final long bucketSeconds, final String deviceName, final Element element, final int maxPoints) {
+        final var aggregator = new SnapshotAggregator(from, to, bucketSeconds, maxPoints);
+        snapshotRepository.forEachReading(from, to, deviceName, element, aggregator::add);
+        return aggregator.result();
+    }
+
     public void create(final Snapshot snapshot) {
         snapshotRepository.create(snapshot);
     }
 
-    private SnapshotDto toDto(final Snapshot entity) {
+    public void createAll(final Collection<Snapshot> snapshots) {
+        snapshotRepository.createAll(snapshots);
+    }
+
+    public List<Snapshot> deleteByReadingId(final UUID readingId) {
+        return snapshotRepository.deleteByReadingId(readingId);
+    }
+
+    public SnapshotDto toDto(final Snapshot entity) {
         return new SnapshotDto()
                 .setId(entity.getId())
+                .setSequence(entity.getSequence())
                 .setDeviceName(entity.getDeviceName())
                 .setElement(entity.getElement())
                 .setCapturedValue(entity.getCapturedValue())
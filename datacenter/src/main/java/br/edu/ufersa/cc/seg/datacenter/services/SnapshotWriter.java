@@ -0,0 +1,392 @@
+package br.edu.ufersa.cc.seg.datacenter.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Escrita adiada (write-behind) das capturas: as sessões apenas colocam as
+ * capturas num buffer circular limitado, e uma thread dedicada as grava em
+ * lote via {@link SnapshotService#createAll(Collection)} quando o buffer
+ * acumula {@code SNAPSHOT_WRITER_FLUSH_SIZE} capturas ou quando se passam
+ * {@code SNAPSHOT_WRITER_FLUSH_INTERVAL} ms desde a primeira pendente.
+ * <p>
+ * Com o buffer cheio, {@link #offer(Collection)} espera até
+ * {@link #OFFER_TIMEOUT} ms por espaço e, se não houver, devolve
+ * {@code false}, para que o chamador sinalize a sobrecarga a quem enviou.
+ * As capturas de uma leitura entram todas juntas ou nenhuma entra.
+ * <p>
+ * É aqui que cada captura recebe a sua posição no feed de mudanças
+ * ({@link Snapshot#getSequence()}), e é daqui que os lotes gravados seguem
+ * para quem os acompanha ao vivo ({@link #onWritten(Consumer)}).
+ * <p>
+ * Um lote que falha é gravado de novo, com as mesmas posições, até
+ * {@code SNAPSHOT_WRITER_ATTEMPTS} vezes, com espera dobrada a cada
+ * tentativa. Enquanto isso o buffer enche e as novas capturas passam a ser
+ * recusadas. Se todas as tentativas falharem, o lote vai para o arquivo
+ * {@code SNAPSHOT_WRITER_DEAD_LETTER}, para ser reprocessado depois, e as suas
+ * posições são liberadas para o próximo lote: o feed não fica com lacunas.
+ */
+@Slf4j
+public class SnapshotWriter implements Closeable {
+
+    public static final String CAPACITY_VARIABLE = "SNAPSHOT_WRITER_CAPACITY";
+    public static final String FLUSH_SIZE_VARIABLE = "SNAPSHOT_WRITER_FLUSH_SIZE";
+    public static final String FLUSH_INTERVAL_VARIABLE = "SNAPSHOT_WRITER_FLUSH_INTERVAL";
+    public static final String ATTEMPTS_VARIABLE = "SNAPSHOT_WRITER_ATTEMPTS";
+    public static final String DEAD_LETTER_VARIABLE = "SNAPSHOT_WRITER_DEAD_LETTER";
+    public static final long OFFER_TIMEOUT = 1_000;
+
+    private static final long FIRST_RETRY_DELAY = 100;
+
+    /** Retrato dos contadores do buffer */
+    @Value
+    public static class Stats {
+        int capacity;
+        int depth;
+        int maxDepth;
+        long written;
+        long rejected;
+        long retried;
+        long failed;
+        long flushes;
+        double avgFlushMillis;
+        double maxFlushMillis;
+    }
+
+    private final SnapshotService snapshotService;
+    private final int flushSize;
+    private final long flushInterval;
+    private final int attempts;
+    private final Path deadLetter;
+
+    // Buffer circular: "size" posições ocupadas a partir de "head"
+    private final Snapshot[] ring;
+    private int head;
+    private int size;
+    private long enqueued;
+    private long flushed;
+    private boolean flushRequested;
+    private boolean closed;
+
+    // Usada apenas pela thread de escrita; só avança quando um lote é gravado
+    private long sequence;
+    private volatile Consumer<List<Snapshot>> listener = batch -> {
+    };
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder written = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final LongAccumulator maxFlushNanos = new LongAccumulator(Math::max, 0);
+
+    private final Thread writer;
+
+    public SnapshotWriter(final SnapshotService snapshotService) {
+        this(snapshotService, fromEnv(CAPACITY_VARIABLE, 10_000), fromEnv(FLUSH_SIZE_VARIABLE, 500),
+                fromEnv(FLUSH_INTERVAL_VARIABLE, 200), fromEnv(ATTEMPTS_VARIABLE, 5),
+                Path.of(Optional.ofNullable(System.getenv(DEAD_LETTER_VARIABLE))
+                        .orElse("snapshots-dead-letter.csv")));
+    }
+
+    public SnapshotWriter(final SnapshotService snapshotService, final int capacity, final int flushSize,
+            final long flushInterval, final int attempts, final Path deadLetter) {
+        if (flushSize < 1 || capacity < flushSize) {
+            throw new IllegalArgumentException("O buffer precisa comportar ao menos um lote");
+        }
+        if (attempts < 1) {
+            throw new IllegalArgumentException("É preciso ao menos uma tentativa de gravação");
+        }
+
+        this.snapshotService = snapshotService;
+        this.ring = new Snapshot[capacity];
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        this.attempts = attempts;
+        this.deadLetter = deadLetter;
+        this.sequence = snapshotService.maxSequence();
+        this.writer = Thread.ofPlatform().name("snapshot-writer").start(this::drain);
+    }
+
+    private static int fromEnv(final String variable, final int defaultValue) {
+        return Optional.ofNullable(System.getenv(variable))
+                .map(Integer::parseInt)
+                .orElse(defaultValue);
+    }
+
+    /**
+     * Coloca as capturas no buffer, esperando por espaço se necessário
+     *
+     * @return {@code false} se não houve espaço a tempo (ou se o escritor já
+     *         foi encerrado); nesse caso nenhuma captura foi aceita
+     */
+    @SneakyThrows
+    public boolean offer(final Collection<Snapshot> snapshots) {
+        final var count = snapshots.size();
+        if (count > ring.length) {
+            throw new IllegalArgumentException("Mais capturas do que cabem no buffer: " + count);
+        }
+
+        lock.lock();
+        try {
+            var remaining = TimeUnit.MILLISECONDS.toNanos(OFFER_TIMEOUT);
+            while (!closed && ring.length - size < count) {
+                if (remaining <= 0) {
+                    rejected.add(count);
+                    log.warn("Buffer de escrita cheio ({} capturas), recusando {}", size, count);
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+
+            if (closed) {
+                rejected.add(count);
+                return false;
+            }
+
+            for (final var snapshot : snapshots) {
+                ring[(head + size) % ring.length] = snapshot;
+                size++;
+            }
+            enqueued += count;
+            maxDepth.accumulate(size);
+
+            // Acordar o escritor com o lote completo ou com a primeira
+            // pendente, para que o prazo dela comece a correr
+            if (size >= flushSize || size == count) {
+                notEmpty.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera até que todas as capturas aceitas até agora estejam no banco
+     */
+    @SneakyThrows
+    public void flush() {
+        lock.lock();
+        try {
+            final var target = enqueued;
+            flushRequested = true;
+            notEmpty.signal();
+
+            while (flushed < target && writer.isAlive()) {
+                drained.await(flushInterval, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Define quem é avisado de cada lote gravado com sucesso, na ordem do
+     * feed. O aviso roda na thread de escrita e, portanto, não deve bloquear.
+     */
+    public void onWritten(final Consumer<List<Snapshot>> listener) {
+        this.listener = listener;
+    }
+
+    public Stats stats() {
+        final int depth;
+        lock.lock();
+        try {
+            depth = size;
+        } finally {
+            lock.unlock();
+        }
+
+        final var count = flushes.sum();
+        return new Stats(ring.length, depth, maxDepth.intValue(), written.sum(), rejected.sum(), retried.sum(),
+                failed.sum(), count, count == 0 ? 0 : flushNanos.sum() / 1e6 / count, maxFlushNanos.get() / 1e6);
+    }
+
+    /**
+     * Recusa novas capturas, grava as pendentes e encerra a thread de escrita
+     */
+    @Override
+    @SneakyThrows
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        writer.join();
+        log.info("Escrita de capturas encerrada: {}", stats());
+    }
+
+    private void drain() {
+        while (true) {
+            final var batch = take();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            write(batch);
+
+            lock.lock();
+            try {
+                flushed += batch.size();
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Espera até haver um lote completo, o prazo da primeira captura pendente
+     * vencer, um {@link #flush()} ser pedido ou o escritor ser encerrado.
+     * Devolve uma lista vazia apenas quando encerrado e sem pendências.
+     */
+    @SneakyThrows
+    private List<Snapshot> take() {
+        lock.lock();
+        try {
+            while (size == 0 && !closed) {
+                notEmpty.await();
+            }
+
+            var remaining = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+            while (size < flushSize && !closed && !flushRequested && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+
+            final var count = Math.min(size, flushSize);
+            final var batch = new ArrayList<Snapshot>(count);
+            for (var i = 0; i < count; i++) {
+                batch.add(ring[head]);
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+            }
+            size -= count;
+
+            if (size == 0) {
+                flushRequested = false;
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(final List<Snapshot> batch) {
+        // Como só esta thread grava, a ordem das posições é a ordem de
+        // gravação, e quem lê o feed nunca vê uma posição antes de uma menor
+        var next = sequence;
+        for (final var snapshot : batch) {
+            snapshot.setSequence(++next);
+        }
+
+        final var start = System.nanoTime();
+        final var stored = tryWrite(batch);
+        final var elapsed = System.nanoTime() - start;
+        flushes.increment();
+        flushNanos.add(elapsed);
+        maxFlushNanos.accumulate(elapsed);
+
+        if (!stored) {
+            failed.add(batch.size());
+            deadLetter(batch);
+            return;
+        }
+
+        sequence = next;
+        written.add(batch.size());
+        log.debug("Lote de {} capturas gravado em {} ms", batch.size(), elapsed / 1_000_000);
+
+        try {
+            listener.accept(batch);
+        } catch (final RuntimeException e) {
+            log.error("Falha ao avisar sobre lote gravado", e);
+        }
+    }
+
+    /**
+     * Grava o lote, tentando de novo com espera crescente se falhar
+     *
+     * @return {@code false} se todas as tentativas falharam
+     */
+    private boolean tryWrite(final List<Snapshot> batch) {
+        var delay = FIRST_RETRY_DELAY;
+        for (var attempt = 1;; attempt++) {
+            try {
+                snapshotService.createAll(batch);
+                return true;
+            } catch (final RuntimeException e) {
+                if (attempt == attempts) {
+                    log.error("Falha ao gravar lote de {} capturas após {} tentativas", batch.size(), attempt, e);
+                    return false;
+                }
+                log.warn("Falha ao gravar lote de {} capturas (tentativa {} de {}), repetindo em {} ms: {}",
+                        batch.size(), attempt, attempts, delay, e.getMessage());
+            }
+
+            retried.increment();
+            // A transação desfeita deixa os identificadores gerados nas entidades
+            batch.forEach(snapshot -> snapshot.setId(null));
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            delay *= 2;
+        }
+    }
+
+    /**
+     * Acrescenta as capturas de um lote não gravado ao arquivo de rejeitos, uma
+     * por linha: dispositivo, instante, elemento e valor
+     */
+    private void deadLetter(final List<Snapshot> batch) {
+        final var lines = new ArrayList<String>(batch.size());
+        for (final var snapshot : batch) {
+            lines.add(String.join(";", snapshot.getDeviceName(), String.valueOf(snapshot.getTimestamp()),
+                    snapshot.getElement().name(), String.valueOf(snapshot.getCapturedValue())));
+        }
+
+        try {
+            Files.write(deadLetter, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            log.error("Lote de {} capturas desviado para {}", batch.size(), deadLetter.toAbsolutePath());
+        } catch (final IOException e) {
+            log.error("Lote de {} capturas perdido: falha ao gravar em {}", batch.size(), deadLetter, e);
+        }
+    }
+
+}
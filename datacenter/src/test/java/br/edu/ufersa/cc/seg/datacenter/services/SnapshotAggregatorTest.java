@@ -0,0 +1,69 @@
+package br.edu.ufersa.cc.seg.datacenter.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import br.edu.ufersa.cc.seg.common.utils.Element;
+
+class SnapshotAggregatorTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 3, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(1);
+
+    @Test
+    void summarisesOnlyBucketsWithReadings() {
+        final var aggregator = new SnapshotAggregator(FROM, TO, 60, 10);
+        for (var value = 1; value <= 20; value++) {
+            aggregator.add("device-1", Element.CO, FROM.plusMinutes(90).plusSeconds(value), value);
+        }
+        aggregator.add("device-1", Element.CO, FROM.plusSeconds(5), 7);
+
+        final var result = aggregator.result();
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.getFirst().getCount());
+        assertEquals(7, result.getFirst().getP95());
+
+        final var point = result.get(1);
+        assertEquals(20, point.getCount());
+        assertEquals(10.5, point.getAvg());
+        assertEquals(1, point.getMin());
+        assertEquals(20, point.getMax());
+        assertEquals(19, point.getP95());
+    }
+
+    @Test
+    void estimatesPercentileFromBoundedSample() {
+        final var aggregator = new SnapshotAggregator(FROM, TO, 3600, 10);
+        final var count = 20 * SnapshotAggregator.MAX_SAMPLES;
+        for (var value = 1; value <= count; value++) {
+            aggregator.add("device-1", Element.CO, FROM.plusNanos(value), value);
+        }
+
+        final var point = aggregator.result().getFirst();
+
+        // Contagem, média e extremos continuam exatos; o percentil é estimado
+        assertEquals(count, point.getCount());
+        assertEquals((count + 1) / 2.0, point.getAvg());
+        assertEquals(1, point.getMin());
+        assertEquals(count, point.getMax());
+        assertTrue(Math.abs(point.getP95() - 0.95 * count) < 0.03 * count, "p95 estimado: " + point.getP95());
+    }
+
+    @Test
+    void rejectsMorePointsThanLimit() {
+        final var aggregator = new SnapshotAggregator(FROM, TO, 60, 2);
+        aggregator.add("device-1", Element.CO, FROM, 1);
+        aggregator.add("device-2", Element.CO, FROM, 1);
+        aggregator.add("device-2", Element.CO, FROM.plusSeconds(30), 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> aggregator.add("device-1", Element.CO2, FROM, 1));
+    }
+
+}
@@ -0,0 +1,169 @@
+package br.edu.ufersa.cc.seg.datacenter.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import br.edu.ufersa.cc.seg.common.dto.SnapshotDto;
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+
+class SnapshotCacheTest {
+
+    private static final long RETENTION = 60_000;
+    private static final int CAPACITY = 4;
+
+    /** Banco vazio que conta as consultas que o cache deixa passar */
+    private static class CountingService extends SnapshotService {
+
+        private final long maxSequence;
+        private final AtomicInteger queries = new AtomicInteger();
+
+        private CountingService(final long maxSequence) {
+            this.maxSequence = maxSequence;
+        }
+
+        @Override
+        public long maxSequence() {
+            return maxSequence;
+        }
+
+        @Override
+        public List<SnapshotDto> listSince(final long sequence, final int limit) {
+            queries.incrementAndGet();
+            return List.of();
+        }
+
+        @Override
+        public List<SnapshotDto> listAllAfter(final LocalDateTime timestamp) {
+            queries.incrementAndGet();
+            return List.of();
+        }
+    }
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private static Snapshot snapshot(final long sequence, final LocalDateTime timestamp) {
+        return new Snapshot()
+                .setId(UUID.randomUUID())
+                .setSequence(sequence)
+                .setDeviceName("device-1")
+                .setElement(Element.CO2)
+                .setTimestamp(timestamp)
+                .setCapturedValue(sequence);
+    }
+
+    /** Capturas com posições {@code from..to}, um segundo entre cada uma */
+    private List<Snapshot> snapshots(final long from, final long to) {
+        final var snapshots = new ArrayList<Snapshot>();
+        for (var sequence = from; sequence <= to; sequence++) {
+            snapshots.add(snapshot(sequence, now.minusSeconds(to - sequence)));
+        }
+        return snapshots;
+    }
+
+    private static List<Long> sequencesOf(final List<SnapshotDto> found) {
+        return found.stream().map(SnapshotDto::getSequence).toList();
+    }
+
+    private static SnapshotCache cache(final CountingService service) {
+        final var cache = new SnapshotCache(service, RETENTION, CAPACITY);
+        service.queries.set(0);
+        return cache;
+    }
+
+    @Test
+    void servesFeedFromMemoryAboveSequenceMark() {
+        final var service = new CountingService(0);
+        final var cache = cache(service);
+        cache.addAll(snapshots(1, 3));
+
+        assertEquals(List.of(1L, 2L, 3L), sequencesOf(cache.listSince(0, 10)));
+        assertEquals(List.of(2L), sequencesOf(cache.listSince(1, 1)));
+
+        assertEquals(0, service.queries.get());
+        assertEquals(2, cache.stats().getHits());
+        assertEquals(0, cache.stats().getMisses());
+    }
+
+    @Test
+    void feedBelowWarmUpGoesToDatabase() {
+        final var service = new CountingService(10);
+        final var cache = cache(service);
+
+        cache.listSince(9, 10);
+        assertEquals(1, service.queries.get());
+
+        cache.listSince(10, 10);
+        assertEquals(1, service.queries.get());
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void evictionRaisesSequenceMark() {
+        final var service = new CountingService(0);
+        final var cache = cache(service);
+
+        // Cabem quatro; as posições 1 e 2 saem da memória
+        cache.addAll(snapshots(1, 6));
+
+        cache.listSince(1, 10);
+        assertEquals(1, service.queries.get());
+
+        assertEquals(List.of(3L, 4L, 5L, 6L), sequencesOf(cache.listSince(2, 10)));
+        assertEquals(1, service.queries.get());
+        assertEquals(2, cache.stats().getEvicted());
+    }
+
+    @Test
+    void windowsBeforeRetentionGoToDatabase() {
+        final var service = new CountingService(0);
+        final var cache = cache(service);
+        cache.addAll(snapshots(1, 3));
+
+        assertEquals(List.of(2L, 3L), sequencesOf(cache.listAllAfter(now.minusSeconds(1))));
+        assertEquals(0, service.queries.get());
+
+        cache.listAllAfter(now.minus(2 * RETENTION, ChronoUnit.MILLIS));
+        assertEquals(1, service.queries.get());
+    }
+
+    @Test
+    void evictionRaisesTimeMark() {
+        final var service = new CountingService(0);
+        final var cache = cache(service);
+        final var snapshots = snapshots(1, 6);
+        cache.addAll(snapshots);
+
+        // A mais nova descartada foi a posição 2; a partir dela, a memória não cobre
+        final var lastEvicted = snapshots.get(1).getTimestamp();
+        cache.listAllAfter(lastEvicted);
+        assertEquals(1, service.queries.get());
+
+        assertEquals(List.of(3L, 4L, 5L, 6L), sequencesOf(cache.listAllAfter(lastEvicted.plusNanos(1_000_000))));
+        assertEquals(1, service.queries.get());
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void removesRetractedSnapshotsById() {
+        final var cache = cache(new CountingService(0));
+        final var snapshots = snapshots(1, 3);
+        cache.addAll(snapshots);
+
+        cache.removeAll(List.of(snapshots.get(1)));
+
+        assertEquals(List.of(1L, 3L), sequencesOf(cache.listSince(0, 10)));
+        assertEquals(2, cache.stats().getEntries());
+    }
+
+}
@@ -0,0 +1,98 @@
+package br.edu.ufersa.cc.seg.datacenter.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import br.edu.ufersa.cc.seg.common.dto.SnapshotDto;
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+
+class SnapshotServiceCursorTest {
+
+    private static String base64(final String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodesWhatItEncodes() {
+        final var timestamp = LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_789);
+        final var id = UUID.randomUUID();
+
+        final var cursor = SnapshotService.encodeCursor(timestamp, id);
+
+        assertFalse(cursor.contains("="), "Cursor deve dispensar preenchimento");
+        assertEquals(new SnapshotService.Cursor(timestamp, id), SnapshotService.decodeCursor(cursor));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "não é base64!", "%%%" })
+    void rejectsNonBase64(final String cursor) {
+        final var error = assertThrows(IllegalArgumentException.class, () -> SnapshotService.decodeCursor(cursor));
+        assertEquals("Cursor inválido: não é base64", error.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "2026-03-01T12:30:15", "2026-03-01T12:30:15_a_b" })
+    void rejectsWrongNumberOfParts(final String decoded) {
+        final var cursor = base64(decoded);
+
+        final var error = assertThrows(IllegalArgumentException.class, () -> SnapshotService.decodeCursor(cursor));
+        assertEquals("Cursor inválido: esperado instante e identificador", error.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "ontem_" + "00000000-0000-0000-0000-000000000000", "2026-03-01T12:30:15_nada" })
+    void rejectsUnparsableParts(final String decoded) {
+        final var cursor = base64(decoded);
+
+        final var error = assertThrows(IllegalArgumentException.class, () -> SnapshotService.decodeCursor(cursor));
+        assertTrue(error.getMessage().startsWith("Cursor inválido: "));
+    }
+
+    @Test
+    void pagesVisitEverySnapshotOnceAcrossEqualTimestamps() {
+        final var service = new SnapshotService();
+
+        // Várias capturas no mesmo instante: o desempate é pelo identificador
+        final var timestamp = LocalDateTime.of(2026, 3, 1, 12, 0);
+        var sequence = service.maxSequence();
+        final var snapshots = new ArrayList<Snapshot>();
+        for (var i = 0; i < 7; i++) {
+            snapshots.add(new Snapshot()
+                    .setDeviceName("device-1")
+                    .setTimestamp(timestamp.plusSeconds(i / 3))
+                    .setElement(Element.CO)
+                    .setCapturedValue(i)
+                    .setSequence(++sequence));
+        }
+        service.createAll(snapshots);
+
+        final var seen = new ArrayList<SnapshotDto>();
+        String cursor = null;
+        do {
+            final var page = service.listPage(cursor, 2);
+            seen.addAll(page.getData());
+            cursor = page.getNext();
+        } while (cursor != null);
+
+        assertEquals(service.countAll(), seen.size());
+        assertEquals(seen.size(), new HashSet<>(seen.stream().map(SnapshotDto::getId).toList()).size());
+        assertNull(service.listPage(SnapshotService.encodeCursor(timestamp.plusYears(100), UUID.randomUUID()), 2)
+                .getNext());
+    }
+
+}
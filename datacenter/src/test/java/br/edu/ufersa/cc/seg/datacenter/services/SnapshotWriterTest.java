@@ -0,0 +1,190 @@
+package br.edu.ufersa.cc.seg.datacenter.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import br.edu.ufersa.cc.seg.common.utils.Element;
+import br.edu.ufersa.cc.seg.datacenter.entities.Snapshot;
+
+class SnapshotWriterTest {
+
+    private static final long LONG_INTERVAL = 10_000;
+
+    /** Serviço que só registra os lotes, opcionalmente segurando a gravação */
+    private static class RecordingService extends SnapshotService {
+
+        private final List<List<Snapshot>> batches = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+
+        @Override
+        public long maxSequence() {
+            return 0;
+        }
+
+        @Override
+        public void createAll(final Collection<Snapshot> snapshots) {
+            entered.countDown();
+            try {
+                if (gate != null) {
+                    gate.await();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(List.copyOf(snapshots));
+        }
+
+        private int stored() {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    private final RecordingService service = new RecordingService();
+    private SnapshotWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private SnapshotWriter writer(final int capacity, final int flushSize, final long flushInterval) {
+        writer = new SnapshotWriter(service, capacity, flushSize, flushInterval, 1,
+                directory.resolve("dead-letter.csv"));
+        return writer;
+    }
+
+    private static List<Snapshot> snapshots(final int count) {
+        final var snapshots = new ArrayList<Snapshot>(count);
+        for (var i = 0; i < count; i++) {
+            snapshots.add(new Snapshot()
+                    .setDeviceName("device-1")
+                    .setTimestamp(LocalDateTime.now())
+                    .setElement(Element.CO2)
+                    .setCapturedValue(i));
+        }
+        return snapshots;
+    }
+
+    @Test
+    void flushesWhenBatchIsFull() throws InterruptedException {
+        final var written = new CountDownLatch(1);
+        writer(10, 3, LONG_INTERVAL).onWritten(batch -> written.countDown());
+
+        assertTrue(writer.offer(snapshots(3)));
+
+        assertTrue(written.await(2, TimeUnit.SECONDS), "Lote completo deveria ser gravado sem esperar o prazo");
+        assertEquals(3, service.batches.getFirst().size());
+    }
+
+    @Test
+    void flushesPartialBatchAfterInterval() throws InterruptedException {
+        final var written = new CountDownLatch(1);
+        writer(10, 5, 100).onWritten(batch -> written.countDown());
+
+        final var start = System.nanoTime();
+        assertTrue(writer.offer(snapshots(1)));
+
+        assertTrue(written.await(2, TimeUnit.SECONDS), "Captura pendente deveria ser gravada no prazo");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+        assertEquals(1, service.stored());
+    }
+
+    @Test
+    void flushWaitsForAcceptedSnapshotsAndAssignsSequences() {
+        writer(10, 5, LONG_INTERVAL);
+
+        writer.offer(snapshots(2));
+        writer.offer(snapshots(2));
+        writer.flush();
+
+        final var stored = service.batches.stream().flatMap(List::stream).toList();
+        assertEquals(4, stored.size());
+        for (var i = 0; i < stored.size(); i++) {
+            assertEquals(i + 1, stored.get(i).getSequence());
+        }
+    }
+
+    @Test
+    void offerTimesOutWhenBufferStaysFull() throws InterruptedException {
+        service.gate = new CountDownLatch(1);
+        writer(2, 1, 10);
+
+        // A primeira captura prende o escritor; as duas seguintes enchem o buffer
+        assertTrue(writer.offer(snapshots(1)));
+        assertTrue(service.entered.await(2, TimeUnit.SECONDS));
+        assertTrue(writer.offer(snapshots(2)));
+
+        final var start = System.nanoTime();
+        assertFalse(writer.offer(snapshots(1)));
+        final var waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waited >= SnapshotWriter.OFFER_TIMEOUT - 50, "Esperou apenas " + waited + " ms");
+        assertEquals(1, writer.stats().getRejected());
+
+        service.gate.countDown();
+        writer.flush();
+        assertEquals(3, service.stored());
+    }
+
+    @Test
+    void offerAcceptsAgainOnceSpaceFrees() throws InterruptedException {
+        service.gate = new CountDownLatch(1);
+        writer(2, 1, 10);
+
+        writer.offer(snapshots(1));
+        assertTrue(service.entered.await(2, TimeUnit.SECONDS));
+        writer.offer(snapshots(2));
+
+        // Liberar a gravação durante a espera de quem oferece
+        final var release = Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(SnapshotWriter.OFFER_TIMEOUT / 4);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            service.gate.countDown();
+        });
+
+        assertTrue(writer.offer(snapshots(1)));
+        release.join();
+        writer.flush();
+        assertEquals(4, service.stored());
+        assertEquals(0, writer.stats().getRejected());
+    }
+
+    @Test
+    void rejectsAfterClose() {
+        writer(10, 5, LONG_INTERVAL).close();
+
+        assertFalse(writer.offer(snapshots(1)));
+    }
+
+    @Test
+    void rejectsMoreThanCapacity() {
+        writer(4, 2, LONG_INTERVAL);
+
+        assertThrows(IllegalArgumentException.class, () -> writer.offer(snapshots(5)));
+    }
+
+}
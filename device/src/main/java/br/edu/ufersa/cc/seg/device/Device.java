@@ -6,7 +6,10 @@ import java.math.RoundingMode;
 import java.net.InetAddress;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -19,11 +22,13 @@ import br.edu.ufersa.cc.seg.common.factories.ServerMessengerFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
 import br.edu.ufersa.cc.seg.common.messengers.SecureMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionTicketCache;
 import br.edu.ufersa.cc.seg.common.utils.Constants;
 import br.edu.ufersa.cc.seg.common.utils.Element;
 import br.edu.ufersa.cc.seg.common.utils.Fields;
 import br.edu.ufersa.cc.seg.common.utils.MessageType;
 import br.edu.ufersa.cc.seg.common.utils.ServerType;
+import br.edu.ufersa.cc.seg.common.utils.SnapshotBatch;
 import lombok.Data;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -32,10 +37,22 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class Device {
 
+    public static final String BATCH_SIZE_VARIABLE = "SNAPSHOT_BATCH_SIZE";
+
     private static final Random RANDOM = new Random();
     private static final long INTERVAL = 3_000;
     private static final Timer TIMER = new Timer();
 
+    /**
+     * Leituras acumuladas antes de cada envio (padrão: 1, uma mensagem por
+     * leitura). Com lotes maiores, a cifragem e o enquadramento de cada
+     * mensagem são divididos entre várias leituras, ao custo de atrasar as
+     * primeiras do lote.
+     */
+    private static final int BATCH_SIZE = Optional.ofNullable(System.getenv(BATCH_SIZE_VARIABLE))
+            .map(Integer::parseInt)
+            .orElse(1);
+
     private final String name;
     private final EnvOrInputFactory envOrInputFactory;
     private final boolean intruder;
@@ -45,6 +62,7 @@ public class Device {
     private SecureMessenger gatewayTcpMessenger;
 
     private TimerTask subscription;
+    private final List<Message> pending = new ArrayList<>();
 
     private boolean isRunning;
 
@@ -60,13 +78,11 @@ public class Device {
                 final var snapshot = simulateReading()
                         .withValue("token", token);
                 log.info("Leitura feita: {}", snapshot);
-                gatewayUdpMessenger.send(snapshot);
 
-                try {
-                    final var response = gatewayUdpMessenger.receive();
-                    log.info("Retorno: {}", response.toJson());
-                } catch (IOException e) {
-                    // Ignorar
+                if (BATCH_SIZE <= 1) {
+                    send(snapshot);
+                } else {
+                    buffer(snapshot);
                 }
             }
         };
@@ -79,6 +95,7 @@ public class Device {
     public void close() {
         if (isRunning()) {
             subscription.cancel();
+            flush();
             log.info("Atividade do dispositivo {} finalizada", name);
         }
 
@@ -87,8 +104,48 @@ public class Device {
         locationMessenger.close();
     }
 
+    private synchronized void buffer(final Message snapshot) {
+        pending.add(snapshot);
+        if (pending.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Envia as leituras acumuladas num único {@code SEND_SNAPSHOT_BATCH}
+     */
+    private synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final var batch = SnapshotBatch.pack(MessageType.SEND_SNAPSHOT_BATCH, pending);
+        log.info("Enviando lote de {} leituras", pending.size());
+        pending.clear();
+        send(batch);
+    }
+
+    private void send(final Message message) {
+        gatewayUdpMessenger.send(message);
+
+        try {
+            final var response = gatewayUdpMessenger.receive();
+            log.info("Retorno: {}", response.toJson());
+        } catch (IOException e) {
+            // Ignorar
+        }
+    }
+
     @SneakyThrows
     private void connectToLocationServer() {
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationMessenger = MessengerFactory.agreeUdp(envOrInputFactory.getString("LOCATION_HOST"),
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -102,12 +159,12 @@ public class Device {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -119,7 +176,7 @@ public class Device {
         final var insecureHost = envOrInputFactory.getString("LOCATION_HOST");
         final var insecurePort = envOrInputFactory.getInt("LOCATION_PORT");
         final var insecureMessenger = MessengerFactory.udp(insecureHost, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -206,21 +263,29 @@ public class Device {
         final var asymmetricPort = (int) locationResponse.getValues().get(Fields.PORT);
         final var publicKey = (String) locationResponse.getValues().get(Fields.PUBLIC_KEY);
 
+        // Retomar a sessão anterior, se houver ticket
+        final var resumed = MessengerFactory.resumeUdp(asymmetricHost, asymmetricPort);
+        if (resumed.isPresent()) {
+            return resumed.get();
+        }
+
         final var asymmetricCryptoService = CryptoServiceFactory.publicRsa(publicKey);
         final var asymmetricMessenger = MessengerFactory.secureUdp(asymmetricHost, asymmetricPort,
                 asymmetricCryptoService);
 
-        final var request = new Message(MessageType.USE_SYMMETRIC);
+        final var offer = CryptoServiceFactory.symmetricOffer();
+
+        final var request = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
         asymmetricMessenger.send(request);
 
         final var response = asymmetricMessenger.receive();
         final String symmetricHost = response.getValue(Fields.HOST);
         final int symmetricPort = response.getValue(Fields.PORT);
-        final String encryptionKey = response.getValue(Fields.ENCRYPTION_KEY);
-        final String hmacKey = response.getValue(Fields.HMAC_KEY);
+        final String sessionId = response.getValue(Fields.SESSION_ID);
 
-        final var symmetricCryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-        return MessengerFactory.secureUdp(symmetricHost, symmetricPort, symmetricCryptoService);
+        final var symmetricCryptoService = CryptoServiceFactory.symmetric(offer, response);
+        SessionTicketCache.store(asymmetricHost, asymmetricPort, response);
+        return MessengerFactory.secureUdp(symmetricHost, symmetricPort, symmetricCryptoService, sessionId);
     }
 
     @SneakyThrows
@@ -233,16 +298,16 @@ public class Device {
         final var asymmetricMessenger = MessengerFactory.secureTcp(asymmetricHost, asymmetricPort,
                 asymmetricCryptoService);
 
-        final var request = new Message(MessageType.USE_SYMMETRIC);
+        final var offer = CryptoServiceFactory.symmetricOffer();
+
+        final var request = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
         asymmetricMessenger.send(request);
 
         final var response = asymmetricMessenger.receive();
         final String symmetricHost = response.getValue(Fields.HOST);
         final int symmetricPort = response.getValue(Fields.PORT);
-        final String encryptionKey = response.getValue(Fields.ENCRYPTION_KEY);
-        final String hmacKey = response.getValue(Fields.HMAC_KEY);
 
-        final var symmetricCryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
+        final var symmetricCryptoService = CryptoServiceFactory.symmetric(offer, response);
         return MessengerFactory.secureTcp(symmetricHost, symmetricPort, symmetricCryptoService);
     }
 
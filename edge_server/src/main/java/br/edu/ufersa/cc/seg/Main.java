@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.Optional;
 import java.util.Scanner;
 
+import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
 import br.edu.ufersa.cc.seg.common.factories.EnvOrInputFactory;
 import br.edu.ufersa.cc.seg.edge.EdgeServer;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +14,7 @@ public class Main {
 
     public static void main(String[] args) throws IOException {
         log.info("Iniciando servidor de borda...");
+        CryptoServiceFactory.warmUpRsaPool();
 
         final var input = Optional.ofNullable(Main.class.getResourceAsStream("/env.txt"))
                 .orElse(System.in);
@@ -6,6 +6,7 @@ import java.security.PublicKey;
 
 import br.edu.ufersa.cc.seg.common.auth.TokenService;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
 import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
 import br.edu.ufersa.cc.seg.common.factories.EnvOrInputFactory;
 import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
@@ -14,7 +15,8 @@ import br.edu.ufersa.cc.seg.common.factories.ServerMessengerFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
 import br.edu.ufersa.cc.seg.common.messengers.SecureMessenger;
-import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionTicketCache;
+import br.edu.ufersa.cc.seg.common.messengers.SessionServerMessenger;
 import br.edu.ufersa.cc.seg.common.utils.Fields;
 import br.edu.ufersa.cc.seg.common.utils.InstanceType;
 import br.edu.ufersa.cc.seg.common.utils.MessageType;
@@ -34,7 +36,7 @@ public class EdgeServer {
 
     private final PublicKey publicKey;
 
-    private final ServerMessenger serverMessenger;
+    private final SessionServerMessenger serverMessenger;
     private SecureMessenger datacenterMessenger;
     private Messenger locationMessenger;
 
@@ -56,6 +58,7 @@ public class EdgeServer {
         connectToLocationServer();
         register();
         locateDatacenterServer();
+        serverMessenger.enableResumption(sessionId -> this::handleRequest);
         serverMessenger.subscribe(this::serveSymmetric);
     }
 
@@ -64,10 +67,19 @@ public class EdgeServer {
         datacenterMessenger.close();
         locationMessenger.close();
         serverMessenger.close();
+        CryptoTrace.logCounters();
     }
 
     @SneakyThrows
     private void connectToLocationServer() {
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationMessenger = MessengerFactory.agreeUdp(envOrInputFactory.getString("LOCATION_HOST"),
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -81,12 +93,12 @@ public class EdgeServer {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -98,7 +110,7 @@ public class EdgeServer {
         final var insecureHost = envOrInputFactory.getString("LOCATION_HOST");
         final var insecurePort = envOrInputFactory.getInt("LOCATION_PORT");
         final var insecureMessenger = MessengerFactory.udp(insecureHost, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -158,19 +170,16 @@ public class EdgeServer {
         if (MessageType.USE_SYMMETRIC.equals(request.getType())) {
             log.info("Nova conexão assimétrica. Preparando-se para usar simétrica...");
 
-            final var encryptionKey = CryptoServiceFactory.generateAESKey();
-            final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            final var symmetricMessenger = ServerMessengerFactory.secureUdp(cryptoService);
-            symmetricMessenger.subscribe(this::handleRequest);
+            final var keys = CryptoServiceFactory.generateSymmetric(request);
+            final var cryptoService = keys.getCryptoService();
+            final var sessionId = serverMessenger.openSession(cryptoService, this::handleRequest);
             log.info("Aguardando mensagens simétricas...");
 
-            return MessageFactory.ok()
+            return keys.writeTo(MessageFactory.ok()
                     .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
-                    .withValue(Fields.PORT, symmetricMessenger.getPort())
-                    .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                    .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                    .withValue(Fields.PORT, serverMessenger.getPort())
+                    .withValue(Fields.SESSION_ID, sessionId)
+                    .withValue(Fields.SESSION_TICKET, serverMessenger.issueTicket(keys)));
         } else {
             return MessageFactory.error("Tipo de mensagem não suportada");
         }
@@ -182,28 +191,42 @@ public class EdgeServer {
         final var asymmetricPort = (int) locationResponse.getValues().get(Fields.PORT);
         final var datacenterPublicKey = (String) locationResponse.getValues().get(Fields.PUBLIC_KEY);
 
+        // Retomar a sessão anterior, se houver ticket
+        final var resumed = MessengerFactory.resumeUdp(asymmetricHost, asymmetricPort);
+        if (resumed.isPresent()) {
+            return resumed.get();
+        }
+
         final var datacenterAsymmetricCryptoService = CryptoServiceFactory.publicRsa(datacenterPublicKey);
         final var asymmetricMessenger = MessengerFactory.secureUdp(asymmetricHost, asymmetricPort,
                 datacenterAsymmetricCryptoService);
 
-        final var request = new Message(MessageType.USE_SYMMETRIC);
+        final var offer = CryptoServiceFactory.symmetricOffer();
+
+        final var request = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
         asymmetricMessenger.send(request);
 
         final var response = asymmetricMessenger.receive();
         final String symmetricHost = response.getValue(Fields.HOST);
         final var symmetricPort = (int) response.getValues().get(Fields.PORT);
-        final var encryptionKey = (String) response.getValues().get(Fields.ENCRYPTION_KEY);
-        final var hmacKey = (String) response.getValues().get(Fields.HMAC_KEY);
+        final var sessionId = (String) response.getValues().get(Fields.SESSION_ID);
 
-        final var symmetricCryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-        return MessengerFactory.secureUdp(symmetricHost, symmetricPort, symmetricCryptoService);
+
+        final var symmetricCryptoService = CryptoServiceFactory.symmetric(offer, response);
+        SessionTicketCache.store(asymmetricHost, asymmetricPort, response);
+        return MessengerFactory.secureUdp(symmetricHost, symmetricPort, symmetricCryptoService, sessionId);
     }
 
     private Message handleRequest(final Message request) {
         log.info("Leitura recebida: {}", request.getValues());
 
         return TokenHandler.handle(tokenService, request, InstanceType.DEVICE, (identifier, rqst) -> {
-            request.setType(MessageType.STORE_SNAPSHOT);
+            // Retiradas (leituras rejeitadas pelo detector) seguem como estão
+            if (MessageType.SEND_SNAPSHOT_BATCH.equals(request.getType())) {
+                request.setType(MessageType.STORE_SNAPSHOT_BATCH);
+            } else if (!MessageType.RETRACT_SNAPSHOT.equals(request.getType())) {
+                request.setType(MessageType.STORE_SNAPSHOT);
+            }
             datacenterMessenger.send(request);
             return MessageFactory.ok();
         });
@@ -1,9 +1,9 @@
 package br.edu.ufersa.cc.seg;
 
 import java.net.InetAddress;
-import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
 import br.edu.ufersa.cc.seg.common.utils.ConnectionType;
@@ -31,7 +31,8 @@ public class FilterFirewall {
         private boolean allowed;
     }
 
-    private Set<Rule> rules = new HashSet<>();
+    // Os pools do Gateway liberam conexões de várias threads
+    private Set<Rule> rules = ConcurrentHashMap.newKeySet();
 
     public FilterFirewall addRule(final ConnectionType connectionType, final InetAddress host, final int port,
             final boolean allowed) {
@@ -1,14 +1,21 @@
 package br.edu.ufersa.cc.seg.gateway;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
 import java.security.PublicKey;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
+import org.apache.http.HttpResponse;
 import org.apache.http.util.EntityUtils;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
@@ -16,6 +23,7 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import br.edu.ufersa.cc.seg.FilterFirewall;
 import br.edu.ufersa.cc.seg.common.auth.TokenService;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
 import br.edu.ufersa.cc.seg.common.crypto.HybridCryptoException;
 import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
 import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
@@ -25,8 +33,11 @@ import br.edu.ufersa.cc.seg.common.factories.MessengerFactory;
 import br.edu.ufersa.cc.seg.common.factories.ServerMessengerFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
+import br.edu.ufersa.cc.seg.common.messengers.MessengerPool;
 import br.edu.ufersa.cc.seg.common.messengers.SecureMessenger;
 import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionServerMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionTicketCache;
 import br.edu.ufersa.cc.seg.common.utils.ConnectionType;
 import br.edu.ufersa.cc.seg.common.utils.Constants;
 import br.edu.ufersa.cc.seg.common.utils.Fields;
@@ -43,6 +54,7 @@ import lombok.extern.slf4j.Slf4j;
 public class Gateway {
 
     private static final long INTERVAL = 3_000;
+    private static final String IDENTIFIER = "identifier";
 
     // Dependências
     private final EnvOrInputFactory envOrInputFactory;
@@ -51,7 +63,7 @@ public class Gateway {
     // Propriedades
     private final PublicKey publicKey;
     private final CryptoService rsaService;
-    private final Map<String, CryptoService> httpClients = new HashMap<>();
+    private final Map<String, CryptoService> httpClients = new ConcurrentHashMap<>();
     private final String intranetHost;
     private final String internetHost;
 
@@ -60,7 +72,7 @@ public class Gateway {
 
     // Servidores
     private final ServerMessenger tcpServerMessenger;
-    private final ServerMessenger udpServerMessenger;
+    private final SessionServerMessenger udpServerMessenger;
     private final Javalin httpServer;
 
     // Mensageiros para outras aplicações
@@ -68,10 +80,10 @@ public class Gateway {
     private final String locationInternetHost;
     private Messenger locationUdpIntranetMessenger;
     private Messenger locationUdpInternetMessenger;
-    private Messenger authTcpMessenger;
-    private Messenger edgeUdpMessenger;
-    private Messenger intrusionDetectorTcpMessenger;
+    private final Map<ServerType, MessengerPool> backendPools = new EnumMap<>(ServerType.class);
+    private SnapshotPipeline snapshotPipeline;
     private MyHttpClient datacenterHttpClient;
+    private LiveRelay liveRelay;
 
     public Gateway(final EnvOrInputFactory envOrInputFactory) {
         this.envOrInputFactory = envOrInputFactory;
@@ -101,9 +113,12 @@ public class Gateway {
         locateAuthServer();
         locateEdgeServer();
         locateIntrusionDetector();
+        snapshotPipeline = new SnapshotPipeline(backendPools.get(ServerType.INTRUSION_DETECTOR_TCP),
+                backendPools.get(ServerType.EDGE_UDP));
 
         // HTTP
         locateDatacenterHttp();
+        liveRelay = new LiveRelay(datacenterHttpClient, httpClients);
         configureHttpServer(datacenterHttpClient);
         registerHttp();
 
@@ -112,6 +127,7 @@ public class Gateway {
 
         // Começar a receber mensagens
         tcpServerMessenger.subscribe(this::serveTcpSymmetric);
+        udpServerMessenger.enableResumption(sessionId -> request -> serveUdpSession(sessionId, request));
         udpServerMessenger.subscribe(this::serveUdpSymmetric);
 
         // Registrar-se no servidor de localização
@@ -121,13 +137,30 @@ public class Gateway {
 
     @SneakyThrows
     public void stop() {
-        locationUdpIntranetMessenger.close();
+        // Parar de receber antes de encerrar o pipeline que atende as leituras
+        udpServerMessenger.close();
         tcpServerMessenger.close();
+        snapshotPipeline.close();
+        liveRelay.close();
+        backendPools.values().forEach(pool -> {
+            log.info("Encerrando pool: {}", pool.stats());
+            pool.close();
+        });
+        locationUdpIntranetMessenger.close();
         httpServer.stop();
+        CryptoTrace.logCounters();
     }
 
     @SneakyThrows
     private void connectToLocationIntranetServer(final String host) {
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationUdpIntranetMessenger = MessengerFactory.agreeUdp(host,
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -141,12 +174,12 @@ public class Gateway {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationUdpIntranetMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationUdpIntranetMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -159,7 +192,7 @@ public class Gateway {
         log.info("Conectando com o servidor de localização na intranet via {}:{}...", host, insecurePort);
 
         final var insecureMessenger = MessengerFactory.udp(host, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, intranetHost)
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -179,6 +212,14 @@ public class Gateway {
     private void connectToLocationInternetServer(final String host) {
         log.info("Conectando com o servidor de localização na internet...");
 
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationUdpInternetMessenger = MessengerFactory.agreeUdp(host,
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -192,12 +233,12 @@ public class Gateway {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationUdpInternetMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationUdpInternetMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -210,7 +251,7 @@ public class Gateway {
         log.info("Conectando com o servidor de localização na internet via {}:{}...", host, insecurePort);
 
         final var insecureMessenger = MessengerFactory.udp(host, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, internetHost)
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -254,49 +295,87 @@ public class Gateway {
 
     private void configureHttpServer(final MyHttpClient httpClient) {
         httpServer
+                .before("/api/snapshots/live", ctx -> {
+                    // Só segue para a inscrição quem tem token e sessão AES
+                    handleToken(ctx, InstanceType.CLIENT, (identifier, context) -> {
+                        if (httpClients.containsKey(identifier)) {
+                            context.attribute(IDENTIFIER, identifier);
+                        } else {
+                            final var response = MessageFactory.error("AES não estabelecido com o Gateway");
+                            context.status(400).json(rsaService.encrypt(response.toBytes()));
+                        }
+                    });
+
+                    if (ctx.attribute(IDENTIFIER) == null) {
+                        ctx.skipRemainingHandlers();
+                    }
+                })
+                .sse("/api/snapshots/live", client -> {
+                    log.info("Requisição HTTP recebida (ao vivo)");
+                    liveRelay.subscribe(client.ctx().attribute(IDENTIFIER), client);
+                })
+                .get("/api/snapshots/since/{sequence}", ctx -> {
+                    log.info("Requisição HTTP recebida (feed)");
+                    handleToken(ctx, InstanceType.CLIENT, (identifier, context) -> {
+                        final var token = context.header(Fields.TOKEN);
+                        final var sequence = context.pathParamAsClass("sequence", Long.class).get();
+                        final var limit = context.queryParamAsClass("limit", Integer.class).allowNullable().get();
+                        final var response = httpClient.getSnapshotsSince(token, sequence, limit);
+                        relaySecure(identifier, response, context);
+                    });
+                })
+                .get("/api/snapshots/page", ctx -> {
+                    log.info("Requisição HTTP recebida (página)");
+                    handleToken(ctx, InstanceType.CLIENT, (identifier, context) -> {
+                        final var token = context.header(Fields.TOKEN);
+                        final var limit = context.queryParamAsClass("limit", Integer.class).allowNullable().get();
+                        final var response = httpClient.getSnapshotPage(token, context.queryParam("after"), limit);
+                        relaySecure(identifier, response, context);
+                    });
+                })
+                .get("/api/snapshots/aggregate", ctx -> {
+                    log.info("Requisição HTTP recebida (agregação)");
+                    handleToken(ctx, InstanceType.CLIENT, (identifier, context) -> {
+                        final var token = context.header(Fields.TOKEN);
+                        final var response = httpClient.getSnapshotAggregates(token, context.queryParam("from"),
+                                context.queryParam("to"), context.queryParam("bucket"), context.queryParam("device"),
+                                context.queryParam("element"));
+                        relaySecure(identifier, response, context);
+                    });
+                })
+                .get("/api/snapshots/stream", ctx -> {
+                    log.info("Requisição HTTP recebida (exportação)");
+                    handleToken(ctx, InstanceType.CLIENT, (identifier, context) -> {
+                        final var token = context.header(Fields.TOKEN);
+                        final var response = httpClient.streamSnapshots(token);
+                        relaySecureStream(identifier, response, context);
+                    });
+                })
                 .get("/api/snapshots/{starting}", ctx -> {
                     log.info("Requisição HTTP recebida");
                     handleToken(ctx, InstanceType.CLIENT, (identifier, context) -> {
                         // Obter o token
                         final var token = context.header(Fields.TOKEN);
 
-                        try {
-                            // Chamar endpoint do datacenter
-                            final var timestamp = context.pathParam("starting");
-                            final var response = httpClient.getSnapshotsAfter(token, timestamp);
-
-                            // Descriptografar mensagem recebida pelo datacenter
-                            final var entityIn = response.getEntity();
-                            final var secureJsonIn = EntityUtils.toString(entityIn);
-                            final var secureMessageIn = SecureMessage.fromJson(secureJsonIn);
-
-                            final var messageAsBytes = httpClients.get(ServerType.DATACENTER_HTTP.name())
-                                    .decrypt(secureMessageIn);
-
-                            // Criptografar para reenviar ao cliente
-                            final var cryptoServiceOut = httpClients.get(identifier);
-                            final var secureMessageOut = cryptoServiceOut.encrypt(messageAsBytes);
-                            ctx.json(secureMessageOut);
-                        } catch (final IOException e) {
-                            // Ignorar
-                        }
+                        // Chamar endpoint do datacenter
+                        final var timestamp = context.pathParam("starting");
+                        final var response = httpClient.getSnapshotsAfter(token, timestamp);
+                        relaySecure(identifier, response, context);
                     });
                 })
                 .get("api/use-symmetric", ctx -> {
                     log.info("Novo cliente");
                     handleToken(ctx, InstanceType.CLIENT, (identifier, context) -> {
                         // Instanciar serviço de criptografia
-                        final var encryptionKey = CryptoServiceFactory.generateAESKey();
-                        final var hmacKey = CryptoServiceFactory.generateAESKey();
-                        final var aesService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
+                        final var mode = CryptoServiceFactory.symmetricMode(context.header(Fields.SYMMETRIC_MODE));
+                        final var keys = CryptoServiceFactory.generateSymmetric(mode,
+                                context.header(Fields.AGREEMENT_KEY));
 
                         // Guardar
-                        httpClients.put(identifier, aesService);
+                        httpClients.put(identifier, keys.getCryptoService());
 
                         // Repassar para o cliente
-                        final var response = MessageFactory.ok()
-                                .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                                .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                        final var response = keys.writeTo(MessageFactory.ok());
                         final var secureResponse = rsaService.encrypt(response.toBytes());
                         ctx.json(secureResponse);
                     });
@@ -306,6 +385,54 @@ public class Gateway {
         log.info("Servidor HTTP iniciado na porta {}", httpServer.port());
     }
 
+    /**
+     * Repassa ao cliente uma resposta cifrada do datacenter, trocando a
+     * criptografia do datacenter pela da sessão do cliente
+     */
+    private void relaySecure(final String identifier, final HttpResponse response, final Context context) {
+        try {
+            // Descriptografar mensagem recebida pelo datacenter
+            final var entityIn = response.getEntity();
+            final var secureJsonIn = EntityUtils.toString(entityIn);
+            final var secureMessageIn = SecureMessage.fromJson(secureJsonIn);
+
+            final var messageAsBytes = httpClients.get(ServerType.DATACENTER_HTTP.name())
+                    .decrypt(secureMessageIn);
+
+            // Criptografar para reenviar ao cliente
+            final var cryptoServiceOut = httpClients.get(identifier);
+            final var secureMessageOut = cryptoServiceOut.encrypt(messageAsBytes);
+            context.status(response.getStatusLine().getStatusCode()).json(secureMessageOut);
+        } catch (final IOException e) {
+            // Ignorar
+        }
+    }
+
+    /**
+     * Como {@link #relaySecure(String, HttpResponse, Context)}, mas quadro a
+     * quadro (uma linha por quadro), sem acumular a exportação na memória
+     */
+    private void relaySecureStream(final String identifier, final HttpResponse response, final Context context) {
+        final var cryptoServiceIn = httpClients.get(ServerType.DATACENTER_HTTP.name());
+        final var cryptoServiceOut = httpClients.get(identifier);
+
+        context.status(response.getStatusLine().getStatusCode()).contentType("application/x-ndjson");
+        try (final var reader = new BufferedReader(
+                new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+            final var out = context.outputStream();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final var messageAsBytes = cryptoServiceIn.decrypt(SecureMessage.fromJson(line));
+                out.write(cryptoServiceOut.encrypt(messageAsBytes).toJson().getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (final IOException e) {
+            log.warn("Exportação interrompida", e);
+        }
+    }
+
     @SneakyThrows
     private void registerTcp() {
         log.info("Registrando-se no servidor de localização (TCP)...");
@@ -371,54 +498,46 @@ public class Gateway {
         if (MessageType.USE_SYMMETRIC.equals(request.getType())) {
             log.info("Nova conexão assimétrica. Preparando-se para usar simétrica...");
 
-            final var encryptionKey = CryptoServiceFactory.generateAESKey();
-            final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            final var symmetricMessenger = ServerMessengerFactory.secureUdp(cryptoService);
-            symmetricMessenger.subscribe(req -> {
-                final var resp = handleUdpRequest(req);
-
-                if (MessageType.ERROR.equals(resp.getType())) {
-                    try {
-                        symmetricMessenger.close();
-                    } catch (IOException e) {
-                        // Ignorar
-                    }
-                }
-
-                return resp;
-            });
+            final var keys = CryptoServiceFactory.generateSymmetric(request);
+            final var cryptoService = keys.getCryptoService();
+            final var sessionId = new AtomicReference<String>();
+            sessionId.set(udpServerMessenger.openSession(cryptoService, req -> serveUdpSession(sessionId.get(), req)));
             log.info("Aguardando mensagens simétricas...");
 
-            return MessageFactory.ok()
+            return keys.writeTo(MessageFactory.ok()
                     .withValue(Fields.HOST, internetHost)
-                    .withValue(Fields.PORT, symmetricMessenger.getPort())
-                    .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                    .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                    .withValue(Fields.PORT, udpServerMessenger.getPort())
+                    .withValue(Fields.SESSION_ID, sessionId.get())
+                    .withValue(Fields.SESSION_TICKET, udpServerMessenger.issueTicket(keys)));
         } else {
             return MessageFactory.error(Constants.UNSUPPORTED);
         }
     }
 
+    private Message serveUdpSession(final String sessionId, final Message request) {
+        final var response = handleUdpRequest(request);
+
+        if (MessageType.ERROR.equals(response.getType())) {
+            udpServerMessenger.closeSession(sessionId);
+        }
+
+        return response;
+    }
+
     @SneakyThrows
     private Message serveTcpSymmetric(final Message request) {
         if (MessageType.USE_SYMMETRIC.equals(request.getType())) {
             log.info("Nova conexão assimétrica. Preparando-se para usar simétrica...");
 
-            final var encryptionKey = CryptoServiceFactory.generateAESKey();
-            final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            final var symmetricMessenger = ServerMessengerFactory.secureTcp(cryptoService);
+            final var keys = CryptoServiceFactory.generateSymmetric(request);
+            final var cryptoService = keys.getCryptoService();
+            final var symmetricMessenger = ServerMessengerFactory.secureNioTcpShared(cryptoService);
             symmetricMessenger.subscribe(this::handleTcpRequest);
             log.info("Aguardando mensagens simétricas...");
 
-            return MessageFactory.ok()
+            return keys.writeTo(MessageFactory.ok()
                     .withValue(Fields.HOST, internetHost)
-                    .withValue(Fields.PORT, symmetricMessenger.getPort())
-                    .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                    .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                    .withValue(Fields.PORT, symmetricMessenger.getPort()));
         } else {
             return MessageFactory.error(Constants.UNSUPPORTED);
         }
@@ -434,33 +553,38 @@ public class Gateway {
             final var locateResponse = locationUdpIntranetMessenger.receive();
 
             if (locateResponse.getType().equals(MessageType.OK)) {
-                // Abrir messenger assimétrico
-                final String rsaHost = locateResponse.getValue(Fields.HOST);
-                final int rsaPort = locateResponse.getValue(Fields.PORT);
-                final String rsaPublicKey = locateResponse.getValue(Fields.PUBLIC_KEY);
-                final var rsaCryptoService = CryptoServiceFactory.publicRsa(rsaPublicKey);
-                final var rsaMessenger = MessengerFactory.secureTcp(rsaHost, rsaPort, rsaCryptoService);
-
-                // Solicitar conexão simétrica
-                final var useSymmetricRequest = new Message(MessageType.USE_SYMMETRIC);
-                rsaMessenger.send(useSymmetricRequest);
-                final var useSymmetricResponse = rsaMessenger.receive();
-
-                // Abrir messenger simétrico
-                final String aesHost = useSymmetricResponse.getValue(Fields.HOST);
-                final int aesPort = useSymmetricResponse.getValue(Fields.PORT);
-                final String aesEncryptionKey = useSymmetricResponse.getValue(Fields.ENCRYPTION_KEY);
-                final String aesHmacKey = useSymmetricResponse.getValue(Fields.HMAC_KEY);
-                final var aesCryptoService = CryptoServiceFactory.aes(aesEncryptionKey, aesHmacKey);
-                final var aesMessenger = MessengerFactory.secureTcp(aesHost, aesPort, aesCryptoService);
-
-                authTcpMessenger = new MessengerWithFirewall(aesMessenger, filterFirewall);
+                openPool(ServerType.AUTH_TCP, () -> connectToAuthServer(locateResponse));
             }
 
-            if (authTcpMessenger == null) {
+            if (!backendPools.containsKey(ServerType.AUTH_TCP)) {
                 Thread.sleep(INTERVAL);
             }
-        } while (authTcpMessenger == null);
+        } while (!backendPools.containsKey(ServerType.AUTH_TCP));
+    }
+
+    @SneakyThrows
+    private SecureMessenger connectToAuthServer(final Message locateResponse) {
+        // Abrir messenger assimétrico
+        final String rsaHost = locateResponse.getValue(Fields.HOST);
+        final int rsaPort = locateResponse.getValue(Fields.PORT);
+        final String rsaPublicKey = locateResponse.getValue(Fields.PUBLIC_KEY);
+        final var rsaCryptoService = CryptoServiceFactory.publicRsa(rsaPublicKey);
+        final var rsaMessenger = MessengerFactory.secureTcp(rsaHost, rsaPort, rsaCryptoService);
+
+        // Solicitar conexão simétrica
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        final var useSymmetricRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
+        rsaMessenger.send(useSymmetricRequest);
+        final var useSymmetricResponse = rsaMessenger.receive();
+
+        // Abrir messenger simétrico
+        final String aesHost = useSymmetricResponse.getValue(Fields.HOST);
+        final int aesPort = useSymmetricResponse.getValue(Fields.PORT);
+        final var aesCryptoService = CryptoServiceFactory.symmetric(offer, useSymmetricResponse);
+        final var aesMessenger = MessengerFactory.secureTcp(aesHost, aesPort, aesCryptoService);
+
+        rsaMessenger.close();
+        return aesMessenger;
     }
 
     @SneakyThrows
@@ -473,13 +597,13 @@ public class Gateway {
             final var response = locationUdpIntranetMessenger.receive();
 
             if (response.getType().equals(MessageType.OK)) {
-                edgeUdpMessenger = new MessengerWithFirewall(connectToEdgeServer(response), filterFirewall);
+                openPool(ServerType.EDGE_UDP, () -> connectToEdgeServer(response));
             }
 
-            if (edgeUdpMessenger == null) {
+            if (!backendPools.containsKey(ServerType.EDGE_UDP)) {
                 Thread.sleep(INTERVAL);
             }
-        } while (edgeUdpMessenger == null);
+        } while (!backendPools.containsKey(ServerType.EDGE_UDP));
     }
 
     @SneakyThrows
@@ -488,21 +612,30 @@ public class Gateway {
         final String rsaHost = locationResponse.getValue(Fields.HOST);
         final int rsaPort = locationResponse.getValue(Fields.PORT);
         final String rsaPublicKey = locationResponse.getValue(Fields.PUBLIC_KEY);
+
+        // Retomar a sessão anterior, se houver ticket
+        final var resumed = MessengerFactory.resumeUdp(rsaHost, rsaPort);
+        if (resumed.isPresent()) {
+            return resumed.get();
+        }
+
         final var edgeRsaService = CryptoServiceFactory.publicRsa(rsaPublicKey);
         final var rsaMessenger = MessengerFactory.secureUdp(rsaHost, rsaPort, edgeRsaService);
 
         // Solicitar chave AES
-        final var request = new Message(MessageType.USE_SYMMETRIC);
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        final var request = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
         rsaMessenger.send(request);
         final var response = rsaMessenger.receive();
 
         // Abrir messenger AES permanente
         final String aesHost = response.getValue(Fields.HOST);
         final int aesPort = response.getValue(Fields.PORT);
-        final String encryptionKey = response.getValue(Fields.ENCRYPTION_KEY);
-        final String hmacKey = response.getValue(Fields.HMAC_KEY);
-        final var edgeAesService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-        final var aesMessenger = MessengerFactory.secureUdp(aesHost, aesPort, edgeAesService);
+        final String sessionId = response.getValue(Fields.SESSION_ID);
+
+        final var edgeAesService = CryptoServiceFactory.symmetric(offer, response);
+        SessionTicketCache.store(rsaHost, rsaPort, response);
+        final var aesMessenger = MessengerFactory.secureUdp(aesHost, aesPort, edgeAesService, sessionId);
 
         rsaMessenger.close();
         return aesMessenger;
@@ -518,14 +651,30 @@ public class Gateway {
             final var response = locationUdpIntranetMessenger.receive();
 
             if (response.getType().equals(MessageType.OK)) {
-                intrusionDetectorTcpMessenger = new MessengerWithFirewall(connectToIntrusionDetector(response),
-                        filterFirewall);
+                openPool(ServerType.INTRUSION_DETECTOR_TCP, () -> connectToIntrusionDetector(response));
             }
 
-            if (intrusionDetectorTcpMessenger == null) {
+            if (!backendPools.containsKey(ServerType.INTRUSION_DETECTOR_TCP)) {
                 Thread.sleep(INTERVAL);
             }
-        } while (intrusionDetectorTcpMessenger == null);
+        } while (!backendPools.containsKey(ServerType.INTRUSION_DETECTOR_TCP));
+    }
+
+    /**
+     * Cria o pool de conexões com um servidor de trás do Gateway, cada uma
+     * com o seu próprio handshake e passando pelo firewall. Como as regras
+     * levam a porta local de cada conexão, cada uma é liberada no firewall ao
+     * ser aberta. A primeira conexão é aberta na hora, para validar o servidor
+     * localizado.
+     */
+    private void openPool(final ServerType serverType, final Supplier<SecureMessenger> connector) {
+        final var pool = new MessengerPool(serverType.name(), MessengerPool.sizeFromEnv(), () -> {
+            final var messenger = new MessengerWithFirewall(connector.get(), filterFirewall);
+            filterFirewall.permit(messenger);
+            return messenger;
+        });
+        pool.release(pool.borrow());
+        backendPools.put(serverType, pool);
     }
 
     @SneakyThrows
@@ -538,16 +687,15 @@ public class Gateway {
         final var rsaMessenger = MessengerFactory.secureTcp(rsaHost, rsaPort, detectorRsaService);
 
         // Solicitar chave AES
-        final var request = new Message(MessageType.USE_SYMMETRIC);
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        final var request = offer.writeTo(new Message(MessageType.USE_SYMMETRIC));
         rsaMessenger.send(request);
         final var response = rsaMessenger.receive();
 
         // Abrir messenger AES permanente
         final String aesHost = response.getValue(Fields.HOST);
         final int aesPort = response.getValue(Fields.PORT);
-        final String encryptionKey = response.getValue(Fields.ENCRYPTION_KEY);
-        final String hmacKey = response.getValue(Fields.HMAC_KEY);
-        final var detectorAesService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
+        final var detectorAesService = CryptoServiceFactory.symmetric(offer, response);
         final var aesMessenger = MessengerFactory.secureTcp(aesHost, aesPort, detectorAesService);
 
         rsaMessenger.close();
@@ -588,7 +736,8 @@ public class Gateway {
         final var asymmetricCryptoService = CryptoServiceFactory.publicRsa(httpPublicKey);
 
         // Obter resposta do HTTP
-        final var response = datacenterHttpClient.acceptGateway();
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        final var response = datacenterHttpClient.acceptGateway(offer);
         final var entity = response.getEntity();
         final var json = EntityUtils.toString(entity);
         final var secureMessage = SecureMessage.fromJson(json);
@@ -597,9 +746,7 @@ public class Gateway {
 
         if (MessageType.OK.equals(message.getType())) {
             // Configurar cifragem simétrica
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
-            final var datacenterHttpCryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
+            final var datacenterHttpCryptoService = CryptoServiceFactory.symmetric(offer, message);
             httpClients.put(ServerType.DATACENTER_HTTP.name(), datacenterHttpCryptoService);
         } else {
             throw new HybridCryptoException(message.getValue("message"));
@@ -607,39 +754,21 @@ public class Gateway {
     }
 
     private void writeRules() {
-        filterFirewall.permit(authTcpMessenger)
-                .permit(edgeUdpMessenger)
-                .permit(intrusionDetectorTcpMessenger)
-                .permit(ConnectionType.HTTP, datacenterHttpClient.getHost(), datacenterHttpClient.getPort())
+        // As conexões dos pools são liberadas uma a uma em openPool()
+        filterFirewall.permit(ConnectionType.HTTP, datacenterHttpClient.getHost(), datacenterHttpClient.getPort())
                 .printRules();
     }
 
-    @SneakyThrows
     private Message handleUdpRequest(final Message request) {
-        if (MessageType.SEND_SNAPSHOT.equals(request.getType())) {
-            // Passar pelo detector de intrusão
-            intrusionDetectorTcpMessenger.send(request);
-            final var analysis = intrusionDetectorTcpMessenger.receive();
-
-            // Se a análise for positiva, repassar a mensagem
-            if (MessageType.OK.equals(analysis.getType())) {
-                edgeUdpMessenger.send(request);
-                return edgeUdpMessenger.receive();
-            } else {
-                // Senão, retornar erro
-                return MessageFactory.error("Mensagem rejeitada por suspeita de intrusão!");
-            }
-
-        } else {
-            return MessageFactory.error(Constants.UNSUPPORTED);
-        }
+        // Detector de intrusão e servidor de borda são consultados pelos
+        // estágios do pipeline, cada um com a sua conexão do pool
+        return snapshotPipeline.submit(request).join();
     }
 
     @SneakyThrows
     private Message handleTcpRequest(final Message request) {
         if (MessageType.AUTHENTICATE.equals(request.getType())) {
-            authTcpMessenger.send(request);
-            return authTcpMessenger.receive();
+            return backendPools.get(ServerType.AUTH_TCP).request(request);
         } else {
             return MessageFactory.error(Constants.UNSUPPORTED);
         }
@@ -0,0 +1,192 @@
+package br.edu.ufersa.cc.seg.gateway;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+
+import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.SecureMessage;
+import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
+import br.edu.ufersa.cc.seg.common.utils.EventStream;
+import br.edu.ufersa.cc.seg.common.utils.ServerType;
+import io.javalin.http.sse.SseClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Repasse do canal ao vivo do datacenter aos clientes: uma única inscrição no
+ * datacenter, cujos quadros são decifrados uma vez e cifrados de novo com a
+ * sessão AES de cada cliente inscrito ({@code httpClients}).
+ * <p>
+ * Cada cliente tem uma fila limitada e uma thread virtual que cifra e envia os
+ * seus quadros, de modo que um cliente lento não atrasa os demais. Se a fila
+ * dele encher, a inscrição é encerrada: ao se inscrever de novo, o cliente
+ * busca o que perdeu em {@code /api/snapshots/since/{sequence}}. Se a conexão
+ * com o datacenter cair, o Gateway se inscreve de novo após um intervalo.
+ */
+@Slf4j
+class LiveRelay implements Closeable {
+
+    public static final String QUEUE_VARIABLE = "LIVE_RELAY_QUEUE";
+    public static final String EVENT = "snapshots";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final long RECONNECT_INTERVAL = 3_000;
+
+    /** Cliente inscrito, com a sua fila e a thread que a esvazia */
+    @RequiredArgsConstructor
+    private class Subscriber {
+        private final String identifier;
+        private final SseClient client;
+        // Quadros já decifrados, ainda por cifrar para este cliente
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private Thread sender;
+
+        private void run() {
+            try {
+                while (!client.terminated()) {
+                    final var json = httpClients.get(identifier).encrypt(queue.take()).toJson();
+                    client.sendEvent(EVENT, json);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException e) {
+                log.warn("Falha ao enviar ao cliente {}", identifier, e);
+            } finally {
+                subscribers.remove(client);
+                client.close();
+            }
+        }
+    }
+
+    private final MyHttpClient datacenterHttpClient;
+    private final Map<String, CryptoService> httpClients;
+    private final int queueCapacity;
+
+    private final Map<SseClient, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Thread relay;
+    private volatile CloseableHttpResponse subscription;
+    private volatile boolean closed;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    LiveRelay(final MyHttpClient datacenterHttpClient, final Map<String, CryptoService> httpClients) {
+        this.datacenterHttpClient = datacenterHttpClient;
+        this.httpClients = httpClients;
+        this.queueCapacity = Optional.ofNullable(System.getenv(QUEUE_VARIABLE))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_QUEUE_CAPACITY);
+        this.relay = Thread.ofVirtual().name("live-relay").start(this::run);
+    }
+
+    /**
+     * Inscreve um cliente autenticado, que já deve ter a sua sessão AES
+     */
+    void subscribe(final String identifier, final SseClient client) {
+        final var subscriber = new Subscriber(identifier, client);
+        client.keepAlive();
+
+        // A thread existe antes de qualquer um que possa interrompê-la
+        subscriber.sender = Thread.ofVirtual().name("live-" + identifier).start(subscriber::run);
+        subscribers.put(client, subscriber);
+        client.onClose(() -> {
+            subscribers.remove(client);
+            subscriber.sender.interrupt();
+        });
+        log.info("Cliente {} inscrito no canal ao vivo ({} inscritos)", identifier, subscribers.size());
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                listen();
+            } catch (final IOException | RuntimeException e) {
+                if (!closed) {
+                    log.warn("Canal ao vivo do datacenter interrompido: {}", e.getMessage());
+                }
+            }
+
+            if (!closed) {
+                try {
+                    Thread.sleep(RECONNECT_INTERVAL);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listen() throws IOException {
+        final var cryptoService = httpClients.get(ServerType.DATACENTER_HTTP.name());
+
+        // Prova de que este Gateway tem a chave combinada com o datacenter
+        final var proof = cryptoService.encrypt(MessageFactory.ok().toBytes());
+        final var proofHeader = Base64.getUrlEncoder().withoutPadding().encodeToString(proof.toBytes());
+
+        try (final var response = datacenterHttpClient.subscribeLive(proofHeader)) {
+            subscription = response;
+            if (response.getStatusLine().getStatusCode() != 200) {
+                throw new IOException("Inscrição recusada: " + response.getStatusLine());
+            }
+
+            log.info("Inscrito no canal ao vivo do datacenter");
+            EventStream.read(response.getEntity().getContent(), (event, data) -> {
+                if (EVENT.equals(event)) {
+                    dispatch(cryptoService, data);
+                }
+            });
+        } finally {
+            subscription = null;
+        }
+    }
+
+    private void dispatch(final CryptoService cryptoService, final String data) {
+        received.increment();
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        final var message = cryptoService.decrypt(SecureMessage.fromJson(data));
+        for (final var subscriber : subscribers.values()) {
+            if (subscriber.queue.offer(message)) {
+                delivered.increment();
+            } else {
+                evicted.increment();
+                log.warn("Cliente {} não acompanha o canal ao vivo, encerrando inscrição", subscriber.identifier);
+                subscriber.sender.interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        relay.interrupt();
+
+        // Fechar a resposta sem consumi-la aborta a conexão e libera a leitura
+        final var current = subscription;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (final IOException ignore) {
+                // Ignorar
+            }
+        }
+
+        subscribers.values().forEach(subscriber -> subscriber.sender.interrupt());
+        log.info("Repasse ao vivo encerrado: {} quadros recebidos, {} entregues, {} clientes removidos",
+                received.sum(), delivered.sum(), evicted.sum());
+    }
+
+}
@@ -6,11 +6,17 @@ import java.net.InetAddress;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 
 import br.edu.ufersa.cc.seg.FilterFirewall;
+import br.edu.ufersa.cc.seg.common.crypto.SymmetricOffer;
 import br.edu.ufersa.cc.seg.common.utils.ConnectionType;
+import br.edu.ufersa.cc.seg.common.utils.EventStream;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
 import io.javalin.http.UnauthorizedResponse;
 import lombok.Getter;
 import lombok.SneakyThrows;
@@ -20,6 +26,10 @@ public class MyHttpClient {
     private final FilterFirewall firewall;
 
     private final HttpClient httpClient = HttpClients.createDefault();
+
+    // A inscrição ao vivo prende uma conexão indefinidamente; com um cliente
+    // próprio, ela não ocupa o pool das requisições dos clientes
+    private final CloseableHttpClient liveHttpClient = HttpClients.createDefault();
     private final String uri;
 
     @Getter
@@ -41,15 +51,23 @@ public class MyHttpClient {
     }
 
     @SneakyThrows
-    public HttpResponse useSymmetric(final String token) {
+    public HttpResponse useSymmetric(final String token, final SymmetricOffer offer) {
         final var request = new HttpGet(uri + "/api/use-symmetric");
         request.addHeader("token", token);
+        request.addHeader(Fields.SYMMETRIC_MODE, offer.getMode().name());
+        if (offer.hasAgreement()) {
+            request.addHeader(Fields.AGREEMENT_KEY, offer.getAgreementKey());
+        }
         return execute(request);
     }
 
     @SneakyThrows
-    public HttpResponse acceptGateway() {
+    public HttpResponse acceptGateway(final SymmetricOffer offer) {
         final var request = new HttpGet(uri + "/api/accept-gateway");
+        request.addHeader(Fields.SYMMETRIC_MODE, offer.getMode().name());
+        if (offer.hasAgreement()) {
+            request.addHeader(Fields.AGREEMENT_KEY, offer.getAgreementKey());
+        }
         return execute(request);
     }
 
@@ -60,6 +78,81 @@ public class MyHttpClient {
         return execute(request);
     }
 
+    @SneakyThrows
+    public HttpResponse getSnapshotsSince(final String token, final long sequence, final Integer limit) {
+        final var builder = new URIBuilder(uri + "/api/snapshots/since/" + sequence);
+        if (limit != null) {
+            builder.addParameter("limit", limit.toString());
+        }
+
+        final var request = new HttpGet(builder.build());
+        request.addHeader("token", token);
+        return execute(request);
+    }
+
+    @SneakyThrows
+    public HttpResponse getSnapshotPage(final String token, final String cursor, final Integer limit) {
+        final var builder = new URIBuilder(uri + "/api/snapshots/page");
+        if (cursor != null) {
+            builder.addParameter("after", cursor);
+        }
+        if (limit != null) {
+            builder.addParameter("limit", limit.toString());
+        }
+
+        final var request = new HttpGet(builder.build());
+        request.addHeader("token", token);
+        return execute(request);
+    }
+
+    /**
+     * Séries resumidas; os parâmetros nulos ficam com o padrão do datacenter
+     */
+    @SneakyThrows
+    public HttpResponse getSnapshotAggregates(final String token, final String from, final String to,
+            final String bucket, final String device, final String element) {
+        final var builder = new URIBuilder(uri + "/api/snapshots/aggregate");
+        addParameter(builder, "from", from);
+        addParameter(builder, "to", to);
+        addParameter(builder, "bucket", bucket);
+        addParameter(builder, "device", device);
+        addParameter(builder, "element", element);
+
+        final var request = new HttpGet(builder.build());
+        request.addHeader("token", token);
+        return execute(request);
+    }
+
+    @SneakyThrows
+    public HttpResponse streamSnapshots(final String token) {
+        final var request = new HttpGet(uri + "/api/snapshots/stream");
+        request.addHeader("token", token);
+        return execute(request);
+    }
+
+    /**
+     * Abre a inscrição no canal ao vivo. A resposta deve ser lida aos poucos e
+     * fechada por quem chamou.
+     */
+    @SneakyThrows
+    public CloseableHttpResponse subscribeLive(final String proof) {
+        final var request = new HttpGet(uri + "/api/snapshots/live");
+        request.addHeader(Fields.PROOF, proof);
+        request.addHeader("Accept", EventStream.CONTENT_TYPE);
+
+        if (firewall.isAllowed(getConnectionType(), host, port)) {
+            return liveHttpClient.execute(request);
+        } else {
+            throw new UnauthorizedResponse("Não autorizado");
+        }
+    }
+
+    private static void addParameter(final URIBuilder builder, final String name, final String value) {
+        if (value != null) {
+            builder.addParameter(name, value);
+        }
+    }
+
     private HttpResponse execute(final HttpGet request) throws IOException, ClientProtocolException {
         if (firewall.isAllowed(getConnectionType(), host, port)) {
             return httpClient.execute(request);
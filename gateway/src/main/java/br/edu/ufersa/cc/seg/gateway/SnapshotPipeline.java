@@ -0,0 +1,318 @@
+package br.edu.ufersa.cc.seg.gateway;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
+import br.edu.ufersa.cc.seg.common.messengers.Message;
+import br.edu.ufersa.cc.seg.common.messengers.MessengerPool;
+import br.edu.ufersa.cc.seg.common.utils.Constants;
+import br.edu.ufersa.cc.seg.common.utils.Fields;
+import br.edu.ufersa.cc.seg.common.utils.MessageType;
+import br.edu.ufersa.cc.seg.common.utils.SnapshotBatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caminho das leituras dos dispositivos dentro do Gateway, dividido em três
+ * estágios com executores próprios, ligados por filas limitadas:
+ * <ol>
+ * <li>entrada: valida a requisição e a distribui aos estágios seguintes;</li>
+ * <li>análise: consulta o detector de intrusão;</li>
+ * <li>repasse: envia a leitura ao servidor de borda.</li>
+ * </ol>
+ * Quando uma fila enche, o estágio anterior executa a tarefa ele mesmo, o que
+ * propaga a contrapressão até a sessão do dispositivo. Depois de
+ * {@link #close()}, ou se um estágio falhar, a leitura é respondida com erro:
+ * a resposta nunca fica pendente.
+ * <p>
+ * No modo {@link Mode#SEQUENTIAL}, a leitura só é repassada depois de aprovada
+ * pelo detector. No modo {@link Mode#SPECULATIVE}, a análise e o repasse
+ * acontecem em paralelo, e a leitura rejeitada é retirada do servidor de borda
+ * com uma mensagem {@link MessageType#RETRACT_SNAPSHOT}; assim, o dispositivo
+ * espera pela mais lenta das duas consultas, e não pela soma delas. Para isso,
+ * cada leitura repassada leva um identificador próprio
+ * ({@link Fields#READING_ID}), que a retirada usa para apagar exatamente as
+ * capturas daquela leitura.
+ * <p>
+ * Lotes ({@link MessageType#SEND_SNAPSHOT_BATCH}) recebem do detector um
+ * veredito por leitura: só as aprovadas chegam ao servidor de borda (ou
+ * permanecem nele, no modo especulativo), e o dispositivo recebe os vereditos
+ * na resposta. Uma resposta do detector sem exatamente um veredito por
+ * leitura rejeita o lote inteiro.
+ */
+@Slf4j
+class SnapshotPipeline implements Closeable {
+
+    public static final String MODE_VARIABLE = "SNAPSHOT_PIPELINE_MODE";
+    public static final String QUEUE_VARIABLE = "SNAPSHOT_PIPELINE_QUEUE";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final String REJECTED = "Mensagem rejeitada por suspeita de intrusão!";
+    private static final String CLOSED = "Gateway em encerramento";
+    private static final String FAILED = "Falha ao processar leitura";
+
+    /**
+     * Como {@link ThreadPoolExecutor.CallerRunsPolicy}, mas sem descartar em
+     * silêncio as tarefas que chegam depois do encerramento
+     */
+    private static final RejectedExecutionHandler CALLER_RUNS = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Pipeline encerrado");
+        }
+        task.run();
+    };
+
+    enum Mode {
+        SEQUENTIAL,
+        SPECULATIVE,
+    }
+
+    /** Leitura (ou lote) em trânsito e os resultados parciais de cada estágio */
+    @RequiredArgsConstructor
+    private static class Reading {
+        private final Message request;
+        private final Message forwarded;
+        private final CompletableFuture<Message> response = new CompletableFuture<>();
+        private final CompletableFuture<Message> analysis = new CompletableFuture<>();
+        private final CompletableFuture<Message> forwarding = new CompletableFuture<>();
+    }
+
+    private final Mode mode;
+    private final MessengerPool detectorPool;
+    private final MessengerPool edgePool;
+
+    private final ThreadPoolExecutor ingestStage;
+    private final ThreadPoolExecutor analysisStage;
+    private final ThreadPoolExecutor forwardStage;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retracted = new LongAdder();
+
+    SnapshotPipeline(final MessengerPool detectorPool, final MessengerPool edgePool) {
+        this(modeFromEnv(), detectorPool, edgePool);
+    }
+
+    SnapshotPipeline(final Mode mode, final MessengerPool detectorPool, final MessengerPool edgePool) {
+        this.mode = mode;
+        this.detectorPool = detectorPool;
+        this.edgePool = edgePool;
+
+        // Cada trabalhador dos estágios de consulta ocupa uma conexão do pool
+        final var capacity = queueCapacityFromEnv();
+        final var workers = MessengerPool.sizeFromEnv();
+        this.ingestStage = stage("ingest", 1, capacity);
+        this.analysisStage = stage("analysis", workers, capacity);
+        this.forwardStage = stage("forward", workers, capacity);
+
+        log.info("Pipeline de leituras no modo {} ({} trabalhadores, filas de {})", mode, workers, capacity);
+    }
+
+    static Mode modeFromEnv() {
+        return Optional.ofNullable(System.getenv(MODE_VARIABLE))
+                .map(String::toUpperCase)
+                .map(Mode::valueOf)
+                .orElse(Mode.SEQUENTIAL);
+    }
+
+    private static int queueCapacityFromEnv() {
+        return Optional.ofNullable(System.getenv(QUEUE_VARIABLE))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    private static ThreadPoolExecutor stage(final String name, final int workers, final int capacity) {
+        return new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                Thread.ofVirtual().name("pipeline-" + name + "-", 0).factory(),
+                CALLER_RUNS);
+    }
+
+    /**
+     * Coloca uma leitura no pipeline. O futuro é concluído com a resposta a ser
+     * devolvida ao dispositivo, nunca excepcionalmente.
+     */
+    CompletableFuture<Message> submit(final Message request) {
+        // Só o modo especulativo retira leituras, e só ele precisa identificá-las
+        final var reading = new Reading(request,
+                Mode.SPECULATIVE.equals(mode) && isSnapshot(request) ? SnapshotBatch.identify(request) : request);
+        execute(ingestStage, reading, () -> ingest(reading));
+        return reading.response;
+    }
+
+    /**
+     * Agenda uma tarefa da leitura num estágio. Se o estágio já foi encerrado
+     * ou a tarefa falhar, a leitura é respondida com erro.
+     */
+    private void execute(final ThreadPoolExecutor stage, final Reading reading, final Runnable task) {
+        try {
+            stage.execute(() -> guard(reading, task));
+        } catch (final RejectedExecutionException e) {
+            log.warn("Pipeline encerrado; leitura de {} descartada", deviceOf(reading));
+            reading.response.complete(MessageFactory.error(CLOSED));
+        }
+    }
+
+    private static String deviceOf(final Reading reading) {
+        return reading.request.getValue(Fields.DEVICE_NAME);
+    }
+
+    private static void guard(final Reading reading, final Runnable task) {
+        try {
+            task.run();
+        } catch (final RuntimeException e) {
+            log.error("Falha no pipeline ao processar leitura de {}", deviceOf(reading), e);
+            reading.response.complete(MessageFactory.error(FAILED));
+        }
+    }
+
+    private static boolean isSnapshot(final Message request) {
+        return MessageType.SEND_SNAPSHOT.equals(request.getType())
+                || MessageType.SEND_SNAPSHOT_BATCH.equals(request.getType());
+    }
+
+    private void ingest(final Reading reading) {
+        if (!isSnapshot(reading.request)) {
+            reading.response.complete(MessageFactory.error(Constants.UNSUPPORTED));
+            return;
+        }
+
+        if (Mode.SPECULATIVE.equals(mode)) {
+            reading.analysis.thenAcceptBoth(reading.forwarding,
+                    (analysis, forwarding) -> guard(reading, () -> settle(reading, analysis, forwarding)));
+            execute(analysisStage, reading, () -> reading.analysis.complete(call(detectorPool, reading.request)));
+            execute(forwardStage, reading, () -> reading.forwarding.complete(call(edgePool, reading.forwarded)));
+        } else {
+            execute(analysisStage, reading, () -> analyse(reading));
+        }
+    }
+
+    /**
+     * Modo sequencial: repassa apenas as leituras aprovadas pelo detector
+     */
+    private void analyse(final Reading reading) {
+        final var verdicts = verdicts(reading.request, call(detectorPool, reading.request));
+        count(verdicts);
+
+        if (!verdicts.contains(true)) {
+            reading.response.complete(MessageFactory.error(REJECTED));
+            return;
+        }
+
+        final var approved = SnapshotBatch.isBatch(reading.request)
+                ? SnapshotBatch.filter(reading.request, verdicts)
+                : reading.request;
+        execute(forwardStage, reading,
+                () -> reading.response.complete(respond(reading, call(edgePool, approved), verdicts)));
+    }
+
+    /**
+     * Modo especulativo: se o detector aprovou alguma leitura, vale a resposta
+     * do servidor de borda; senão, o dispositivo recebe o erro. Em ambos os
+     * casos, as leituras rejeitadas que já foram repassadas são retiradas em
+     * segundo plano.
+     */
+    private void settle(final Reading reading, final Message analysis, final Message forwarding) {
+        final var verdicts = verdicts(reading.request, analysis);
+        count(verdicts);
+
+        reading.response.complete(verdicts.contains(true)
+                ? respond(reading, forwarding, verdicts)
+                : MessageFactory.error(REJECTED));
+
+        if (verdicts.contains(false) && MessageType.OK.equals(forwarding.getType())) {
+            execute(forwardStage, reading, () -> retract(reading, verdicts));
+        }
+    }
+
+    private void retract(final Reading reading, final List<Boolean> verdicts) {
+        final var readings = SnapshotBatch.readingsOf(reading.forwarded);
+
+        for (var i = 0; i < readings.size(); i++) {
+            if (Boolean.TRUE.equals(verdicts.get(i))) {
+                continue;
+            }
+
+            final var retraction = readings.get(i).copy();
+            retraction.setType(MessageType.RETRACT_SNAPSHOT);
+
+            final var response = call(edgePool, retraction);
+            if (MessageType.OK.equals(response.getType())) {
+                retracted.increment();
+                log.warn("Leitura {} de {} em {} retirada após rejeição do detector",
+                        retraction.getValue(Fields.READING_ID), retraction.getValue(Fields.DEVICE_NAME),
+                        retraction.getValue(Fields.TIMESTAMP));
+            } else {
+                log.error("Falha ao retirar leitura rejeitada: {}", response.getValues());
+            }
+        }
+    }
+
+    /**
+     * Veredito do detector para cada leitura da requisição: lotes trazem um
+     * por leitura; leituras avulsas, apenas OK ou erro. Se a lista de um lote
+     * faltar, tiver outro tamanho ou algo que não seja booleano, todas as
+     * leituras são rejeitadas.
+     */
+    private static List<Boolean> verdicts(final Message request, final Message analysis) {
+        final var expected = SnapshotBatch.countOf(request);
+        if (!MessageType.OK.equals(analysis.getType())) {
+            return Collections.nCopies(expected, false);
+        }
+        if (!SnapshotBatch.isBatch(request)) {
+            return List.of(true);
+        }
+
+        final Object verdicts = analysis.getValue(Fields.VERDICTS);
+        if (!(verdicts instanceof List<?> list) || list.size() != expected
+                || !list.stream().allMatch(Boolean.class::isInstance)) {
+            log.error("Vereditos inválidos do detector para um lote de {} leituras: {}; lote rejeitado",
+                    expected, verdicts);
+            return Collections.nCopies(expected, false);
+        }
+
+        return list.stream().map(Boolean.class::cast).toList();
+    }
+
+    private static Message respond(final Reading reading, final Message forwarding, final List<Boolean> verdicts) {
+        if (SnapshotBatch.isBatch(reading.request) && MessageType.OK.equals(forwarding.getType())) {
+            return forwarding.withValue(Fields.VERDICTS, verdicts);
+        }
+
+        return forwarding;
+    }
+
+    private void count(final List<Boolean> verdicts) {
+        verdicts.forEach(verdict -> (Boolean.TRUE.equals(verdict) ? accepted : rejected).increment());
+    }
+
+    private Message call(final MessengerPool pool, final Message request) {
+        try {
+            return pool.request(request);
+        } catch (final RuntimeException e) {
+            log.error("Falha na consulta ao pool {}", pool.stats().getName(), e);
+            return MessageFactory.error("Servidor indisponível");
+        }
+    }
+
+    @Override
+    public void close() {
+        log.info("Encerrando pipeline de leituras: {} aceitas, {} rejeitadas, {} retiradas",
+                accepted.sum(), rejected.sum(), retracted.sum());
+
+        ingestStage.shutdown();
+        analysisStage.shutdown();
+        forwardStage.shutdown();
+    }
+
+}
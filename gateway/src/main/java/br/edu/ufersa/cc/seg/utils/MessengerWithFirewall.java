@@ -1,5 +1,8 @@
 package br.edu.ufersa.cc.seg.utils;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
 import br.edu.ufersa.cc.seg.FilterFirewall;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger;
@@ -21,4 +24,21 @@ public class MessengerWithFirewall extends Messenger {
         }
     }
 
+    @Override
+    public CompletableFuture<Message> request(final Message message) {
+        if (firewall.isAllowed(messenger)) {
+            return messenger.request(message);
+        }
+
+        return CompletableFuture.failedFuture(
+                new IllegalStateException("Conexão bloqueada pelo firewall: " + messenger.getHost()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // A regra vale só para esta conexão, pela sua porta local
+        firewall.removeRule(messenger);
+        messenger.close();
+    }
+
 }
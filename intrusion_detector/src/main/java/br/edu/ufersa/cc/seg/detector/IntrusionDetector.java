@@ -9,6 +9,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import br.edu.ufersa.cc.seg.common.auth.TokenService;
 import br.edu.ufersa.cc.seg.common.crypto.CryptoService;
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
 import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
 import br.edu.ufersa.cc.seg.common.factories.EnvOrInputFactory;
 import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
@@ -22,6 +23,7 @@ import br.edu.ufersa.cc.seg.common.utils.Fields;
 import br.edu.ufersa.cc.seg.common.utils.InstanceType;
 import br.edu.ufersa.cc.seg.common.utils.MessageType;
 import br.edu.ufersa.cc.seg.common.utils.ServerType;
+import br.edu.ufersa.cc.seg.common.utils.SnapshotBatch;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
@@ -68,10 +70,19 @@ public class IntrusionDetector {
     public void stop() {
         locationMessenger.close();
         serverMessenger.close();
+        CryptoTrace.logCounters();
     }
 
     @SneakyThrows
     private void connectToLocationServer() {
+        // Acordo de chaves X25519: dispensa o par RSA e o servidor temporário
+        final var offer = CryptoServiceFactory.symmetricOffer();
+        if (offer.hasAgreement()) {
+            locationMessenger = MessengerFactory.agreeUdp(envOrInputFactory.getString("LOCATION_HOST"),
+                    envOrInputFactory.getInt("LOCATION_PORT"), offer);
+            return;
+        }
+
         /*
          * FASE 1
          */
@@ -85,12 +96,12 @@ public class IntrusionDetector {
             // Abrir conexão AES permanente
             final String locationHost = message.getValue(Fields.HOST);
             final int locationPort = message.getValue(Fields.PORT);
-            final String encryptionKey = message.getValue(Fields.ENCRYPTION_KEY);
-            final String hmacKey = message.getValue(Fields.HMAC_KEY);
+            final String sessionId = message.getValue(Fields.SESSION_ID);
 
             // Salvar conexão no server
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService);
+            final var cryptoService = CryptoServiceFactory.symmetric(message);
+            locationMessenger = MessengerFactory.secureUdp(locationHost, locationPort, cryptoService,
+                    sessionId);
 
             return MessageFactory.ok();
         });
@@ -102,7 +113,7 @@ public class IntrusionDetector {
         final var insecureHost = envOrInputFactory.getString("LOCATION_HOST");
         final var insecurePort = envOrInputFactory.getInt("LOCATION_PORT");
         final var insecureMessenger = MessengerFactory.udp(insecureHost, insecurePort);
-        final var insecureRequest = new Message(MessageType.USE_SYMMETRIC)
+        final var insecureRequest = offer.writeTo(new Message(MessageType.USE_SYMMETRIC))
                 .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
                 .withValue(Fields.PORT, asymmetricMessenger.getPort())
                 .withValue(Fields.PUBLIC_KEY, rsaPair.getPublicKey().getEncoded());
@@ -143,19 +154,15 @@ public class IntrusionDetector {
         if (MessageType.USE_SYMMETRIC.equals(request.getType())) {
             log.info("Nova conexão assimétrica. Preparando-se para usar simétrica...");
 
-            final var encryptionKey = CryptoServiceFactory.generateAESKey();
-            final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-            final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
+            final var keys = CryptoServiceFactory.generateSymmetric(request);
+            final var cryptoService = keys.getCryptoService();
             final var symmetricMessenger = ServerMessengerFactory.secureTcp(cryptoService);
             symmetricMessenger.subscribe(this::handleRequest);
             log.info("Aguardando mensagens simétricas...");
 
-            return MessageFactory.ok()
+            return keys.writeTo(MessageFactory.ok()
                     .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
-                    .withValue(Fields.PORT, symmetricMessenger.getPort())
-                    .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                    .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                    .withValue(Fields.PORT, symmetricMessenger.getPort()));
         } else {
             return MessageFactory.error("Tipo de mensagem não suportada");
         }
@@ -169,13 +176,30 @@ public class IntrusionDetector {
 
         mistakes.putIfAbsent(identifier, new AtomicInteger(0));
 
-        final String deviceName = request.getValue("deviceName");
-        final String formattedTimestamp = request.getValue("timestamp");
+        // Lotes recebem um veredito por leitura, na ordem em que chegaram
+        if (SnapshotBatch.isBatch(request)) {
+            final var verdicts = SnapshotBatch.unpack(request).stream()
+                    .map(reading -> analyse(identifier, reading))
+                    .toList();
+
+            return MessageFactory.ok(Fields.VERDICTS, verdicts);
+        }
+
+        if (!analyse(identifier, request)) {
+            return MessageFactory.error();
+        }
+
+        return MessageFactory.ok();
+    }
+
+    private boolean analyse(final String identifier, final Message reading) {
+        final String deviceName = reading.getValue(Fields.DEVICE_NAME);
+        final String formattedTimestamp = reading.getValue(Fields.TIMESTAMP);
 
         log.info("Analisando as leituras de {} em {}...", deviceName, formattedTimestamp);
 
         for (final var element : Element.values()) {
-            Optional.of((double) request.getValue(element.name()))
+            Optional.of((double) reading.getValue(element.name()))
                     .ifPresent(value -> {
                         if (value < element.getMin() || value > element.getMax()) {
                             mistakes.get(identifier).incrementAndGet();
@@ -184,11 +208,7 @@ public class IntrusionDetector {
                     });
         }
 
-        if (mistakes.get(identifier).get() > TOLERANCE) {
-            return MessageFactory.error();
-        }
-
-        return MessageFactory.ok();
+        return mistakes.get(identifier).get() <= TOLERANCE;
     }
 
 }
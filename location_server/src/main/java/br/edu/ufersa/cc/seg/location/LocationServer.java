@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+import br.edu.ufersa.cc.seg.common.crypto.CryptoTrace;
 import br.edu.ufersa.cc.seg.common.factories.CryptoServiceFactory;
 import br.edu.ufersa.cc.seg.common.factories.MessageFactory;
 import br.edu.ufersa.cc.seg.common.factories.MessengerFactory;
@@ -13,6 +14,7 @@ import br.edu.ufersa.cc.seg.common.factories.ServerMessengerFactory;
 import br.edu.ufersa.cc.seg.common.messengers.Message;
 import br.edu.ufersa.cc.seg.common.messengers.Messenger.Subscription;
 import br.edu.ufersa.cc.seg.common.messengers.ServerMessenger;
+import br.edu.ufersa.cc.seg.common.messengers.SessionServerMessenger;
 import br.edu.ufersa.cc.seg.common.utils.Fields;
 import br.edu.ufersa.cc.seg.common.utils.MessageType;
 import br.edu.ufersa.cc.seg.common.utils.ServerType;
@@ -32,13 +34,16 @@ public class LocationServer {
 
     private final Map<ServerType, Location> locations = new HashMap<>();
     private final ServerMessenger serverMessenger;
+    private final SessionServerMessenger symmetricMessenger;
     private Subscription subscription;
 
     public LocationServer(final int port) throws IOException {
         this.serverMessenger = ServerMessengerFactory.udp(port);
+        this.symmetricMessenger = ServerMessengerFactory.secureUdpSessions();
     }
 
     public void start() {
+        symmetricMessenger.subscribe(request -> MessageFactory.error("Sessão não informada"));
         serverMessenger.subscribe(this::handleFirstContact);
     }
 
@@ -63,7 +68,9 @@ public class LocationServer {
     public void stop() {
         subscription.close();
         serverMessenger.close();
+        symmetricMessenger.close();
         subscription = null;
+        CryptoTrace.logCounters();
     }
 
     @SneakyThrows
@@ -73,6 +80,11 @@ public class LocationServer {
             return MessageFactory.error("Tipo de mensagem não suportada");
         }
 
+        // Acordo de chaves: a resposta em texto plano só leva a chave pública
+        if (request.getValue(Fields.AGREEMENT_KEY) != null) {
+            return agreeFirstContact(request);
+        }
+
         /*
          * FASE 1
          */
@@ -92,21 +104,16 @@ public class LocationServer {
          */
         log.info("Nova conexão assimétrica. Preparando-se para usar simétrica...");
 
-        // Abrir servidor AES permanente pra futuras comunicações
-        final var encryptionKey = CryptoServiceFactory.generateAESKey();
-        final var hmacKey = CryptoServiceFactory.generateAESKey();
-
-        final var cryptoService = CryptoServiceFactory.aes(encryptionKey, hmacKey);
-        final var symmetricMessenger = ServerMessengerFactory.secureUdp(cryptoService);
-        symmetricMessenger.subscribe(this::handleRequest);
+        // Abrir sessão AES permanente pra futuras comunicações, no modo pedido
+        final var keys = CryptoServiceFactory.generateSymmetric(request);
+        final var sessionId = symmetricMessenger.openSession(keys.getCryptoService(), this::handleRequest);
         log.info("Aguardando mensagens simétricas...");
 
         // Enviar chaves AES pelo messenger assimétrico
-        final var aesData = new Message(MessageType.USE_SYMMETRIC)
+        final var aesData = keys.writeTo(new Message(MessageType.USE_SYMMETRIC)
                 .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
                 .withValue(Fields.PORT, symmetricMessenger.getPort())
-                .withValue(Fields.ENCRYPTION_KEY, encryptionKey.getEncoded())
-                .withValue(Fields.HMAC_KEY, hmacKey.getEncoded());
+                .withValue(Fields.SESSION_ID, sessionId));
 
         asymmetricMessenger.send(aesData);
         final var response = asymmetricMessenger.receive();
@@ -124,6 +131,20 @@ public class LocationServer {
         return MessageFactory.ok();
     }
 
+    @SneakyThrows
+    private Message agreeFirstContact(final Message request) {
+        log.info("Nova conexão insegura. Derivando chaves por acordo X25519...");
+
+        final var keys = CryptoServiceFactory.generateSymmetric(request);
+        final var sessionId = symmetricMessenger.openSession(keys.getCryptoService(), this::handleRequest);
+        log.info("Aguardando mensagens simétricas...");
+
+        return keys.writeTo(MessageFactory.ok()
+                .withValue(Fields.HOST, InetAddress.getLocalHost().getHostAddress())
+                .withValue(Fields.PORT, symmetricMessenger.getPort())
+                .withValue(Fields.SESSION_ID, sessionId));
+    }
+
     private Message handleRequest(final Message request) {
         switch (request.getType()) {
             case REGISTER_SERVER: {